@@ -41,14 +41,13 @@ import net.william278.husksync.config.Server;
 import net.william278.husksync.config.Settings;
 import net.william278.husksync.data.*;
 import net.william278.husksync.database.Database;
-import net.william278.husksync.database.MongoDbDatabase;
-import net.william278.husksync.database.MySqlDatabase;
-import net.william278.husksync.database.PostgresDatabase;
+import net.william278.husksync.database.MirroredDatabase;
 import net.william278.husksync.event.BukkitEventDispatcher;
 import net.william278.husksync.hook.PlanHook;
 import net.william278.husksync.listener.BukkitEventListener;
 import net.william278.husksync.listener.LockedHandler;
 import net.william278.husksync.maps.BukkitMapHandler;
+import net.william278.husksync.migrator.DatabaseMigrator;
 import net.william278.husksync.migrator.LegacyMigrator;
 import net.william278.husksync.migrator.Migrator;
 import net.william278.husksync.migrator.MpdbMigrator;
@@ -56,6 +55,7 @@ import net.william278.husksync.redis.RedisManager;
 import net.william278.husksync.sync.DataSyncer;
 import net.william278.husksync.user.BukkitUser;
 import net.william278.husksync.user.OnlineUser;
+import net.william278.husksync.util.BukkitKeyedAdapter;
 import net.william278.husksync.util.BukkitLegacyConverter;
 import net.william278.husksync.util.BukkitTask;
 import net.william278.husksync.util.LegacyConverter;
@@ -152,6 +152,9 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync, BukkitTask.S
             log(Level.WARNING, "Failed to load NBT API (unrecognized server version). NBT features may not work correctly!");
         }
 
+        // Build registry key tables
+        initialize("registry key tables", (plugin) -> BukkitKeyedAdapter.initialize(this));
+
         // Register commands
         initialize("commands", (plugin) -> getUniform().register(PluginCommand.Type.create(this)));
 
@@ -170,7 +173,7 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync, BukkitTask.S
             registerSerializer(Identifier.INVENTORY, new BukkitSerializer.Inventory(this));
             registerSerializer(Identifier.ENDER_CHEST, new BukkitSerializer.EnderChest(this));
             registerSerializer(Identifier.ADVANCEMENTS, new BukkitSerializer.Advancements(this));
-            registerSerializer(Identifier.STATISTICS, new Serializer.Json<>(this, BukkitData.Statistics.class));
+            registerSerializer(Identifier.STATISTICS, new Serializer.Statistics<>(this, BukkitData.Statistics::from));
             registerSerializer(Identifier.POTION_EFFECTS, new BukkitSerializer.PotionEffects(this));
             registerSerializer(Identifier.GAME_MODE, new Serializer.Json<>(this, BukkitData.GameMode.class));
             registerSerializer(Identifier.FLIGHT_STATUS, new Serializer.Json<>(this, BukkitData.FlightStatus.class));
@@ -185,6 +188,7 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync, BukkitTask.S
         // Setup available migrators
         initialize("data migrators/converters", (plugin) -> {
             availableMigrators.add(new LegacyMigrator(this));
+            availableMigrators.add(new DatabaseMigrator(this));
             if (isDependencyLoaded("MySqlPlayerDataBridge")) {
                 availableMigrators.add(new MpdbMigrator(this));
             }
@@ -193,11 +197,11 @@ public class BukkitHuskSync extends JavaPlugin implements HuskSync, BukkitTask.S
 
         // Initialize the database
         initialize(getSettings().getDatabase().getType().getDisplayName() + " database connection", (plugin) -> {
-            this.database = switch (settings.getDatabase().getType()) {
-                case MYSQL, MARIADB -> new MySqlDatabase(this);
-                case POSTGRES -> new PostgresDatabase(this);
-                case MONGO -> new MongoDbDatabase(this);
-            };
+            this.database = Database.create(this, settings.getDatabase());
+            if (settings.getDatabase().getMirror().isEnabled()) {
+                this.database = new MirroredDatabase(this, database,
+                        Database.create(this, settings.getDatabase().getMirrorTarget()));
+            }
             this.database.initialize();
         });
 
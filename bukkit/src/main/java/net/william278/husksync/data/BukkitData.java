@@ -50,6 +50,7 @@ import org.jetbrains.annotations.Range;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -436,130 +437,143 @@ public abstract class BukkitData implements Data {
 
     @Getter
     @AllArgsConstructor(access = AccessLevel.PRIVATE)
-    @NoArgsConstructor(access = AccessLevel.PRIVATE)
-    public static class Statistics extends BukkitData implements Data.Statistics, Adaptable {
+    public static class Statistics extends BukkitData implements Data.Statistics {
 
-        // Pre-filtered material lists to avoid N×M iteration over the full Registry.MATERIAL per statistic type
-        private static Set<Material> BLOCK_MATERIALS;
-        private static Set<Material> ITEM_MATERIALS;
+        // Registry values to count statistics for, with their interned names, resolved once
+        private static List<Indexed<Material>> BLOCKS;
+        private static List<Indexed<Material>> ITEMS;
+        private static List<Indexed<EntityType>> ENTITIES;
 
-        private static Set<Material> getBlockMaterials() {
-            if (BLOCK_MATERIALS == null) {
-                final Set<Material> blocks = new HashSet<>();
-                Registry.MATERIAL.forEach(mat -> { if (mat.isBlock()) blocks.add(mat); });
-                BLOCK_MATERIALS = Collections.unmodifiableSet(blocks);
+        private static List<Indexed<Material>> getBlocks() {
+            if (BLOCKS == null) {
+                BLOCKS = Indexed.of(Registry.MATERIAL, Material::isBlock);
             }
-            return BLOCK_MATERIALS;
+            return BLOCKS;
         }
 
-        private static Set<Material> getItemMaterials() {
-            if (ITEM_MATERIALS == null) {
-                final Set<Material> items = new HashSet<>();
-                Registry.MATERIAL.forEach(mat -> { if (mat.isItem()) items.add(mat); });
-                ITEM_MATERIALS = Collections.unmodifiableSet(items);
+        private static List<Indexed<Material>> getItems() {
+            if (ITEMS == null) {
+                ITEMS = Indexed.of(Registry.MATERIAL, Material::isItem);
             }
-            return ITEM_MATERIALS;
+            return ITEMS;
         }
 
-        @SerializedName("generic")
-        private Map<String, Integer> genericStatistics;
-        @SerializedName("blocks")
-        private Map<String, Map<String, Integer>> blockStatistics;
-        @SerializedName("items")
-        private Map<String, Map<String, Integer>> itemStatistics;
-        @SerializedName("entities")
-        private Map<String, Map<String, Integer>> entityStatistics;
+        private static List<Indexed<EntityType>> getEntities() {
+            if (ENTITIES == null) {
+                ENTITIES = Indexed.of(Registry.ENTITY_TYPE, type -> true);
+            }
+            return ENTITIES;
+        }
+
+        private final StatisticTable genericTable;
+        private final StatisticTable blockTable;
+        private final StatisticTable itemTable;
+        private final StatisticTable entityTable;
 
         @NotNull
         public static BukkitData.Statistics adapt(@NotNull Player player) {
-            final Map<String, Integer> generic = Maps.newHashMap();
-            final Map<String, Map<String, Integer>> blocks = Maps.newHashMap(),
-                    items = Maps.newHashMap(), entities = Maps.newHashMap();
+            final StatisticTable generic = new StatisticTable(), blocks = new StatisticTable(256),
+                    items = new StatisticTable(1024), entities = new StatisticTable(128);
             Registry.STATISTIC.forEach(id -> {
+                final int index = StatisticTable.intern(id.getKey().getKey());
                 switch (id.getType()) {
-                    case UNTYPED -> addStatistic(player, id, generic);
+                    case UNTYPED -> {
+                        final int stat = player.getStatistic(id);
+                        if (stat != 0) {
+                            generic.set(index, StatisticTable.UNTYPED, stat);
+                        }
+                    }
                     // Todo - Future - Use BLOCK and ITEM registries when API stabilizes
-                    case BLOCK -> addStatistic(player, id, getBlockMaterials(), blocks);
-                    case ITEM -> addStatistic(player, id, getItemMaterials(), items);
-                    case ENTITY -> addStatistic(player, id, Registry.ENTITY_TYPE, entities);
+                    case BLOCK -> addStatistic(id, index, getBlocks(), blocks, player::getStatistic);
+                    case ITEM -> addStatistic(id, index, getItems(), items, player::getStatistic);
+                    case ENTITY -> addStatistic(id, index, getEntities(), entities, player::getStatistic);
                 }
             });
             return new BukkitData.Statistics(generic, blocks, items, entities);
         }
 
+        @NotNull
+        public static BukkitData.Statistics from(@NotNull StatisticTable generic, @NotNull StatisticTable blocks,
+                                                 @NotNull StatisticTable items, @NotNull StatisticTable entities) {
+            return new BukkitData.Statistics(generic, blocks, items, entities);
+        }
+
         @NotNull
         public static BukkitData.Statistics from(@NotNull Map<String, Integer> generic,
                                                  @NotNull Map<String, Map<String, Integer>> blocks,
                                                  @NotNull Map<String, Map<String, Integer>> items,
                                                  @NotNull Map<String, Map<String, Integer>> entities) {
-            return new BukkitData.Statistics(generic, blocks, items, entities);
-        }
-
-        private static void addStatistic(@NotNull Player p, @NotNull Statistic id, @NotNull Map<String, Integer> map) {
-            final int stat = p.getStatistic(id);
-            if (stat != 0) {
-                map.put(id.getKey().getKey(), stat);
-            }
+            return new BukkitData.Statistics(
+                    StatisticTable.fromUntypedMap(generic), StatisticTable.fromTypedMap(blocks),
+                    StatisticTable.fromTypedMap(items), StatisticTable.fromTypedMap(entities)
+            );
         }
 
-        private static <R extends Keyed> void addStatistic(@NotNull Player p, @NotNull Statistic id,
-                                                           @NotNull Iterable<R> registry,
-                                                           @NotNull Map<String, Map<String, Integer>> map) {
-            registry.forEach(i -> {
+        private static <R> void addStatistic(@NotNull Statistic id, int index, @NotNull List<Indexed<R>> subjects,
+                                             @NotNull StatisticTable table, @NotNull TypedGetter<R> getter) {
+            for (Indexed<R> subject : subjects) {
                 try {
-                    int stat = 0;
-                    if (i instanceof Material mat && ((id.getType() == Statistic.Type.BLOCK && mat.isBlock())
-                            || (id.getType() == Statistic.Type.ITEM && mat.isItem()))) {
-                        stat = p.getStatistic(id, mat);
-                    } else if (i instanceof EntityType ent && id.getType() == Statistic.Type.ENTITY) {
-                        stat = p.getStatistic(id, ent);
-                    }
+                    final int stat = getter.get(id, subject.value());
                     if (stat != 0) {
-                        map.compute(id.getKey().getKey(), (k, v) -> v == null ? Maps.newHashMap() : v)
-                                .put(i.getKey().getKey(), stat);
+                        table.set(index, subject.index(), stat);
                     }
-                } catch (IllegalStateException ignored) {
+                } catch (IllegalStateException | IllegalArgumentException ignored) {
                 }
-            });
+            }
         }
 
         @Override
         public void apply(@NotNull BukkitUser user, @NotNull BukkitHuskSync p) {
-            genericStatistics.forEach((k, v) -> applyStat(p, user, k, Statistic.Type.UNTYPED, v));
-            blockStatistics.forEach((k, m) -> m.forEach((b, v) -> applyStat(p, user, k, Statistic.Type.BLOCK, v, b)));
-            itemStatistics.forEach((k, m) -> m.forEach((i, v) -> applyStat(p, user, k, Statistic.Type.ITEM, v, i)));
-            entityStatistics.forEach((k, m) -> m.forEach((e, v) -> applyStat(p, user, k, Statistic.Type.ENTITY, v, e)));
+            final Player player = user.getPlayer();
+            genericTable.forEach((id, subject, value) -> applyStat(p, player, id, subject, value, null));
+            blockTable.forEach((id, subject, value) -> applyStat(p, player, id, subject, value, MATERIALS));
+            itemTable.forEach((id, subject, value) -> applyStat(p, player, id, subject, value, MATERIALS));
+            entityTable.forEach((id, subject, value) -> applyStat(p, player, id, subject, value, ENTITY_TYPES));
         }
 
-        private void applyStat(@NotNull HuskSync plugin, @NotNull UserDataHolder user, @NotNull String id,
-                               @NotNull Statistic.Type type, int value, @NotNull String... key) {
-            final Player player = ((BukkitUser) user).getPlayer();
-            final Statistic stat = matchStatistic(id);
+        private void applyStat(@NotNull HuskSync plugin, @NotNull Player player, int id, int subject, int value,
+                               @Nullable StatisticTable.Lookup<?> subjects) {
+            final Statistic stat = STATISTICS.get(id);
             if (stat == null) {
                 return;
             }
 
             try {
-                switch (type) {
-                    case UNTYPED -> player.setStatistic(stat, value);
-                    case BLOCK, ITEM -> {
-                        Material material = matchMaterial(key.length > 0 ? key[0] : null);
-                        if (material != null) {
-                            player.setStatistic(stat, material, value);
-                        }
-                    }
-                    case ENTITY -> {
-                        EntityType entity = matchEntityType(key.length > 0 ? key[0] : null);
-                        if (entity != null) {
-                            player.setStatistic(stat, entity, value);
-                        }
-                    }
+                if (subjects == null) {
+                    player.setStatistic(stat, value);
+                    return;
+                }
+                final Object key = subjects.get(subject);
+                if (key instanceof Material material) {
+                    player.setStatistic(stat, material, value);
+                } else if (key instanceof EntityType entity) {
+                    player.setStatistic(stat, entity, value);
                 }
             } catch (Throwable a) {
-                plugin.log(Level.WARNING, "Failed to apply statistic " + id, a);
+                plugin.log(Level.WARNING, "Failed to apply statistic " + StatisticTable.name(id), a);
+            }
+        }
+
+        // A registry value and its interned name
+        private record Indexed<T>(@NotNull T value, int index) {
+            @NotNull
+            private static <T extends Keyed> List<Indexed<T>> of(@NotNull Registry<T> registry,
+                                                                 @NotNull Predicate<T> filter) {
+                final List<Indexed<T>> values = Lists.newArrayList();
+                registry.forEach(value -> {
+                    if (filter.test(value)) {
+                        values.add(new Indexed<>(value, StatisticTable.intern(value.getKey().getKey())));
+                    }
+                });
+                return List.copyOf(values);
             }
         }
 
+        @FunctionalInterface
+        private interface TypedGetter<R> {
+            int get(@NotNull Statistic statistic, @NotNull R subject);
+        }
+
     }
 
     @Getter
@@ -652,19 +666,37 @@ public abstract class BukkitData implements Data {
             );
         }
 
+        // Apply an attribute, only removing and adding the modifiers that differ, as each change recalculates the
+        // attribute and is sent to the client
         private static void applyAttribute(@Nullable AttributeInstance instance, @Nullable Attribute attribute) {
             if (instance == null) {
                 return;
             }
-            instance.getModifiers().forEach(instance::removeModifier);
-            instance.setBaseValue(attribute == null ? instance.getValue() : attribute.baseValue());
+            final Map<NamespacedKey, AttributeModifier> toAdd = Maps.newHashMap();
             if (attribute != null) {
-                attribute.modifiers().stream()
-                        .filter(mod -> instance.getModifiers().stream().map(AttributeModifier::getName)
-                                .noneMatch(n -> n.equals(mod.name())))
-                        .distinct()
-                        .forEach(mod -> instance.addModifier(adapt(mod)));
+                attribute.modifiers().forEach(mod -> {
+                    final AttributeModifier modifier = adapt(mod);
+                    toAdd.putIfAbsent(modifier.getKey(), modifier);
+                });
+            }
+            for (AttributeModifier current : instance.getModifiers()) {
+                final AttributeModifier target = toAdd.get(current.getKey());
+                if (target != null && isSameModifier(current, target)) {
+                    toAdd.remove(current.getKey());
+                } else {
+                    instance.removeModifier(current);
+                }
+            }
+            final double baseValue = attribute == null ? instance.getValue() : attribute.baseValue();
+            if (instance.getBaseValue() != baseValue) {
+                instance.setBaseValue(baseValue);
             }
+            toAdd.values().forEach(instance::addModifier);
+        }
+
+        private static boolean isSameModifier(@NotNull AttributeModifier a, @NotNull AttributeModifier b) {
+            return a.getAmount() == b.getAmount() && a.getOperation() == b.getOperation()
+                   && a.getSlotGroup().equals(b.getSlotGroup());
         }
 
         @NotNull
@@ -692,11 +724,14 @@ public abstract class BukkitData implements Data {
             }
 
             final AttributeSettings settings = plugin.getSettings().getSynchronization().getAttributes();
+            final Map<String, Attribute> saved = Maps.newHashMapWithExpectedSize(attributes.size());
+            attributes.forEach(attribute -> saved.putIfAbsent(attribute.name(), attribute));
             Registry.ATTRIBUTE.forEach(id -> {
-                if (settings.isIgnoredAttribute(id.getKey().toString())) {
+                final String key = id.getKey().toString();
+                if (settings.isIgnoredAttribute(key)) {
                     return;
                 }
-                applyAttribute(user.getPlayer().getAttribute(id), getAttribute(id).orElse(null));
+                applyAttribute(user.getPlayer().getAttribute(id), saved.get(key));
             });
         }
 
@@ -35,8 +35,6 @@ import org.bukkit.event.world.WorldSaveEvent;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.stream.Collectors;
-
 @Getter
 public class BukkitEventListener extends EventListener implements BukkitJoinEventListener, BukkitQuitEventListener,
         BukkitDeathEventListener, Listener {
@@ -126,10 +124,10 @@ public class BukkitEventListener extends EventListener implements BukkitJoinEven
             return;
         }
 
-        // Handle saving player data snapshots when the world saves
-        plugin.runAsync(() -> super.saveOnWorldSave(event.getWorld().getPlayers()
-                .stream().map(player -> BukkitUser.adapt(player, plugin))
-                .collect(Collectors.toList())));
+        // Schedule saving player data snapshots when the world saves
+        super.saveOnWorldSave(event.getWorld().getPlayers()
+                .stream().map(player -> (OnlineUser) BukkitUser.adapt(player, plugin))
+                .toList());
     }
 
     @EventHandler(ignoreCancelled = true)
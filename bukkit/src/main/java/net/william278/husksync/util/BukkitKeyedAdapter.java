@@ -19,44 +19,129 @@
 
 package net.william278.husksync.util;
 
+import io.papermc.paper.event.server.ServerResourcesReloadedEvent;
+import net.william278.husksync.data.StatisticTable;
 import org.bukkit.*;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.entity.EntityType;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.potion.PotionEffectType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.HashMap;
+import java.util.Map;
+
 // Utility class for adapting "Keyed" Bukkit objects
 public final class BukkitKeyedAdapter {
 
+    // Registry values by interned statistic name, as stored in statistic tables
+    public static final StatisticTable.Lookup<Statistic> STATISTICS = new StatisticTable.Lookup<>(
+            BukkitKeyedAdapter::matchStatistic
+    );
+    public static final StatisticTable.Lookup<Material> MATERIALS = new StatisticTable.Lookup<>(
+            BukkitKeyedAdapter::matchMaterial
+    );
+    public static final StatisticTable.Lookup<EntityType> ENTITY_TYPES = new StatisticTable.Lookup<>(
+            BukkitKeyedAdapter::matchEntityType
+    );
+
+    // Registry values by key string, built at enable so matching a key doesn't parse it or query the registry
+    private static volatile Map<String, Statistic> statistics = Map.of();
+    private static volatile Map<String, EntityType> entityTypes = Map.of();
+    private static volatile Map<String, Material> materials = Map.of();
+    private static volatile Map<String, Attribute> attributes = Map.of();
+    private static volatile Map<String, PotionEffectType> effectTypes = Map.of();
+
+    /**
+     * Build the key tables, and rebuild them whenever the server's data packs are reloaded (on Paper)
+     *
+     * @param plugin the plugin to register the reload listener for
+     */
+    public static void initialize(@NotNull Plugin plugin) {
+        rebuild();
+        try {
+            Class.forName("io.papermc.paper.event.server.ServerResourcesReloadedEvent");
+            Bukkit.getPluginManager().registerEvents(new ReloadListener(), plugin);
+        } catch (ClassNotFoundException ignored) {
+        }
+    }
+
+    /**
+     * Rebuild the key tables from the server registries
+     */
+    public static void rebuild() {
+        statistics = index(Registry.STATISTIC);
+        entityTypes = index(Registry.ENTITY_TYPE);
+        materials = index(Registry.MATERIAL);
+        attributes = index(Registry.ATTRIBUTE);
+        effectTypes = index(Registry.EFFECT);
+        STATISTICS.clear();
+        MATERIALS.clear();
+        ENTITY_TYPES.clear();
+        Registry.STATISTIC.forEach(s -> STATISTICS.put(StatisticTable.intern(s.getKey().getKey()), s));
+        Registry.MATERIAL.forEach(m -> MATERIALS.put(StatisticTable.intern(m.getKey().getKey()), m));
+        Registry.ENTITY_TYPE.forEach(e -> ENTITY_TYPES.put(StatisticTable.intern(e.getKey().getKey()), e));
+    }
+
     @Nullable
     public static Statistic matchStatistic(@NotNull String key) {
-        return getRegistryValue(Registry.STATISTIC, key);
+        return getRegistryValue(statistics, Registry.STATISTIC, key);
     }
 
     @Nullable
     public static EntityType matchEntityType(@NotNull String key) {
-        return getRegistryValue(Registry.ENTITY_TYPE, key);
+        return getRegistryValue(entityTypes, Registry.ENTITY_TYPE, key);
     }
 
     @Nullable
     public static Material matchMaterial(@NotNull String key) {
-        return getRegistryValue(Registry.MATERIAL, key);
+        return getRegistryValue(materials, Registry.MATERIAL, key);
     }
 
     @Nullable
     public static Attribute matchAttribute(@NotNull String key) {
-        return getRegistryValue(Registry.ATTRIBUTE, key);
+        return getRegistryValue(attributes, Registry.ATTRIBUTE, key);
     }
 
     @Nullable
     public static PotionEffectType matchEffectType(@NotNull String key) {
-        return getRegistryValue(Registry.EFFECT, key);
+        return getRegistryValue(effectTypes, Registry.EFFECT, key);
+    }
+
+    // Index registry values by their full key, and by their bare key if in the minecraft namespace
+    @NotNull
+    private static <T extends Keyed> Map<String, T> index(@NotNull Registry<T> registry) {
+        final Map<String, T> index = new HashMap<>();
+        registry.forEach(value -> {
+            final NamespacedKey key = value.getKey();
+            index.put(key.toString(), value);
+            if (key.getNamespace().equals(NamespacedKey.MINECRAFT)) {
+                index.put(key.getKey(), value);
+            }
+        });
+        return index;
     }
 
-    private static <T extends Keyed> T getRegistryValue(@NotNull Registry<T> registry, @NotNull String keyString) {
+    @Nullable
+    private static <T extends Keyed> T getRegistryValue(@NotNull Map<String, T> index, @NotNull Registry<T> registry,
+                                                        @NotNull String keyString) {
+        final T value = index.get(keyString);
+        if (value != null) {
+            return value;
+        }
         final NamespacedKey key = NamespacedKey.fromString(keyString);
         return key != null ? registry.get(key) : null;
     }
 
+    // Rebuilds the key tables when data packs are reloaded
+    private static final class ReloadListener implements Listener {
+        @EventHandler
+        public void onResourcesReloaded(@NotNull ServerResourcesReloadedEvent event) {
+            rebuild();
+        }
+    }
+
 }
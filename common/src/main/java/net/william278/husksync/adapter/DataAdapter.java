@@ -94,6 +94,19 @@ public interface DataAdapter {
     @NotNull
     String bytesToString(byte[] bytes);
 
+    /**
+     * Re-encode bytes written by any data adapter to the format written by this adapter, without deserializing
+     * the data they hold
+     *
+     * @param bytes The bytes to re-encode
+     * @return the re-encoded bytes, or the same array if they are already in this adapter's format
+     * @throws AdaptionException If the bytes could not be re-encoded
+     * @since 4.0
+     */
+    default byte[] reencode(byte[] bytes) throws AdaptionException {
+        return bytes;
+    }
+
     final class AdaptionException extends IllegalStateException {
         static final String FORMAT = "An exception occurred when adapting serialized/deserialized data: %s";
 
@@ -21,11 +21,20 @@ package net.william278.husksync.adapter;
 
 import net.william278.husksync.HuskSync;
 import org.jetbrains.annotations.NotNull;
+import org.xerial.snappy.Snappy;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
 public class GsonAdapter implements DataAdapter {
 
+    // Buffers JSON is written to before being copied out (or compressed), reused between calls
+    private static final ThreadBuffer.Pool JSON_BUFFERS = ThreadBuffer.pool();
+
     private final HuskSync plugin;
 
     public GsonAdapter(@NotNull HuskSync plugin) {
@@ -34,7 +43,55 @@ public class GsonAdapter implements DataAdapter {
 
     @Override
     public <A extends Adaptable> byte[] toBytes(@NotNull A data) throws AdaptionException {
-        return this.toJson(data).getBytes(StandardCharsets.UTF_8);
+        final ThreadBuffer json = this.writeJson(data);
+        try {
+            return json.toByteArray();
+        } finally {
+            json.release();
+        }
+    }
+
+    /**
+     * Write an {@link Adaptable} as UTF-8 JSON into a reusable buffer, streaming it from Gson
+     * without building an intermediate string. The buffer must be {@link ThreadBuffer#release() released} after use.
+     *
+     * @param data The {@link Adaptable} to write
+     * @param <A>  The type of the {@link Adaptable}
+     * @return the buffer holding the JSON
+     * @throws AdaptionException If an error occurred during adaptation.
+     */
+    @NotNull
+    protected final <A extends Adaptable> ThreadBuffer writeJson(@NotNull A data) throws AdaptionException {
+        final ThreadBuffer buffer = ThreadBuffer.get(JSON_BUFFERS);
+        try {
+            final Writer writer = buffer.writer();
+            plugin.getGson().toJson(data, writer);
+            writer.flush();
+            return buffer;
+        } catch (Throwable e) {
+            buffer.release();
+            throw new AdaptionException("Failed to adapt data to JSON via Gson", e);
+        }
+    }
+
+    /**
+     * Read an {@link Adaptable} from UTF-8 JSON bytes, without building an intermediate string
+     *
+     * @param bytes  The array holding the JSON
+     * @param length The number of bytes of JSON in the array
+     * @param type   The class type of the {@link Adaptable} to adapt to.
+     * @param <A>    The type of the {@link Adaptable}
+     * @return The {@link Adaptable}
+     * @throws AdaptionException If an error occurred during adaptation.
+     */
+    @NotNull
+    protected final <A extends Adaptable> A readJson(byte @NotNull [] bytes, int length,
+                                                     @NotNull Class<A> type) throws AdaptionException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes, 0, length), StandardCharsets.UTF_8)) {
+            return plugin.getGson().fromJson(reader, type);
+        } catch (Throwable e) {
+            throw new AdaptionException("Failed to adapt data from JSON via Gson", e);
+        }
     }
 
     @NotNull
@@ -50,7 +107,7 @@ public class GsonAdapter implements DataAdapter {
     @Override
     @NotNull
     public <A extends Adaptable> A fromBytes(byte[] data, @NotNull Class<A> type) throws AdaptionException {
-        return this.fromJson(new String(data, StandardCharsets.UTF_8), type);
+        return this.readJson(data, data.length, type);
     }
 
     @NotNull
@@ -59,6 +116,19 @@ public class GsonAdapter implements DataAdapter {
         return new String(bytes, StandardCharsets.UTF_8);
     }
 
+    // Decompresses data written while data compression was enabled
+    @Override
+    public byte[] reencode(byte[] bytes) throws AdaptionException {
+        if (!SnappyGsonAdapter.isCompressed(bytes)) {
+            return bytes;
+        }
+        try {
+            return Snappy.uncompress(bytes);
+        } catch (IOException e) {
+            throw new AdaptionException("Failed to decompress data through Snappy", e);
+        }
+    }
+
     @Override
     @NotNull
     public <A extends Adaptable> A fromJson(@NotNull String data, @NotNull Class<A> type) throws AdaptionException {
@@ -24,29 +24,46 @@ import org.jetbrains.annotations.NotNull;
 import org.xerial.snappy.Snappy;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class SnappyGsonAdapter extends GsonAdapter {
 
+    // Buffers data is compressed into, or decompressed into, reused between calls
+    private static final ThreadBuffer.Pool SNAPPY_BUFFERS = ThreadBuffer.pool();
+
     public SnappyGsonAdapter(@NotNull HuskSync plugin) {
         super(plugin);
     }
 
+    // Compresses the JSON straight from the reusable buffer it was written to, so only the result is allocated
     @Override
     public <A extends Adaptable> byte[] toBytes(@NotNull A data) throws AdaptionException {
+        final ThreadBuffer json = writeJson(data);
+        final ThreadBuffer compressed = ThreadBuffer.get(SNAPPY_BUFFERS);
         try {
-            return Snappy.compress(super.toBytes(data));
+            compressed.ensureCapacity(Snappy.maxCompressedLength(json.size()));
+            final int length = Snappy.compress(json.array(), 0, json.size(), compressed.array(), 0);
+            return Arrays.copyOf(compressed.array(), length);
         } catch (IOException e) {
             throw new AdaptionException("Failed to compress data through Snappy", e);
+        } finally {
+            json.release();
+            compressed.release();
         }
     }
 
     @NotNull
     @Override
     public <A extends Adaptable> A fromBytes(byte[] data, @NotNull Class<A> type) throws AdaptionException {
+        final ThreadBuffer decompressed = ThreadBuffer.get(SNAPPY_BUFFERS);
         try {
-            return super.fromBytes(decompressBytes(data), type);
+            decompressed.ensureCapacity(Snappy.uncompressedLength(data));
+            final int length = Snappy.uncompress(data, 0, data.length, decompressed.array(), 0);
+            return readJson(decompressed.array(), length, type);
         } catch (IOException e) {
             throw new AdaptionException("Failed to decompress data through Snappy", e);
+        } finally {
+            decompressed.release();
         }
     }
 
@@ -60,8 +77,39 @@ public class SnappyGsonAdapter extends GsonAdapter {
         }
     }
 
+    // Compresses data written while data compression was disabled
+    @Override
+    public byte[] reencode(byte[] bytes) throws AdaptionException {
+        if (isCompressed(bytes)) {
+            return bytes;
+        }
+        try {
+            return Snappy.compress(bytes);
+        } catch (IOException e) {
+            throw new AdaptionException("Failed to compress data through Snappy", e);
+        }
+    }
+
     private byte[] decompressBytes(byte[] bytes) throws IOException {
         return Snappy.uncompress(bytes);
     }
 
+    /**
+     * Check whether bytes hold Snappy-compressed data, rather than plain JSON
+     *
+     * @param bytes The bytes to check
+     * @return {@code true} if the bytes are compressed
+     * @since 4.0
+     */
+    public static boolean isCompressed(byte[] bytes) {
+        if (bytes.length == 0 || (bytes[0] == '{' && bytes[bytes.length - 1] == '}')) {
+            return false;
+        }
+        try {
+            return Snappy.isValidCompressedBuffer(bytes);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,214 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.adapter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A growable byte buffer that is used by one thread at a time and then reused, so that serializing data doesn't need
+ * to allocate intermediate strings and arrays on every call. Text written through {@link #writer()} is encoded as
+ * UTF-8 straight into the buffer.
+ * <p>
+ * Buffers are taken from a bounded {@link Pool} with {@link #get(Pool)} and must be {@link #release() released} back
+ * to it once their contents have been copied out. Pools are not tied to threads, so no buffers are left behind on
+ * threads that outlive the plugin, and they retain at most one buffer per processor.
+ */
+final class ThreadBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_SIZE = 8192;
+
+    // Buffers that grow larger than this (e.g. for an unusually large snapshot) are not kept for reuse
+    private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    private final Pool pool;
+    private final Utf8Writer writer = new Utf8Writer();
+
+    private ThreadBuffer(@NotNull Pool pool) {
+        super(INITIAL_SIZE);
+        this.pool = pool;
+    }
+
+    /**
+     * Create a new pool of buffers
+     *
+     * @return the buffer pool
+     */
+    @NotNull
+    static Pool pool() {
+        return new Pool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Take a buffer from the pool, emptied and ready for writing
+     *
+     * @param pool the buffer pool
+     * @return the buffer
+     */
+    @NotNull
+    static ThreadBuffer get(@NotNull Pool pool) {
+        final ThreadBuffer buffer = pool.buffers.poll();
+        if (buffer == null) {
+            return new ThreadBuffer(pool);
+        }
+        buffer.reset();
+        buffer.writer.pendingHighSurrogate = 0;
+        return buffer;
+    }
+
+    /**
+     * Get the backing array of this buffer. Only the first {@link #size()} bytes are valid.
+     *
+     * @return the backing array
+     */
+    byte @NotNull [] array() {
+        return buf;
+    }
+
+    /**
+     * Ensure the backing array can hold at least the given number of bytes, for writing into it directly
+     *
+     * @param capacity the number of bytes
+     */
+    void ensureCapacity(int capacity) {
+        if (buf.length < capacity) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+        }
+    }
+
+    /**
+     * Get a writer that encodes text written to it as UTF-8 into this buffer. Closing the writer does nothing.
+     *
+     * @return the writer
+     */
+    @NotNull
+    Writer writer() {
+        return writer;
+    }
+
+    /**
+     * Release this buffer back to its pool after use. It isn't kept if it grew too large, or the pool is full.
+     */
+    void release() {
+        reset();
+        if (buf.length <= MAX_RETAINED_SIZE) {
+            pool.buffers.offer(this);
+        }
+    }
+
+    /**
+     * A bounded pool of buffers for reuse
+     */
+    static final class Pool {
+
+        private final Queue<ThreadBuffer> buffers;
+
+        private Pool(int capacity) {
+            this.buffers = new ArrayBlockingQueue<>(capacity);
+        }
+
+    }
+
+    // Encodes characters as UTF-8 into the buffer without allocating
+    private final class Utf8Writer extends Writer {
+
+        // High surrogate of a pair split across two writes, or 0
+        private char pendingHighSurrogate;
+
+        @Override
+        public void write(int c) {
+            writeChar((char) c);
+        }
+
+        @Override
+        public void write(char @NotNull [] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                writeChar(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(@NotNull String str, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                writeChar(str.charAt(i));
+            }
+        }
+
+        private void writeChar(char c) {
+            if (pendingHighSurrogate != 0) {
+                final char high = pendingHighSurrogate;
+                pendingHighSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    final int codePoint = Character.toCodePoint(high, c);
+                    ensureCapacity(count + 4);
+                    buf[count++] = (byte) (0xF0 | (codePoint >> 18));
+                    buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buf[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                writeReplacement();
+            }
+            if (c < 0x80) {
+                ensureCapacity(count + 1);
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                ensureCapacity(count + 2);
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                writeReplacement();
+            } else {
+                ensureCapacity(count + 3);
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        // Unpaired surrogates are encoded as '?', matching String#getBytes(UTF_8)
+        private void writeReplacement() {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) '?';
+        }
+
+        @Override
+        public void flush() {
+            if (pendingHighSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                writeReplacement();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+
+    }
+
+}
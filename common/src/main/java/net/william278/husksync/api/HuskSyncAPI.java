@@ -26,6 +26,7 @@ import net.william278.husksync.data.Data;
 import net.william278.husksync.data.DataSnapshot;
 import net.william278.husksync.data.Identifier;
 import net.william278.husksync.data.Serializer;
+import net.william278.husksync.database.DatabaseMetrics;
 import net.william278.husksync.sync.DataSyncer;
 import net.william278.husksync.user.OnlineUser;
 import net.william278.husksync.user.User;
@@ -33,11 +34,16 @@ import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * The common implementation of the HuskSync API, containing cross-platform API calls.
@@ -123,6 +129,19 @@ public class HuskSyncAPI {
         return plugin.supplyAsync(() -> plugin.getDatabase().getUserByName(username));
     }
 
+    /**
+     * Get a list of {@link User}s by their UUIDs, fetched from the database in batches.
+     * <p>
+     * UUIDs of users that are not in the database are ignored; the returned list is not ordered.
+     *
+     * @param uuids The UUIDs of the users to get
+     * @return A future containing the users that were found
+     * @since 4.0
+     */
+    public CompletableFuture<List<User>> getUsers(@NotNull Collection<UUID> uuids) {
+        return plugin.supplyAsync(() -> plugin.getDatabase().getUsers(uuids));
+    }
+
     /**
      * Create a new data snapshot of an {@link OnlineUser}'s data.
      *
@@ -225,6 +244,10 @@ public class HuskSyncAPI {
 
     /**
      * Edit a data snapshot for a user
+     * <p>
+     * The edited snapshot is only written back if the user's data has not been written to in the meantime;
+     * otherwise, the snapshot is re-read and the editor is run again on it. The editor may therefore be called
+     * more than once, so it should not have side effects beyond editing the snapshot it is given.
      *
      * @param user      The user to edit the snapshot of
      * @param versionId The version ID of the snapshot to edit
@@ -233,10 +256,9 @@ public class HuskSyncAPI {
      */
     public void editSnapshot(@NotNull User user, @NotNull UUID versionId,
                              @NotNull ThrowingConsumer<DataSnapshot.Unpacked> editor) {
-        plugin.runAsync(() -> plugin.getDatabase().getSnapshot(user, versionId).ifPresent(snapshot -> {
-            final DataSnapshot.Unpacked unpacked = snapshot.unpack(plugin);
-            editor.accept(unpacked);
-            plugin.getDatabase().updateSnapshot(user, unpacked.pack(plugin));
+        plugin.runAsync(() -> plugin.getDatabase().editSnapshot(user, versionId, snapshot -> {
+            snapshot.edit(plugin, editor::accept);
+            return true;
         }));
     }
 
@@ -257,21 +279,124 @@ public class HuskSyncAPI {
         );
     }
 
+    /**
+     * Get the latest data snapshots saved in the database for a collection of users, fetched in batches.
+     * <p>
+     * Users without any saved data will not have an entry in the returned map.
+     *
+     * @param users The users to get the latest data snapshots of
+     * @return A future containing a map of user UUIDs to their latest data snapshot
+     * @since 4.0
+     */
+    public CompletableFuture<Map<UUID, DataSnapshot.Unpacked>> getLatestSnapshots(@NotNull Collection<User> users) {
+        return plugin.supplyAsync(() -> {
+            final Map<UUID, DataSnapshot.Unpacked> unpacked = new HashMap<>();
+            plugin.getDatabase().getLatestSnapshots(users)
+                    .forEach((uuid, snapshot) -> unpacked.put(uuid, snapshot.unpack(plugin)));
+            return unpacked;
+        });
+    }
+
+    /**
+     * Iterate over the latest saved data snapshot of every user in the database.
+     * <p>
+     * Users are read a page at a time, so this can be used on large databases without loading every snapshot
+     * into memory at once. The consumer is called off the main thread.
+     *
+     * @param consumer  The consumer to call with each user and their latest data snapshot
+     * @param batchSize The number of users to fetch from the database per page
+     * @return A future that completes once every user has been iterated over
+     * @throws IllegalArgumentException if the batch size is not positive
+     * @since 4.0
+     */
+    public CompletableFuture<Void> forEachLatestSnapshot(@NotNull BiConsumer<User, DataSnapshot.Unpacked> consumer,
+                                                         int batchSize) throws IllegalArgumentException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, but was " + batchSize);
+        }
+        return plugin.supplyAsync(() -> {
+            plugin.getDatabase().forEachLatestSnapshot(
+                    (user, snapshot) -> consumer.accept(user, snapshot.unpack(plugin)), batchSize
+            );
+            return null;
+        });
+    }
+
     /**
      * Edit the latest data snapshot for a user
+     * <p>
+     * The edited snapshot is only written back if the user's data has not been written to in the meantime;
+     * otherwise, the latest snapshot is re-read and the editor is run again on it. The editor may therefore be
+     * called more than once, so it should not have side effects beyond editing the snapshot it is given.
      *
      * @param user   The user to edit the latest snapshot of
      * @param editor The editor function
      * @since 3.0
      */
     public void editLatestSnapshot(@NotNull User user, @NotNull ThrowingConsumer<DataSnapshot.Unpacked> editor) {
-        plugin.runAsync(() -> plugin.getDatabase().getLatestSnapshot(user).ifPresent(snapshot -> {
-            final DataSnapshot.Unpacked unpacked = snapshot.unpack(plugin);
-            editor.accept(unpacked);
-            plugin.getDatabase().updateSnapshot(user, unpacked.pack(plugin));
+        plugin.runAsync(() -> plugin.getDatabase().editLatestSnapshot(user, snapshot -> {
+            snapshot.edit(plugin, editor::accept);
+            return true;
         }));
     }
 
+    /**
+     * Edit a single data type in the latest data snapshot for a user.
+     * <p>
+     * Unlike {@link #editLatestSnapshot(User, ThrowingConsumer)}, only the data type with the given identifier
+     * is deserialized, edited and re-serialized. The edited snapshot is only written back if the user's data has
+     * not been written to in the meantime; otherwise, the edit is retried against the updated latest snapshot, so
+     * the editor may be called more than once.
+     *
+     * @param user       The user to edit the latest snapshot of
+     * @param identifier The identifier of the data type to edit
+     * @param editor     The editor function, accepting the data type registered for the identifier
+     * @param <T>        The type of data to edit
+     * @return A future containing {@code true} if the data was edited, or {@code false} if the user has no
+     * saved data, the snapshot doesn't hold the data type, or the edit kept conflicting with concurrent writes
+     * @since 4.0
+     */
+    public <T extends Data> CompletableFuture<Boolean> editLatestSnapshotData(@NotNull User user,
+                                                                             @NotNull Identifier identifier,
+                                                                             @NotNull Consumer<T> editor) {
+        return plugin.supplyAsync(
+                () -> plugin.getDatabase().editLatestSnapshot(user, editData(identifier, editor))
+        );
+    }
+
+    /**
+     * Edit a single data type in a data snapshot for a user.
+     * <p>
+     * Unlike {@link #editSnapshot(User, UUID, ThrowingConsumer)}, only the data type with the given identifier
+     * is deserialized, edited and re-serialized. The edited snapshot is only written back if the user's data has
+     * not been written to in the meantime; otherwise, the edit is retried against the re-read snapshot, so the
+     * editor may be called more than once.
+     *
+     * @param user       The user to edit the snapshot of
+     * @param versionId  The version ID of the snapshot to edit
+     * @param identifier The identifier of the data type to edit
+     * @param editor     The editor function, accepting the data type registered for the identifier
+     * @param <T>        The type of data to edit
+     * @return A future containing {@code true} if the data was edited, or {@code false} if the snapshot doesn't
+     * exist, doesn't hold the data type, or the edit kept conflicting with concurrent writes
+     * @since 4.0
+     */
+    public <T extends Data> CompletableFuture<Boolean> editSnapshotData(@NotNull User user, @NotNull UUID versionId,
+                                                                       @NotNull Identifier identifier,
+                                                                       @NotNull Consumer<T> editor) {
+        return plugin.supplyAsync(
+                () -> plugin.getDatabase().editSnapshot(user, versionId, editData(identifier, editor))
+        );
+    }
+
+    // Edit one data type in a snapshot, without unpacking the rest of it
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private <T extends Data> Predicate<DataSnapshot.Packed> editData(@NotNull Identifier identifier,
+                                                                    @NotNull Consumer<T> editor) {
+        return snapshot -> snapshot.editData(plugin, identifier, data -> editor.accept((T) data));
+    }
+
     /**
      * Adds a data snapshot to the database
      *
@@ -445,6 +570,9 @@ public class HuskSyncAPI {
 
     /**
      * Get the estimated size of a {@link DataSnapshot} in bytes
+     * <p>
+     * For packed snapshots read from or saved to the database, this is the size recorded when the snapshot was read
+     * or written, so the snapshot doesn't need to be packed again to get it.
      *
      * @param snapshot The snapshot to get the size of
      * @return The size of the snapshot in bytes
@@ -498,6 +626,18 @@ public class HuskSyncAPI {
         return plugin.getDataAdapter().toJson(element);
     }
 
+    /**
+     * Get the metrics recorded for the database, including how long each named query takes to run and, for
+     * MySQL, MariaDB and PostgreSQL databases, the state of the connection pool
+     *
+     * @return The database metrics
+     * @since 4.0
+     */
+    @NotNull
+    public DatabaseMetrics getDatabaseMetrics() {
+        return plugin.getDatabase().getMetrics();
+    }
+
     /**
      * Set the {@link DataSyncer} to be used to sync data
      *
@@ -41,7 +41,7 @@ public class EnderChestCommand extends ItemsCommand {
 
     @Override
     protected void showItems(@NotNull OnlineUser viewer, @NotNull DataSnapshot.Unpacked snapshot,
-                             @NotNull User user, boolean allowEdit) {
+                             @NotNull User user, long revision, boolean allowEdit) {
         final Optional<Data.Items.EnderChest> optionalEnderChest = snapshot.getEnderChest();
         if (optionalEnderChest.isEmpty()) {
             plugin.getLocales().getLocale("error_no_data_to_display")
@@ -65,7 +65,7 @@ public class EnderChestCommand extends ItemsCommand {
                 enderChest.getSlotCount(),
                 (itemsOnClose) -> {
                     if (allowEdit && !enderChest.equals(itemsOnClose)) {
-                        plugin.runAsync(() -> this.updateItems(viewer, itemsOnClose, user));
+                        plugin.runAsync(() -> this.updateItems(viewer, itemsOnClose, user, revision));
                     }
                 }
         );
@@ -73,7 +73,8 @@ public class EnderChestCommand extends ItemsCommand {
 
     // Creates a new snapshot with the updated enderChest
     @SuppressWarnings("DuplicatedCode")
-    private void updateItems(@NotNull OnlineUser viewer, @NotNull Data.Items.Items items, @NotNull User holder) {
+    private void updateItems(@NotNull OnlineUser viewer, @NotNull Data.Items.Items items, @NotNull User holder,
+                             long revision) {
         final Optional<DataSnapshot.Packed> latestData = plugin.getDatabase().getLatestSnapshot(holder);
         if (latestData.isEmpty()) {
             plugin.getLocales().getLocale("error_no_data_to_display")
@@ -81,21 +82,28 @@ public class EnderChestCommand extends ItemsCommand {
             return;
         }
 
-        // Create and pack the snapshot with the updated enderChest
-        final DataSnapshot.Packed snapshot = latestData.get().copy();
+        // Save data, re-applying the updated enderChest to the latest snapshot if it changed since the menu was opened
+        final RedisManager redis = plugin.getRedisManager();
+        plugin.getDataSyncer().saveData(
+                holder, withItems(latestData.get(), items), revision, (latest) -> withItems(latest, items),
+                (user, data) -> {
+                    redis.getUserData(user).ifPresent(d -> redis.setUserData(user, data));
+                    redis.sendUserDataUpdate(user, data);
+                }
+        );
+    }
+
+    // Create and pack a copy of the snapshot with the updated enderChest
+    @NotNull
+    private DataSnapshot.Packed withItems(@NotNull DataSnapshot.Packed latest, @NotNull Data.Items.Items items) {
+        final DataSnapshot.Packed snapshot = latest.copy();
         boolean pin = plugin.getSettings().getSynchronization().doAutoPin(saveCause);
         snapshot.edit(plugin, (data) -> {
             data.getEnderChest().ifPresent(enderChest -> enderChest.setContents(items));
             data.setSaveCause(saveCause);
             data.setPinned(pin);
         });
-
-        // Save data
-        final RedisManager redis = plugin.getRedisManager();
-        plugin.getDataSyncer().saveData(holder, snapshot, (user, data) -> {
-            redis.getUserData(user).ifPresent(d -> redis.setUserData(user, snapshot));
-            redis.sendUserDataUpdate(user, data);
-        });
+        return snapshot;
     }
 
 }
@@ -29,11 +29,10 @@ import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 import net.william278.desertwell.util.UpdateChecker;
 import net.william278.husksync.HuskSync;
-import net.william278.husksync.data.DataSnapshot;
-import net.william278.husksync.database.Database;
 import net.william278.husksync.migrator.Migrator;
 import net.william278.husksync.user.CommandUser;
-import net.william278.husksync.util.LegacyConverter;
+import net.william278.husksync.util.DataArchiver;
+import net.william278.husksync.util.DataReencoder;
 import net.william278.husksync.util.StatusLine;
 import net.william278.uniform.BaseCommand;
 import net.william278.uniform.CommandProvider;
@@ -41,10 +40,10 @@ import net.william278.uniform.Permission;
 import net.william278.uniform.element.ArgumentElement;
 import org.jetbrains.annotations.NotNull;
 
-import java.time.OffsetDateTime;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -157,7 +156,10 @@ public class HuskSyncCommand extends PluginCommand {
         command.addSubCommand("reload", needsOp("reload"), reload());
         command.addSubCommand("update", needsOp("update"), update());
         command.addSubCommand("forceupgrade", forceUpgrade());
+        command.addSubCommand("reencode", reencode());
         command.addSubCommand("migrate", migrate());
+        command.addSubCommand("export", exportArchive());
+        command.addSubCommand("import", importArchive());
     }
 
     private void about(@NotNull BaseCommand<?> c, @NotNull CommandContext<?> ctx) {
@@ -169,10 +171,12 @@ public class HuskSyncCommand extends PluginCommand {
         return (sub) -> sub.setDefaultExecutor((ctx) -> {
             final CommandUser user = user(sub, ctx);
             plugin.getLocales().getLocale("system_status_header").ifPresent(user::sendMessage);
-            user.sendMessage(Component.join(
+
+            // Status lines query the database and Redis (including scanning Redis keys), so build them off-thread
+            plugin.runAsync(() -> user.sendMessage(Component.join(
                     JoinConfiguration.newlines(),
                     Arrays.stream(StatusLine.values()).map(s -> s.get(plugin)).toList()
-            ));
+            )));
         });
     }
 
@@ -267,31 +271,74 @@ public class HuskSyncCommand extends PluginCommand {
     private CommandProvider forceUpgrade() {
         return (sub) -> {
             sub.setCondition((ctx) -> sub.getUser(ctx).isConsole());
-            sub.setDefaultExecutor((ctx) -> {
-                final LegacyConverter converter = plugin.getLegacyConverter().orElse(null);
-                if (converter == null) {
-                    return;
+            sub.setDefaultExecutor((ctx) -> plugin.runAsync(() -> {
+                try {
+                    plugin.log(Level.INFO, "Upgrading outdated snapshots of all users to the current format...");
+                    plugin.getDatabase().getUpgrader().upgradeAll();
+                } catch (Throwable e) {
+                    plugin.log(Level.SEVERE, "Failed to upgrade snapshots; run the command again to resume", e);
                 }
+            }));
+        };
+    }
 
-                plugin.runAsync(() -> {
-                    final Database database = plugin.getDatabase();
-                    plugin.log(Level.INFO, "Beginning forced legacy data upgrade for all users...");
-                    database.getAllUsers().forEach(user -> database.getLatestSnapshot(user).ifPresent(snapshot -> {
-                        final DataSnapshot.Packed upgraded = converter.convert(
-                                snapshot.asBytes(plugin),
-                                UUID.randomUUID(),
-                                OffsetDateTime.now()
-                        );
-                        upgraded.setSaveCause(DataSnapshot.SaveCause.CONVERTED_FROM_V2);
-                        plugin.getDatabase().addSnapshot(user, upgraded);
-                        plugin.getRedisManager().clearUserData(user);
-                    }));
-                    plugin.log(Level.INFO, "Legacy data upgrade complete!");
-                });
-            });
+    @NotNull
+    private CommandProvider reencode() {
+        return (sub) -> {
+            sub.setCondition((ctx) -> sub.getUser(ctx).isConsole());
+            sub.setDefaultExecutor((ctx) -> plugin.runAsync(() -> {
+                try {
+                    plugin.log(Level.INFO, "Re-encoding all snapshots and maps to the current data format...");
+                    new DataReencoder(plugin).reencodeAll();
+                } catch (Throwable e) {
+                    plugin.log(Level.SEVERE, "Failed to re-encode data; run the command again to resume", e);
+                }
+            }));
+        };
+    }
+
+    @NotNull
+    private CommandProvider exportArchive() {
+        return (sub) -> {
+            sub.setCondition((ctx) -> sub.getUser(ctx).isConsole());
+            sub.setDefaultExecutor((ctx) -> runArchiver("export_%s".formatted(
+                    DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss").format(LocalDateTime.now())), true
+            ));
+            sub.addSyntax((ctx) -> runArchiver(ctx.getArgument("name", String.class), true),
+                    BaseCommand.word("name"));
         };
     }
 
+    @NotNull
+    private CommandProvider importArchive() {
+        return (sub) -> {
+            sub.setCondition((ctx) -> sub.getUser(ctx).isConsole());
+            sub.setDefaultExecutor((ctx) -> plugin.log(Level.INFO,
+                    "Usage: husksync import <name> - imports an archive from the archives folder"));
+            sub.addSyntax((ctx) -> runArchiver(ctx.getArgument("name", String.class), false),
+                    BaseCommand.word("name"));
+        };
+    }
+
+    private void runArchiver(@NotNull String name, boolean export) {
+        plugin.runAsync(() -> {
+            try {
+                final DataArchiver archiver = DataArchiver.create(plugin, name);
+                if (export) {
+                    plugin.log(Level.INFO, "Exporting all user data to archive %s...".formatted(name));
+                    archiver.exportAll();
+                } else {
+                    plugin.log(Level.INFO, "Importing user data from archive %s. Players' cached data on Redis "
+                            .formatted(name) + "won't be updated, so run this while no players are online");
+                    archiver.importAll();
+                }
+            } catch (Throwable e) {
+                plugin.log(Level.SEVERE, "Failed to %s archive %s; run the command again to resume"
+                        .formatted(export ? "export" : "import", name), e);
+            }
+        });
+    }
+
     @NotNull
     private <S> ArgumentElement<S, Migrator> migrator() {
         return new ArgumentElement<>("migrator", reader -> {
@@ -41,7 +41,7 @@ public class InventoryCommand extends ItemsCommand {
 
     @Override
     protected void showItems(@NotNull OnlineUser viewer, @NotNull DataSnapshot.Unpacked snapshot,
-                             @NotNull User user, boolean allowEdit) {
+                             @NotNull User user, long revision, boolean allowEdit) {
         final Optional<Data.Items.Inventory> optionalInventory = snapshot.getInventory();
         if (optionalInventory.isEmpty()) {
             plugin.getLocales().getLocale("error_no_data_to_display")
@@ -65,7 +65,7 @@ public class InventoryCommand extends ItemsCommand {
                 inventory.getSlotCount(),
                 (itemsOnClose) -> {
                     if (allowEdit && !inventory.equals(itemsOnClose)) {
-                        plugin.runAsync(() -> this.updateItems(viewer, itemsOnClose, user));
+                        plugin.runAsync(() -> this.updateItems(viewer, itemsOnClose, user, revision));
                     }
                 }
         );
@@ -73,7 +73,8 @@ public class InventoryCommand extends ItemsCommand {
 
     // Creates a new snapshot with the updated inventory
     @SuppressWarnings("DuplicatedCode")
-    private void updateItems(@NotNull OnlineUser viewer, @NotNull Data.Items.Items items, @NotNull User holder) {
+    private void updateItems(@NotNull OnlineUser viewer, @NotNull Data.Items.Items items, @NotNull User holder,
+                             long revision) {
         final Optional<DataSnapshot.Packed> latestData = plugin.getDatabase().getLatestSnapshot(holder);
         if (latestData.isEmpty()) {
             plugin.getLocales().getLocale("error_no_data_to_display")
@@ -81,21 +82,28 @@ public class InventoryCommand extends ItemsCommand {
             return;
         }
 
-        // Create and pack the snapshot with the updated inventory
-        final DataSnapshot.Packed snapshot = latestData.get().copy();
+        // Save data, re-applying the updated inventory to the latest snapshot if it changed since the menu was opened
+        final RedisManager redis = plugin.getRedisManager();
+        plugin.getDataSyncer().saveData(
+                holder, withItems(latestData.get(), items), revision, (latest) -> withItems(latest, items),
+                (user, data) -> {
+                    redis.getUserData(user).ifPresent(d -> redis.setUserData(user, data));
+                    redis.sendUserDataUpdate(user, data);
+                }
+        );
+    }
+
+    // Create and pack a copy of the snapshot with the updated inventory
+    @NotNull
+    private DataSnapshot.Packed withItems(@NotNull DataSnapshot.Packed latest, @NotNull Data.Items.Items items) {
+        final DataSnapshot.Packed snapshot = latest.copy();
         boolean pin = plugin.getSettings().getSynchronization().doAutoPin(saveCause);
         snapshot.edit(plugin, (data) -> {
             data.getInventory().ifPresent(inventory -> inventory.setContents(items));
             data.setSaveCause(saveCause);
             data.setPinned(pin);
         });
-
-        // Save data
-        final RedisManager redis = plugin.getRedisManager();
-        plugin.getDataSyncer().saveData(holder, snapshot, (user, data) -> {
-            redis.getUserData(user).ifPresent(d -> redis.setUserData(user, snapshot));
-            redis.sendUserDataUpdate(user, data);
-        });
+        return snapshot;
     }
 
 }
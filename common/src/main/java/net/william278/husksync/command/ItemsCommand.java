@@ -67,8 +67,10 @@ public abstract class ItemsCommand extends PluginCommand {
         }, user("username"));
     }
 
-    // View (and edit) the latest user data
+    // View (and edit) the latest user data; the revision is read first, so edits made on close conflict with any
+    // save made while the menu was open
     private void showLatestItems(@NotNull OnlineUser viewer, @NotNull User user) {
+        final long revision = plugin.getDatabase().getRevision(user);
         plugin.getRedisManager().getOnlineUserData(user.getUuid(), user, saveCause).thenAccept(d -> d
                 .or(() -> plugin.getDatabase().getLatestSnapshot(user))
                 .or(() -> {
@@ -85,12 +87,13 @@ public abstract class ItemsCommand extends PluginCommand {
                     return Optional.of(packed.unpack(plugin));
                 })
                 .ifPresent(snapshot -> this.showItems(
-                        viewer, snapshot, user, viewer.hasPermission(getPermission("edit"))
+                        viewer, snapshot, user, revision, viewer.hasPermission(getPermission("edit"))
                 )));
     }
 
     // View a specific version of the user data
     private void showSnapshotItems(@NotNull OnlineUser viewer, @NotNull User user, @NotNull UUID version) {
+        final long revision = plugin.getDatabase().getRevision(user);
         plugin.getDatabase().getSnapshot(user, version)
                 .or(() -> {
                     plugin.getLocales().getLocale("error_invalid_version_uuid")
@@ -106,12 +109,12 @@ public abstract class ItemsCommand extends PluginCommand {
                     return Optional.of(packed.unpack(plugin));
                 })
                 .ifPresent(snapshot -> this.showItems(
-                        viewer, snapshot, user, false
+                        viewer, snapshot, user, revision, false
                 ));
     }
 
-    // Show a GUI menu with the correct item data from the snapshot
+    // Show a GUI menu with the correct item data from the snapshot, read at the given revision of the user
     protected abstract void showItems(@NotNull OnlineUser viewer, @NotNull DataSnapshot.Unpacked snapshot,
-                                      @NotNull User user, boolean allowEdit);
+                                      @NotNull User user, long revision, boolean allowEdit);
 
 }
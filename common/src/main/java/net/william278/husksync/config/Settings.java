@@ -124,6 +124,24 @@ public class Settings {
             private long connectionTimeout = 5000;
         }
 
+        @Comment("Settings for logging slow database queries. Timings are shown in /husksync status")
+        private SlowQuerySettings slowQueries = new SlowQuerySettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class SlowQuerySettings {
+            @Comment("Whether to log a warning when a query or a wait for a pooled connection exceeds its threshold")
+            private boolean enabled = true;
+
+            @Comment("Milliseconds a query can take to run before it is logged as slow (Use 0 to disable)")
+            private long thresholdMillis = 500;
+
+            @Comment({"Milliseconds a query can wait for a free pooled connection before it is logged (Use 0 to disable).",
+                    "Frequent waits mean the connection pool is too small. Only applies to MYSQL, MARIADB and POSTGRES"})
+            private long connectionWaitThresholdMillis = 250;
+        }
+
         @Comment("Advanced MongoDB settings. Don't modify unless you know what you're doing!")
         private MongoSettings mongoSettings = new MongoSettings();
 
@@ -137,6 +155,79 @@ public class Settings {
                     "authSource=HuskSync");
         }
 
+        @Comment("Settings for exporting and importing data archives with /husksync export and /husksync import")
+        private ArchiveSettings archives = new ArchiveSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class ArchiveSettings {
+            @Comment("Number of threads to read or write users' data with. Keep below your connection pool size")
+            private int workers = 4;
+
+            @Comment("Number of users to write per compressed chunk of an archive (progress is saved after each chunk)")
+            private int usersPerChunk = 100;
+        }
+
+        @Comment({"Settings for upgrading snapshots saved on older Minecraft versions or in legacy formats, so their data",
+                "isn't converted every time it's read. Run /husksync forceupgrade to upgrade all snapshots at once"})
+        private UpgradeSettings upgrades = new UpgradeSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class UpgradeSettings {
+            @Comment({"Whether to write outdated snapshots back to the database in the current format when they're",
+                    "applied to a player. Pinned snapshots are never rewritten"})
+            private boolean upgradeOnRead = false;
+
+            @Comment("Number of users to upgrade the snapshots of at a time with /husksync forceupgrade")
+            private int usersPerBatch = 100;
+        }
+
+        @Comment({"Settings for re-encoding all stored snapshots and maps to the current data format with /husksync reencode",
+                "(e.g. after changing compress_data). Progress is saved after each batch, so it can be resumed"})
+        private ReencodeSettings reencode = new ReencodeSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class ReencodeSettings {
+            @Comment("Number of threads to re-encode and write rows with. Keep below your connection pool size")
+            private int workers = 2;
+
+            @Comment("Number of rows to read, re-encode and write back at a time")
+            private int batchSize = 200;
+
+            @Comment("Maximum rows to re-encode per second, to limit load on a live database (Use 0 for no limit)")
+            private int rowsPerSecond = 0;
+        }
+
+        @Comment({"Settings for moving your data to another database (e.g. from MySQL to MongoDB) without downtime.",
+                "When enabled, every write is also made to this database; then copy existing data with the "
+                + "'database' migrator.", "Docs: https://william278.net/docs/husksync/database-migration"})
+        private MirrorSettings mirror = new MirrorSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class MirrorSettings {
+            @Comment("Whether to write data to the target database as well. Enable this on every server before migrating")
+            private boolean enabled = false;
+
+            @Comment("Type of the database to migrate to (MYSQL, MARIADB, POSTGRES, MONGO)")
+            private Database.Type type = Database.Type.MONGO;
+
+            @Comment("Credentials of the database to migrate to")
+            private DatabaseCredentials credentials = new DatabaseCredentials();
+
+            @Comment("Advanced MongoDB settings for the database to migrate to, if it is a MongoDB database")
+            private MongoSettings mongoSettings = new MongoSettings();
+
+            @Comment("Number of threads the 'database' migrator copies users' data with. Keep below your connection pool size")
+            private int migrationWorkers = 4;
+        }
+
         @Comment("Names of tables to use on your database. Don't modify this unless you know what you're doing!")
         @Getter(AccessLevel.NONE)
         private Map<String, String> tableNames = Database.TableName.getDefaults();
@@ -148,6 +239,28 @@ public class Settings {
         public String getTableName(@NotNull Database.TableName tableName) {
             return tableNames.getOrDefault(tableName.name().toLowerCase(Locale.ENGLISH), tableName.getDefaultName());
         }
+
+        /**
+         * Get the connection settings of the database to migrate to, as configured in the {@link MirrorSettings}.
+         * The target database uses the same connection pool settings and table names as this database.
+         *
+         * @return the target database settings
+         */
+        @NotNull
+        public DatabaseSettings getMirrorTarget() {
+            final DatabaseSettings target = new DatabaseSettings();
+            target.type = mirror.type;
+            target.credentials = mirror.credentials;
+            target.connectionPool = connectionPool;
+            target.slowQueries = slowQueries;
+            target.mongoSettings = mirror.mongoSettings;
+            target.archives = archives;
+            target.upgrades = upgrades;
+            target.reencode = reencode;
+            target.tableNames = tableNames;
+            target.createTables = true;
+            return target;
+        }
     }
 
     // Redis settings
@@ -229,6 +342,52 @@ public class Settings {
             private String password = "";
         }
 
+        @Comment("Options for if you're using a Redis Cluster. Leave the nodes empty to connect to a single server")
+        private RedisCluster cluster = new RedisCluster();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class RedisCluster {
+            @Comment("List of host:port pairs of (some of) the cluster's nodes. The rest are discovered automatically")
+            private List<String> nodes = Lists.newArrayList();
+
+            @Comment({"Whether to publish messages with sharded pub/sub (requires Redis 7+), spreading them across",
+                    "the cluster's shards rather than broadcasting every message to every node"})
+            private boolean shardedPubSub = true;
+
+            @Comment("Max attempts for a command, e.g. while the cluster is failing over or resharding")
+            private int maxAttempts = 5;
+        }
+
+        @Comment("Settings for how long data is cached on Redis, and how much memory it can use")
+        private RedisCacheSettings cache = new RedisCacheSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class RedisCacheSettings {
+            @Comment({"Seconds to keep a user's latest data on Redis for handing off to the next server they join.",
+                    "The database holds their data too, so this can be short (Default: 1 hour)"})
+            private int snapshotTtlSeconds = 60 * 60;
+
+            @Comment({"Seconds to keep map data on Redis after it was last read or written. Reading a map resets this,",
+                    "so maps in use stay cached while unused ones expire (Default: 30 days)"})
+            private int mapTtlSeconds = 60 * 60 * 24 * 30;
+
+            @Comment({"Max megabytes of user and map data to keep on Redis (Use 0 for no limit). When this is exceeded,",
+                    "the entries that have gone unused the longest are evicted first"})
+            private int memoryBudgetMegabytes = 0;
+
+            @Comment("Seconds between checks of the memory budget, if one is set")
+            private int memoryCheckIntervalSeconds = 300;
+        }
+
+        @Comment({"Whether to send messages between servers as compact binary frames rather than JSON. Servers",
+                "running HuskSync before v4.0 can't read binary frames, so only enable this once every server on the",
+                "cluster has been updated"})
+        private boolean binaryMessages = false;
+
     }
 
     // Synchronization settings
@@ -264,6 +423,54 @@ public class Settings {
         @Comment("Whether to create a snapshot for users on a world when the server saves that world")
         private boolean saveOnWorldSave = true;
 
+        @Comment("Configuration for spreading out the snapshots taken when the server saves a world")
+        private WorldSaveSettings worldSave = new WorldSaveSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class WorldSaveSettings {
+            @Comment({"Seconds over which to spread out snapshots when a world saves. Each player is saved at a random",
+                    "point in this window. Use 0 to save all players as soon as the world saves"})
+            private int windowSeconds = 30;
+
+            @Comment("Max number of players to snapshot per server tick when a world saves (Use 0 for no limit)")
+            private int maxSavesPerTick = 4;
+        }
+
+        @Comment("Configuration for skipping saves of players whose data hasn't changed since it was last synced or saved")
+        private SkipUnchangedSettings skipUnchanged = new SkipUnchangedSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class SkipUnchangedSettings {
+            @Comment({"Whether to skip writing a snapshot to the database if a player's data is unchanged.",
+                    "Redis is still updated with their current data"})
+            private boolean enabled = true;
+
+            @Comment("List of save cause IDs for which a snapshot will not be written if the player's data is unchanged")
+            @Getter(AccessLevel.NONE)
+            private List<String> saveCauses = List.of(
+                    DataSnapshot.SaveCause.WORLD_SAVE.name(),
+                    DataSnapshot.SaveCause.DISCONNECT.name(),
+                    DataSnapshot.SaveCause.SERVER_SHUTDOWN.name()
+            );
+
+            @Comment({"Data types that don't count as changed on their own (e.g. statistics, as play time always rises).",
+                    "Changes to these are still saved when other data has changed, or when the player disconnects"})
+            @Getter(AccessLevel.NONE)
+            private List<String> ignoredDataTypes = List.of("statistics");
+
+            public boolean doSkip(@NotNull DataSnapshot.SaveCause cause) {
+                return enabled && saveCauses.contains(cause.name());
+            }
+
+            public boolean isIgnoredDataType(@NotNull String key) {
+                return ignoredDataTypes.contains(key);
+            }
+        }
+
         @Comment("Configuration for how and when to sync player data when they die")
         private SaveOnDeathSettings saveOnDeath = new SaveOnDeathSettings();
 
@@ -299,6 +506,10 @@ public class Settings {
         @Comment("Where to display sync notifications (ACTION_BAR, CHAT or NONE)")
         private Locales.NotificationSlot notificationDisplaySlot = Locales.NotificationSlot.ACTION_BAR;
 
+        @Comment({"Max milliseconds per server tick to spend applying a player's data when they sync. If applying takes",
+                "longer, the remaining data types are applied over the next ticks. Use 0 to always apply in one tick"})
+        private int applyTickBudgetMillis = 10;
+
         @Comment("Persist maps locked in a Cartography Table to let them be viewed on any server")
         private boolean persistLockedMaps = true;
 
@@ -306,6 +517,57 @@ public class Settings {
                  + "pulling data from the database instead (i.e., if the user did not change servers).")
         private int networkLatencyMilliseconds = 500;
 
+        @Comment("Configuration for queueing user data loads when many players join at once (e.g. after a restart)")
+        private LoadQueueSettings loadQueue = new LoadQueueSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class LoadQueueSettings {
+            @Comment("Whether to limit how many players can have their data loaded on this server at once")
+            private boolean enabled = true;
+
+            @Comment({"Max number of players whose data can be loading at once on this server.",
+                    "Use 0 to use the size of the smaller of the database and Redis connection pools"})
+            private int maxConcurrentLoads = 0;
+
+            @Comment("Seconds after which a load that hasn't finished frees its slot for the next player (0 to disable)")
+            private int loadTimeoutSeconds = 30;
+        }
+
+        @Comment({"Configuration for prefetching data for players about to join this server.",
+                "Requires a proxy plugin that publishes prefetch intents when a player connects to a server"})
+        private PrefetchSettings prefetch = new PrefetchSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class PrefetchSettings {
+            @Comment("Whether to fetch and unpack a player's data when a prefetch intent for them is received")
+            private boolean enabled = true;
+
+            @Comment("How many seconds data prefetched from the database stays valid for while waiting for the player")
+            private int maxAgeSeconds = 10;
+        }
+
+        @Comment("Configuration for saving the data of online players when the server shuts down")
+        private ShutdownSaveSettings shutdownSave = new ShutdownSaveSettings();
+
+        @Getter
+        @Configuration
+        @NoArgsConstructor(access = AccessLevel.PRIVATE)
+        public static class ShutdownSaveSettings {
+            @Comment("Max number of threads to serialize and save players' data on at once")
+            private int threads = 4;
+
+            @Comment("Number of players whose data is saved to the database in each batch")
+            private int batchSize = 25;
+
+            @Comment({"Seconds to wait for all players' data to be saved before giving up and logging the players whose",
+                    "data wasn't saved. Keep this below the shutdown grace period of your server platform"})
+            private int deadlineSeconds = 20;
+        }
+
         @Comment({"Which data types to synchronize.", "Docs: https://william278.net/docs/husksync/sync-features"})
         @Getter(AccessLevel.NONE)
         private Map<String, Boolean> features = Identifier.getConfigMap();
@@ -260,17 +260,62 @@ public interface Data {
      * Data container holding data for statistics
      */
     interface Statistics extends Data {
+
+        /**
+         * Get the untyped statistics
+         *
+         * @return the table of untyped statistics
+         * @since 4.0
+         */
         @NotNull
-        Map<String, Integer> getGenericStatistics();
+        StatisticTable getGenericTable();
 
+        /**
+         * Get the statistics counted for blocks
+         *
+         * @return the table of block statistics
+         * @since 4.0
+         */
         @NotNull
-        Map<String, Map<String, Integer>> getBlockStatistics();
+        StatisticTable getBlockTable();
 
+        /**
+         * Get the statistics counted for items
+         *
+         * @return the table of item statistics
+         * @since 4.0
+         */
         @NotNull
-        Map<String, Map<String, Integer>> getItemStatistics();
+        StatisticTable getItemTable();
 
+        /**
+         * Get the statistics counted for entities
+         *
+         * @return the table of entity statistics
+         * @since 4.0
+         */
         @NotNull
-        Map<String, Map<String, Integer>> getEntityStatistics();
+        StatisticTable getEntityTable();
+
+        @NotNull
+        default Map<String, Integer> getGenericStatistics() {
+            return getGenericTable().toUntypedMap();
+        }
+
+        @NotNull
+        default Map<String, Map<String, Integer>> getBlockStatistics() {
+            return getBlockTable().toTypedMap();
+        }
+
+        @NotNull
+        default Map<String, Map<String, Integer>> getItemStatistics() {
+            return getItemTable().toTypedMap();
+        }
+
+        @NotNull
+        default Map<String, Map<String, Integer>> getEntityStatistics() {
+            return getEntityTable().toTypedMap();
+        }
     }
 
     /**
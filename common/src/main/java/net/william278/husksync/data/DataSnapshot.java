@@ -39,9 +39,11 @@ import org.jetbrains.annotations.Nullable;
 
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 /**
  * A snapshot of a {@link DataHolder} at a given time.
@@ -54,9 +56,9 @@ public class DataSnapshot {
 
     /*
      * Current version of the snapshot data format.
-     * HuskSync v3.1 uses v5, v3.0 uses v4; v2.0 uses v1-v3
+     * HuskSync v4.0 uses v6 (binary statistics), v3.1 uses v5, v3.0 uses v4; v2.0 uses v1-v3
      */
-    protected static final int CURRENT_FORMAT_VERSION = 5;
+    protected static final int CURRENT_FORMAT_VERSION = 6;
 
     @SerializedName("id")
     protected UUID id;
@@ -116,6 +118,7 @@ public class DataSnapshot {
     public static DataSnapshot.Packed deserialize(@NotNull HuskSync plugin, byte[] data, @Nullable UUID id,
                                                   @Nullable OffsetDateTime timestamp) {
         final DataSnapshot.Packed snapshot = plugin.getDataAdapter().fromBytes(data, DataSnapshot.Packed.class);
+        snapshot.fileSize = data.length;
         if (snapshot.getMinecraftVersion().compareTo(plugin.getMinecraftVersion()) > 0) {
             return snapshot.invalid(DataException.Reason.INVALID_MINECRAFT_VERSION);
         }
@@ -124,10 +127,12 @@ public class DataSnapshot {
         }
         if (snapshot.getFormatVersion() < 4) {
             if (plugin.getLegacyConverter().isPresent()) {
-                return plugin.getLegacyConverter().get().convert(
+                final DataSnapshot.Packed converted = plugin.getLegacyConverter().get().convert(
                         data, Objects.requireNonNull(id, "Attempted legacy conversion with null UUID!"),
                         Objects.requireNonNull(timestamp, "Attempted legacy conversion with null timestamp!")
                 );
+                converted.converted = true;
+                return converted;
             }
             return snapshot.invalid(DataException.Reason.NO_LEGACY_CONVERTER);
         }
@@ -282,6 +287,19 @@ public class DataSnapshot {
     @NoArgsConstructor(access = AccessLevel.PRIVATE)
     public static class Packed extends DataSnapshot implements Adaptable {
 
+        // Data unpacked ahead of time (e.g. when prefetched), consumed by the next call to #unpack
+        @Nullable
+        @Expose(serialize = false, deserialize = false)
+        private transient Unpacked preUnpacked;
+
+        // Size of the snapshot when it was last packed to or read from bytes, or -1 if it has been edited since
+        @Expose(serialize = false, deserialize = false)
+        private transient int fileSize = -1;
+
+        // Whether this snapshot was converted from a legacy format when it was read
+        @Expose(serialize = false, deserialize = false)
+        private transient boolean converted;
+
         protected Packed(@NotNull UUID id, boolean pinned, @NotNull OffsetDateTime timestamp,
                          @NotNull String saveCause, @NotNull String serverName, @NotNull Map<String, String> data,
                          @NotNull Version minecraftVersion, @NotNull String platformType, int formatVersion) {
@@ -321,6 +339,39 @@ public class DataSnapshot {
             this.pinned = data.isPinned();
             this.saveCause = data.getSaveCause().name();
             this.data = data.serializeData(plugin);
+            this.fileSize = -1;
+        }
+
+        /**
+         * Edit a single data type held by this snapshot, deserializing and re-serializing only that entry and
+         * leaving the serialized form of every other data type untouched.
+         *
+         * @param plugin     The HuskSync plugin instance
+         * @param identifier The identifier of the data type to edit
+         * @param editor     The editor function
+         * @return {@code true} if the data was edited, or {@code false} if the snapshot does not hold the data type
+         * @throws DataException         if the snapshot is invalid
+         * @throws IllegalStateException if no serializer is registered for the identifier
+         * @since 4.0
+         */
+        @ApiStatus.Internal
+        public boolean editData(@NotNull HuskSync plugin, @NotNull Identifier identifier,
+                                @NotNull Consumer<Data> editor) throws DataException, IllegalStateException {
+            this.validate(plugin);
+            final String serialized = data.get(identifier.toString());
+            if (serialized == null) {
+                return false;
+            }
+            final Data deserialized = plugin.deserializeData(
+                    identifier, serialized, getMinecraftVersion(), getFormatVersion()
+            );
+            editor.accept(deserialized);
+            final Map<String, String> edited = new HashMap<>(data);
+            edited.put(identifier.toString(), plugin.serializeData(identifier, deserialized));
+            this.data = edited;
+            this.preUnpacked = null;
+            this.fileSize = -1;
+            return true;
         }
 
         /**
@@ -338,7 +389,9 @@ public class DataSnapshot {
 
         @ApiStatus.Internal
         public byte[] asBytes(@NotNull HuskSync plugin) throws DataAdapter.AdaptionException {
-            return plugin.getDataAdapter().toBytes(this);
+            final byte[] bytes = plugin.getDataAdapter().toBytes(this);
+            this.fileSize = bytes.length;
+            return bytes;
         }
 
         @NotNull
@@ -347,13 +400,113 @@ public class DataSnapshot {
             return plugin.getDataAdapter().toJson(this);
         }
 
+        /**
+         * Get the serialized data in this snapshot, keyed by the identifier of each data type
+         *
+         * @return an unmodifiable view of the serialized data
+         */
+        @NotNull
+        @ApiStatus.Internal
+        public Map<String, String> getData() {
+            return Collections.unmodifiableMap(data);
+        }
+
+        /**
+         * Get the size of this snapshot in bytes, as stored in the database. The size is recorded when the snapshot
+         * is read from or written to the database, so it is only calculated by packing the snapshot if it has been
+         * edited since.
+         *
+         * @param plugin The HuskSync plugin instance
+         * @return The size of the snapshot in bytes
+         */
         @ApiStatus.Internal
         public int getFileSize(@NotNull HuskSync plugin) {
-            return asBytes(plugin).length;
+            final int size = this.fileSize;
+            return size >= 0 ? size : asBytes(plugin).length;
+        }
+
+        /**
+         * Get whether this snapshot is stored in a legacy or older format or was saved on an older Minecraft version,
+         * meaning its data has to be converted (e.g. with the game's data fixers) every time it is read
+         *
+         * @param plugin The HuskSync plugin instance
+         * @return {@code true} if the snapshot is outdated
+         * @since 4.0
+         */
+        public boolean isOutdated(@NotNull HuskSync plugin) {
+            return !isInvalid() && (converted || formatVersion < CURRENT_FORMAT_VERSION
+                    || getMinecraftVersion().compareTo(plugin.getMinecraftVersion()) < 0);
+        }
+
+        /**
+         * Upgrade this snapshot in place to the current format and Minecraft version, by converting each data type
+         * and serializing it again, so that it doesn't need converting the next time it is read.
+         * <p>
+         * If any data type can't be converted (e.g. custom data whose serializer isn't registered), the snapshot is
+         * kept on its original Minecraft version, so that data isn't mislabelled as current.
+         *
+         * @param plugin The HuskSync plugin instance
+         * @return {@code true} if the snapshot was upgraded and should be saved, or {@code false} if it isn't
+         * outdated or couldn't be upgraded
+         * @since 4.0
+         */
+        @ApiStatus.Internal
+        public boolean upgrade(@NotNull HuskSync plugin) {
+            if (!isOutdated(plugin)) {
+                return false;
+            }
+            final Map<String, String> upgraded = Maps.newHashMapWithExpectedSize(data.size());
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                final Optional<Identifier> identifier = plugin.getIdentifier(entry.getKey());
+                if (identifier.isEmpty()) {
+                    return keepConverted();
+                }
+                try {
+                    upgraded.put(entry.getKey(), plugin.serializeData(identifier.get(), plugin.deserializeData(
+                            identifier.get(), entry.getValue(), getMinecraftVersion(), getFormatVersion()
+                    )));
+                } catch (Throwable e) {
+                    return keepConverted();
+                }
+            }
+            this.data = upgraded;
+            this.minecraftVersion = plugin.getMinecraftVersion().toStringWithoutMetadata();
+            this.formatVersion = CURRENT_FORMAT_VERSION;
+            this.converted = false;
+            this.preUnpacked = null;
+            this.fileSize = -1;
+            return true;
+        }
+
+        // A snapshot converted from a legacy format is still worth saving if its data couldn't be fully upgraded
+        private boolean keepConverted() {
+            if (!converted) {
+                return false;
+            }
+            this.converted = false;
+            this.fileSize = -1;
+            return true;
+        }
+
+        /**
+         * Unpack this snapshot ahead of time, so the next call to {@link #unpack(HuskSync)} doesn't need to
+         * deserialize its data. Intended to be called off the main thread.
+         *
+         * @param plugin The HuskSync plugin instance
+         * @throws DataException if the snapshot is invalid
+         */
+        @ApiStatus.Internal
+        public void preUnpack(@NotNull HuskSync plugin) throws DataException {
+            this.preUnpacked = unpack(plugin);
         }
 
         @NotNull
         public DataSnapshot.Unpacked unpack(@NotNull HuskSync plugin) throws DataException {
+            final Unpacked unpacked = this.preUnpacked;
+            if (unpacked != null) {
+                this.preUnpacked = null;
+                return unpacked;
+            }
             this.validate(plugin);
             return new Unpacked(
                     id, pinned, timestamp, saveCause, serverName, data,
@@ -388,38 +541,58 @@ public class DataSnapshot {
             this.deserialized = data;
         }
 
+        // Deserialize each data type in parallel on the plugin's async threads, as they are independent of each other
+        // until they are applied. This thread works through the queue too, and only waits for data types that another
+        // thread has already taken, so it never waits on a task that is still queued behind it
         @NotNull
         @ApiStatus.Internal
         private Map<Identifier, Data> deserializeData(@NotNull HuskSync plugin) {
-            final Map<Identifier, Data> result = new HashMap<>();
-            data.entrySet().stream()
-                    .filter(e -> plugin.getIdentifier(e.getKey()).isPresent())
-                    .map(entry -> Map.entry(plugin.getIdentifier(entry.getKey()).orElseThrow(), entry.getValue()))
-                    .forEach(entry -> {
-                        try {
-                            result.put(entry.getKey(), plugin.deserializeData(
-                                    entry.getKey(), entry.getValue(), getMinecraftVersion()));
-                        } catch (Throwable e) {
-                            plugin.log(Level.WARNING,
-                                    "Failed to deserialize %s data for snapshot %s; skipping it. "
-                                            + "The data may contain invalid values (e.g. items with -Infinity NBT attributes). "
-                                            + "The player will load without this data type for this session."
-                                            .formatted(entry.getKey(), getId()), e);
-                        }
-                    });
-            return result;
+            final Queue<Map.Entry<Identifier, String>> queue = new ConcurrentLinkedQueue<>();
+            data.forEach((key, value) -> plugin.getIdentifier(key).ifPresent(id -> queue.add(Map.entry(id, value))));
+            final Map<Identifier, Data> result = new ConcurrentHashMap<>();
+            final CountDownLatch remaining = new CountDownLatch(queue.size());
+            final Runnable worker = () -> {
+                Map.Entry<Identifier, String> entry;
+                while ((entry = queue.poll()) != null) {
+                    try {
+                        result.put(entry.getKey(), plugin.deserializeData(
+                                entry.getKey(), entry.getValue(), getMinecraftVersion(), getFormatVersion()));
+                    } catch (Throwable e) {
+                        plugin.log(Level.WARNING,
+                                "Failed to deserialize %s data for snapshot %s; skipping it. "
+                                        + "The data may contain invalid values (e.g. items with -Infinity NBT attributes). "
+                                        + "The player will load without this data type for this session."
+                                        .formatted(entry.getKey(), getId()), e);
+                    } finally {
+                        remaining.countDown();
+                    }
+                }
+            };
+            final int helpers = Math.min(queue.size(), Runtime.getRuntime().availableProcessors()) - 1;
+            try {
+                for (int i = 0; i < helpers; i++) {
+                    plugin.runAsync(worker);
+                }
+            } catch (Throwable e) {
+                plugin.debug("Deserializing snapshot %s on one thread, as no async tasks could be started: %s"
+                        .formatted(getId(), e.getMessage()));
+            }
+            worker.run();
+            try {
+                remaining.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while deserializing snapshot %s".formatted(getId()), e);
+            }
+            return new HashMap<>(result);
         }
 
         @NotNull
         @ApiStatus.Internal
         private Map<String, String> serializeData(@NotNull HuskSync plugin) {
-            return deserialized.entrySet().stream()
-                    .collect(Collectors.toMap(
-                            entry -> entry.getKey().toString(),
-                            entry -> plugin.serializeData(entry.getKey(), entry.getValue()),
-                            (a, b) -> a,
-                            HashMap::new
-                    ));
+            final Map<String, String> serialized = Maps.newHashMapWithExpectedSize(deserialized.size());
+            deserialized.forEach((id, data) -> serialized.put(id.toString(), plugin.serializeData(id, data)));
+            return serialized;
         }
 
         /**
@@ -441,10 +614,10 @@ public class DataSnapshot {
          */
         @NotNull
         @ApiStatus.Internal
-        public Iterable<Map.Entry<Identifier, Data>> getSortedIterable() {
-            final TreeMap<Identifier, Data> tree = Maps.newTreeMap(SerializerRegistry.DEPENDENCY_ORDER_COMPARATOR);
-            tree.putAll(deserialized);
-            return tree.entrySet();
+        public List<Map.Entry<Identifier, Data>> getSortedIterable() {
+            final List<Map.Entry<Identifier, Data>> sorted = new ArrayList<>(deserialized.entrySet());
+            sorted.sort(Map.Entry.comparingByKey(SerializerRegistry.DEPENDENCY_ORDER_COMPARATOR));
+            return sorted;
         }
 
         /**
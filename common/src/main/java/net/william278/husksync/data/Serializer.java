@@ -19,11 +19,19 @@
 
 package net.william278.husksync.data;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
 import net.william278.desertwell.util.Version;
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.adapter.Adaptable;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.*;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Supplier;
+
 public interface Serializer<T extends Data> {
 
     T deserialize(@NotNull String serialized);
@@ -32,6 +40,21 @@ public interface Serializer<T extends Data> {
         return deserialize(serialized);
     }
 
+    /**
+     * Deserialize data from a snapshot of the given format version
+     *
+     * @param serialized    the serialized data
+     * @param dataMcVersion the Minecraft version of the data
+     * @param formatVersion the format version of the snapshot holding the data
+     * @return the deserialized data
+     * @throws DeserializationException if the data could not be deserialized
+     * @since 4.0
+     */
+    default T deserialize(@NotNull String serialized, @NotNull Version dataMcVersion,
+                          int formatVersion) throws DeserializationException {
+        return deserialize(serialized, dataMcVersion);
+    }
+
     @NotNull
     String serialize(@NotNull T element) throws SerializationException;
 
@@ -70,4 +93,112 @@ public interface Serializer<T extends Data> {
         }
 
     }
+
+    /**
+     * Serializes statistics to a compact binary encoding of their {@link StatisticTable tables}, encoded as Base64.
+     * Statistics serialized as JSON by earlier versions (snapshot format v5 and earlier) can still be read.
+     *
+     * @param <T> the platform statistics type
+     * @since 4.0
+     */
+    class Statistics<T extends Data.Statistics> implements Serializer<T> {
+
+        // The last snapshot format version that serialized statistics as JSON
+        private static final int JSON_FORMAT_VERSION = 5;
+
+        private final Supplier<Gson> gson;
+        private final Factory<T> factory;
+
+        public Statistics(@NotNull HuskSync plugin, @NotNull Factory<T> factory) {
+            this(plugin::getGson, factory);
+        }
+
+        Statistics(@NotNull Supplier<Gson> gson, @NotNull Factory<T> factory) {
+            this.gson = gson;
+            this.factory = factory;
+        }
+
+        @Override
+        public T deserialize(@NotNull String serialized) throws DeserializationException {
+            return serialized.startsWith("{") ? readJson(serialized) : readBinary(serialized);
+        }
+
+        // Snapshots of format v5 and earlier hold statistics as JSON, unless they've since been edited
+        @Override
+        public T deserialize(@NotNull String serialized, @NotNull Version dataMcVersion,
+                             int formatVersion) throws DeserializationException {
+            if (formatVersion <= JSON_FORMAT_VERSION && serialized.startsWith("{")) {
+                return readJson(serialized);
+            }
+            return readBinary(serialized);
+        }
+
+        @NotNull
+        private T readJson(@NotNull String serialized) throws DeserializationException {
+            try {
+                final JsonStatistics json = gson.get().fromJson(serialized, JsonStatistics.class);
+                return factory.create(
+                        StatisticTable.fromUntypedMap(json.generic != null ? json.generic : Map.of()),
+                        StatisticTable.fromTypedMap(json.blocks != null ? json.blocks : Map.of()),
+                        StatisticTable.fromTypedMap(json.items != null ? json.items : Map.of()),
+                        StatisticTable.fromTypedMap(json.entities != null ? json.entities : Map.of())
+                );
+            } catch (JsonParseException | IllegalStateException e) {
+                throw new DeserializationException("Failed to read legacy statistics", e);
+            }
+        }
+
+        @NotNull
+        private T readBinary(@NotNull String serialized) throws DeserializationException {
+            try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+                    Base64.getDecoder().decode(serialized)))) {
+                return factory.create(
+                        StatisticTable.read(input), StatisticTable.read(input),
+                        StatisticTable.read(input), StatisticTable.read(input)
+                );
+            } catch (IOException | IllegalArgumentException e) {
+                throw new DeserializationException("Failed to read statistics", e);
+            }
+        }
+
+        @NotNull
+        @Override
+        public String serialize(@NotNull T element) throws SerializationException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream output = new DataOutputStream(bytes)) {
+                element.getGenericTable().write(output);
+                element.getBlockTable().write(output);
+                element.getItemTable().write(output);
+                element.getEntityTable().write(output);
+            } catch (IOException e) {
+                throw new SerializationException("Failed to write statistics", e);
+            }
+            return Base64.getEncoder().encodeToString(bytes.toByteArray());
+        }
+
+        /**
+         * Creates platform statistics from their tables
+         *
+         * @param <T> the platform statistics type
+         */
+        @FunctionalInterface
+        public interface Factory<T extends Data.Statistics> {
+            @NotNull
+            T create(@NotNull StatisticTable generic, @NotNull StatisticTable blocks,
+                     @NotNull StatisticTable items, @NotNull StatisticTable entities);
+        }
+
+        // Statistics as serialized to JSON before 4.0
+        private static final class JsonStatistics {
+            @SerializedName("generic")
+            private Map<String, Integer> generic;
+            @SerializedName("blocks")
+            private Map<String, Map<String, Integer>> blocks;
+            @SerializedName("items")
+            private Map<String, Map<String, Integer>> items;
+            @SerializedName("entities")
+            private Map<String, Map<String, Integer>> entities;
+        }
+
+    }
 }
@@ -135,6 +135,26 @@ public interface SerializerRegistry {
         );
     }
 
+    /**
+     * Deserialize data of a given {@link Version Minecraft version} from a snapshot of the given format version, for
+     * the given {@link Identifier data identifier}
+     *
+     * @param identifier    the {@link Identifier} to deserialize data for
+     * @param data          the data to deserialize
+     * @param dataMcVersion the Minecraft version of the data
+     * @param formatVersion the format version of the snapshot holding the data
+     * @return the deserialized data
+     * @throws IllegalStateException if no serializer is found for the given {@link Identifier}
+     * @since 4.0
+     */
+    @NotNull
+    default Data deserializeData(@NotNull Identifier identifier, @NotNull String data,
+                                 @NotNull Version dataMcVersion, int formatVersion) throws IllegalStateException {
+        return getSerializer(identifier)
+                .map(serializer -> serializer.deserialize(data, dataMcVersion, formatVersion))
+                .orElseThrow(() -> new IllegalStateException("No serializer found for %s".formatted(identifier)));
+    }
+
     /**
      * Deserialize data for the given {@link Identifier data identifier}
      *
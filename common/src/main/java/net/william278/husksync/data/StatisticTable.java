@@ -0,0 +1,425 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.data;
+
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A compact table of statistic values, keyed by a statistic and (for typed statistics) the block, item or entity
+ * the statistic is counted for.
+ * <p>
+ * Statistic and subject names are interned to {@code int} indices shared by every table (up to {@link #MAX_NAMES}
+ * names, as they are never forgotten), and values are held in an
+ * open-addressing hash table of primitive arrays, so a player's statistics don't need tens of thousands of boxed
+ * values and nested maps. Tables are written with a compact binary encoding by {@link #write(DataOutput)}.
+ *
+ * @since 4.0
+ */
+public final class StatisticTable {
+
+    /**
+     * The subject index of untyped statistics, which aren't counted for a block, item or entity
+     */
+    public static final int UNTYPED = -1;
+
+    /**
+     * The most names that can be interned, which is far more than the statistics, blocks, items and entities of even
+     * a heavily modded server, so that malformed data can't grow the shared name table without bound
+     */
+    public static final int MAX_NAMES = 1 << 16;
+
+    private static final long EMPTY = -1L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private static final Map<String, Integer> INDICES = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[1024];
+    private static int nameCount;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public StatisticTable() {
+        this(16);
+    }
+
+    public StatisticTable(int expectedSize) {
+        final int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Get the index of a statistic or subject name, interning it if it hasn't been seen before
+     *
+     * @param name the name
+     * @return the index of the name
+     * @throws IllegalStateException if {@link #MAX_NAMES} names have already been interned
+     */
+    public static int intern(@NotNull String name) {
+        final Integer index = INDICES.get(name);
+        return index != null ? index : internNew(name);
+    }
+
+    private static synchronized int internNew(@NotNull String name) {
+        final Integer existing = INDICES.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (nameCount == MAX_NAMES) {
+            throw new IllegalStateException("Too many statistic names (%s) to intern %s".formatted(MAX_NAMES, name));
+        }
+        String[] array = names;
+        if (nameCount == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[nameCount] = name;
+        names = array;
+        INDICES.put(name, nameCount);
+        return nameCount++;
+    }
+
+    /**
+     * Get the name of an interned index
+     *
+     * @param index the index, as returned by {@link #intern(String)}
+     * @return the name
+     */
+    @NotNull
+    public static String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * Set the value of a statistic
+     *
+     * @param statistic the index of the statistic
+     * @param subject   the index of the subject, or {@link #UNTYPED}
+     * @param value     the value
+     */
+    public void set(int statistic, int subject, int value) {
+        final long key = key(statistic, subject);
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    public void set(@NotNull String statistic, @Nullable String subject, int value) {
+        set(intern(statistic), subject == null ? UNTYPED : intern(subject), value);
+    }
+
+    /**
+     * Get the value of a statistic
+     *
+     * @param statistic the index of the statistic
+     * @param subject   the index of the subject, or {@link #UNTYPED}
+     * @return the value, or {@code 0} if it isn't set
+     */
+    public int get(int statistic, int subject) {
+        final long key = key(statistic, subject);
+        for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    public int get(@NotNull String statistic, @Nullable String subject) {
+        final Integer index = INDICES.get(statistic);
+        final Integer subjectIndex = subject == null ? Integer.valueOf(UNTYPED) : INDICES.get(subject);
+        return index == null || subjectIndex == null ? 0 : get(index, subjectIndex);
+    }
+
+    public void forEach(@NotNull Consumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            final long key = keys[slot];
+            if (key != EMPTY) {
+                consumer.accept((int) (key >>> 32), (int) key, values[slot]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the untyped statistics in this table as a map of statistic names to values
+     *
+     * @return the untyped statistics
+     */
+    @NotNull
+    public Map<String, Integer> toUntypedMap() {
+        final Map<String, Integer> map = Maps.newHashMapWithExpectedSize(size);
+        forEach((statistic, subject, value) -> {
+            if (subject == UNTYPED) {
+                map.put(name(statistic), value);
+            }
+        });
+        return map;
+    }
+
+    /**
+     * Get the typed statistics in this table as a map of statistic names to maps of subject names to values
+     *
+     * @return the typed statistics
+     */
+    @NotNull
+    public Map<String, Map<String, Integer>> toTypedMap() {
+        final Map<String, Map<String, Integer>> map = Maps.newHashMap();
+        forEach((statistic, subject, value) -> {
+            if (subject != UNTYPED) {
+                map.computeIfAbsent(name(statistic), k -> Maps.newHashMap()).put(name(subject), value);
+            }
+        });
+        return map;
+    }
+
+    @NotNull
+    public static StatisticTable fromUntypedMap(@NotNull Map<String, Integer> map) {
+        final StatisticTable table = new StatisticTable(map.size());
+        map.forEach((statistic, value) -> table.set(statistic, null, value));
+        return table;
+    }
+
+    @NotNull
+    public static StatisticTable fromTypedMap(@NotNull Map<String, Map<String, Integer>> map) {
+        final StatisticTable table = new StatisticTable(map.values().stream().mapToInt(Map::size).sum());
+        map.forEach((statistic, values) -> values.forEach((subject, value) -> table.set(statistic, subject, value)));
+        return table;
+    }
+
+    /**
+     * Write this table. The names of the statistics and subjects in the table are written once each, followed by
+     * each value as a variable-length triple of name references and the value.
+     *
+     * @param output the output to write to
+     * @throws IOException if the table could not be written
+     */
+    public void write(@NotNull DataOutput output) throws IOException {
+        final String[] names = StatisticTable.names;
+        final int[] local = new int[names.length];
+        final int[] order = new int[size * 2];
+        int count = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                count = addName((int) (key >>> 32), local, order, count);
+                count = addName((int) key, local, order, count);
+            }
+        }
+        writeVarInt(output, count);
+        for (int i = 0; i < count; i++) {
+            output.writeUTF(names[order[i]]);
+        }
+        writeVarInt(output, size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            final long key = keys[slot];
+            if (key != EMPTY) {
+                final int subject = (int) key;
+                writeVarInt(output, local[(int) (key >>> 32)] - 1);
+                writeVarInt(output, subject == UNTYPED ? 0 : local[subject]);
+                writeVarInt(output, (values[slot] << 1) ^ (values[slot] >> 31));
+            }
+        }
+    }
+
+    /**
+     * Read a table written by {@link #write(DataOutput)}
+     *
+     * @param input the input to read from
+     * @return the table
+     * @throws IOException if the table could not be read
+     */
+    @NotNull
+    public static StatisticTable read(@NotNull DataInput input) throws IOException {
+        final int count = readLength(input);
+        if (count > MAX_NAMES) {
+            throw new IOException("Too many names (%s) in statistic table".formatted(count));
+        }
+        final int[] local = new int[count];
+        for (int i = 0; i < local.length; i++) {
+            try {
+                local[i] = intern(input.readUTF());
+            } catch (IllegalStateException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        final int size = readLength(input);
+        final StatisticTable table = new StatisticTable(size);
+        for (int i = 0; i < size; i++) {
+            final int statistic = getName(local, readVarInt(input));
+            final int subject = readVarInt(input);
+            final int value = readVarInt(input);
+            table.set(statistic, subject == 0 ? UNTYPED : getName(local, subject - 1), (value >>> 1) ^ -(value & 1));
+        }
+        return table;
+    }
+
+    // Look up a name by the number it was written as, checking it is one of the names that were read
+    private static int getName(int @NotNull [] local, int number) throws IOException {
+        if (number < 0 || number >= local.length) {
+            throw new IOException("Invalid name reference %s (%s names were read)".formatted(number, local.length));
+        }
+        return local[number];
+    }
+
+    // Number a name the first time it's written, so later references to it can be written as its number
+    private static int addName(int index, int @NotNull [] local, int @NotNull [] order, int count) {
+        if (index == UNTYPED || local[index] != 0) {
+            return count;
+        }
+        order[count] = index;
+        local[index] = count + 1;
+        return count + 1;
+    }
+
+    private static void writeVarInt(@NotNull DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readLength(@NotNull DataInput input) throws IOException {
+        final int length = readVarInt(input);
+        if (length < 0) {
+            throw new IOException("Invalid length %s".formatted(length));
+        }
+        return length;
+    }
+
+    private static int readVarInt(@NotNull DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = input.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private void resize() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                set((int) (oldKeys[slot] >>> 32), (int) oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+    }
+
+    private static long key(int statistic, int subject) {
+        return ((long) statistic << 32) | (subject & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Accepts each value in a table
+     */
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(int statistic, int subject, int value);
+    }
+
+    /**
+     * Resolves interned statistic and subject indices to platform objects (e.g. a statistic or material), caching
+     * the result so each name is only looked up once
+     *
+     * @param <T> the type of the platform object
+     */
+    public static final class Lookup<T> {
+        private static final Object MISSING = new Object();
+
+        private final Function<String, @Nullable T> resolver;
+        private Object[] resolved = new Object[0];
+
+        public Lookup(@NotNull Function<String, @Nullable T> resolver) {
+            this.resolver = resolver;
+        }
+
+        @Nullable
+        @SuppressWarnings("unchecked")
+        public synchronized T get(int index) {
+            if (index >= resolved.length) {
+                resolved = Arrays.copyOf(resolved, Math.max(index + 1, resolved.length * 2));
+            }
+            Object value = resolved[index];
+            if (value == null) {
+                final T match = resolver.apply(name(index));
+                resolved[index] = value = match != null ? match : MISSING;
+            }
+            return value == MISSING ? null : (T) value;
+        }
+
+        /**
+         * Set the value an index resolves to, e.g. to populate the lookup ahead of time
+         *
+         * @param index the index
+         * @param value the value
+         */
+        public synchronized void put(int index, @NotNull T value) {
+            if (index >= resolved.length) {
+                resolved = Arrays.copyOf(resolved, Math.max(index + 1, resolved.length * 2));
+            }
+            resolved[index] = value;
+        }
+
+        /**
+         * Forget all resolved values, so they are resolved again when next looked up
+         */
+        public synchronized void clear() {
+            resolved = new Object[0];
+        }
+    }
+
+}
@@ -24,7 +24,9 @@ import net.william278.husksync.HuskSync;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
@@ -94,7 +96,8 @@ public interface UserDataHolder extends DataHolder {
      * <p>
      * This method will deserialize the data on the current thread, then synchronously apply it on
      * the main server thread. The order data will be applied is determined based on the dependencies of
-     * each data type (see {@link Identifier.Dependency}).
+     * each data type (see {@link Identifier.Dependency}). If applying the data takes longer than the
+     * configured per-tick budget, the remaining data types are applied over the following ticks.
      * </p>
      * The {@code runAfter} callback function will be run after the snapshot has been applied.
      *
@@ -119,32 +122,52 @@ public interface UserDataHolder extends DataHolder {
             return;
         }
 
-        // Synchronously attempt to apply the snapshot
-        plugin.runSync(() -> {
-            if (cannotApplySnapshot()) {
-                return;
+        // Synchronously apply the snapshot, spread over as many ticks as the per-tick budget requires
+        final List<Map.Entry<Identifier, Data>> entries = new ArrayList<>();
+        unpacked.getSortedIterable().forEach(entry -> {
+            if (entry.getKey().isEnabled()) {
+                entries.add(entry);
             }
+        });
+        final long budget = plugin.getSettings().getSynchronization().getApplyTickBudgetMillis() * 1_000_000L;
+        plugin.runSync(() -> applyEntries(entries, 0, budget, runAfter), this);
+    }
 
-            try {
-                for (Map.Entry<Identifier, Data> entry : unpacked.getSortedIterable()) {
-                    final Identifier identifier = entry.getKey();
-                    if (!identifier.isEnabled()) {
-                        continue;
-                    }
-
-                    // Apply the identified data
-                    if (identifier.isCustom()) {
-                        getCustomDataStore().put(identifier, entry.getValue());
-                    }
-                    entry.getValue().apply(this, plugin);
+    // Apply entries from the given index on the main thread until the tick budget is used, then continue next tick
+    private void applyEntries(@NotNull List<Map.Entry<Identifier, Data>> entries, int from, long budget,
+                              @NotNull ThrowingConsumer<Boolean> runAfter) {
+        // Stop if data can no longer be applied (e.g. the user disconnected between ticks), reporting the snapshot as
+        // not applied. Online users stay locked when a sync fails, so the data types already applied are never saved
+        final HuskSync plugin = getPlugin();
+        if (cannotApplySnapshot()) {
+            plugin.runAsync(() -> runAfter.accept(false));
+            return;
+        }
+
+        final long start = System.nanoTime();
+        int index = from;
+        try {
+            while (index < entries.size()) {
+                final Map.Entry<Identifier, Data> entry = entries.get(index++);
+
+                // Apply the identified data
+                if (entry.getKey().isCustom()) {
+                    getCustomDataStore().put(entry.getKey(), entry.getValue());
+                }
+                entry.getValue().apply(this, plugin);
+
+                if (budget > 0 && index < entries.size() && System.nanoTime() - start >= budget) {
+                    final int next = index;
+                    plugin.runSyncDelayed(() -> applyEntries(entries, next, budget, runAfter), this, 1);
+                    return;
                 }
-            } catch (Throwable e) {
-                plugin.log(Level.SEVERE, String.format("Failed to apply data snapshot to %s", getUsername()), e);
-                plugin.runAsync(() -> runAfter.accept(false));
-                return;
             }
-            plugin.runAsync(() -> runAfter.accept(true));
-        }, this);
+        } catch (Throwable e) {
+            plugin.log(Level.SEVERE, String.format("Failed to apply data snapshot to %s", getUsername()), e);
+            plugin.runAsync(() -> runAfter.accept(false));
+            return;
+        }
+        plugin.runAsync(() -> runAfter.accept(true));
     }
 
     @Override
@@ -30,10 +30,23 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An abstract representation of the plugin database, storing player data.
@@ -42,10 +55,74 @@ import java.util.function.BiConsumer;
  */
 public abstract class Database {
 
+    /**
+     * The maximum number of users to look up per query in bulk queries
+     */
+    protected static final int MAX_BULK_QUERY_SIZE = 500;
+
+    /**
+     * Revision to pass to revision-checked writes (e.g. {@link #addSnapshot(User, DataSnapshot.Packed, long)}) to
+     * write regardless of the user's current revision
+     */
+    public static final long ANY_REVISION = -1;
+
+    /**
+     * The maximum number of times a revision-checked write is retried after conflicting with a concurrent write
+     */
+    protected static final int MAX_WRITE_ATTEMPTS = 5;
+
     protected final HuskSync plugin;
+    protected final Settings.DatabaseSettings settings;
+    @Getter
+    protected final DatabaseMetrics metrics;
+    @Nullable
+    private SnapshotUpgrader upgrader;
 
     protected Database(@NotNull HuskSync plugin) {
+        this(plugin, plugin.getSettings().getDatabase());
+    }
+
+    protected Database(@NotNull HuskSync plugin, @NotNull Settings.DatabaseSettings settings) {
+        this(plugin, settings, new DatabaseMetrics(plugin, settings));
+    }
+
+    protected Database(@NotNull HuskSync plugin, @NotNull Settings.DatabaseSettings settings,
+                       @NotNull DatabaseMetrics metrics) {
         this.plugin = plugin;
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the upgrader for outdated snapshots in this database. It is created on first use, as databases wrapped by
+     * a {@link MirroredDatabase} are never upgraded directly.
+     *
+     * @return the snapshot upgrader
+     * @since 4.0
+     */
+    @NotNull
+    public synchronized SnapshotUpgrader getUpgrader() {
+        if (upgrader == null) {
+            upgrader = new SnapshotUpgrader(plugin, this);
+        }
+        return upgrader;
+    }
+
+    /**
+     * Create a database of the configured type for the given connection settings
+     *
+     * @param plugin   the plugin instance
+     * @param settings the database connection settings
+     * @return the (uninitialized) database
+     * @since 4.0
+     */
+    @NotNull
+    public static Database create(@NotNull HuskSync plugin, @NotNull Settings.DatabaseSettings settings) {
+        return switch (settings.getType()) {
+            case MYSQL, MARIADB -> new MySqlDatabase(plugin, settings);
+            case POSTGRES -> new PostgresDatabase(plugin, settings);
+            case MONGO -> new MongoDbDatabase(plugin, settings);
+        };
     }
 
     /**
@@ -62,6 +139,30 @@ public abstract class Database {
                 .readAllBytes(), StandardCharsets.UTF_8)).split(";")).filter(s -> !s.isBlank()).toArray(String[]::new);
     }
 
+    /**
+     * Wrap a connection so that closing it does nothing, for handing out a connection that is bound to a
+     * transaction to code that closes the connections it gets
+     *
+     * @param connection the connection to wrap
+     * @return the wrapped connection
+     */
+    @NotNull
+    protected static Connection uncloseable(@NotNull Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+        );
+    }
+
     /**
      * Format all table name placeholder strings in an SQL statement
      *
@@ -70,13 +171,82 @@ public abstract class Database {
      */
     @NotNull
     protected final String formatStatementTables(@NotNull @Language("SQL") String sql) {
-        final Settings.DatabaseSettings settings = plugin.getSettings().getDatabase();
         return sql.replaceAll("%users_table%", settings.getTableName(TableName.USERS))
                 .replaceAll("%user_data_table%", settings.getTableName(TableName.USER_DATA))
                 .replaceAll("%map_data_table%", settings.getTableName(TableName.MAP_DATA))
                 .replaceAll("%map_ids_table%", settings.getTableName(TableName.MAP_IDS));
     }
 
+    /**
+     * Get a comma-separated list of {@code count} statement parameter placeholders, for use in {@code IN} lists
+     *
+     * @param count the number of placeholders
+     * @return the placeholders (e.g. {@code ?,?,?})
+     */
+    @NotNull
+    protected static String getPlaceholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Count the rows updated by a batch of statements
+     *
+     * @param results the update counts returned by executing the batch
+     * @return the number of statements that updated a row; statements whose count isn't known are assumed to have
+     */
+    protected static int countUpdated(int @NotNull [] results) {
+        int updated = 0;
+        for (int result : results) {
+            if (result > 0 || result == Statement.SUCCESS_NO_INFO) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Decode the rows of users' latest snapshots in parallel on the plugin's async threads. The calling thread
+     * decodes rows too, so this completes even if every async thread is busy.
+     *
+     * @param rows the snapshot rows; if a user has more than one, the first is used
+     * @return a map of user UUIDs to their latest snapshot
+     */
+    @NotNull
+    @Blocking
+    protected final Map<UUID, DataSnapshot.Packed> decodeLatestSnapshots(@NotNull List<SnapshotRow> rows) {
+        final Map<UUID, SnapshotRow> latest = new LinkedHashMap<>();
+        rows.forEach(row -> latest.putIfAbsent(row.playerUuid(), row));
+
+        final Queue<SnapshotRow> pending = new ConcurrentLinkedQueue<>(latest.values());
+        final CountDownLatch decoded = new CountDownLatch(pending.size());
+        final Map<UUID, DataSnapshot.Packed> snapshots = new ConcurrentHashMap<>();
+        final Runnable decoder = () -> {
+            SnapshotRow row;
+            while ((row = pending.poll()) != null) {
+                try {
+                    snapshots.put(row.playerUuid(), DataSnapshot.deserialize(plugin, row.data(),
+                            row.versionUuid(), row.timestamp()));
+                } catch (Throwable e) {
+                    plugin.log(Level.WARNING, "Failed to decode data snapshot %s for %s".formatted(
+                            row.versionUuid(), row.playerUuid()), e);
+                } finally {
+                    decoded.countDown();
+                }
+            }
+        };
+        final int helpers = Math.min(pending.size(), Runtime.getRuntime().availableProcessors()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            plugin.runAsync(decoder);
+        }
+        decoder.run();
+        try {
+            decoded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new HashMap<>(snapshots);
+    }
+
     /**
      * Initialize the database and ensure tables are present; create tables if they do not exist.
      *
@@ -113,6 +283,9 @@ public abstract class Database {
 
     /**
      * Get all users
+     * <p>
+     * This loads every user into memory at once; prefer {@link #streamUsers(int)} when iterating over
+     * large user tables.
      *
      * @return A list of all users
      */
@@ -120,6 +293,121 @@ public abstract class Database {
     @Blocking
     public abstract List<User> getAllUsers();
 
+    /**
+     * Get a page of users, ordered by UUID, for iterating over every user without loading them all at once
+     *
+     * @param after the UUID of the last user on the previous page, or {@code null} to get the first page
+     * @param limit the maximum number of users to return
+     * @return the page of users; if this has fewer than {@code limit} users, it is the last page
+     */
+    @NotNull
+    @Blocking
+    public abstract List<User> getUserPage(@Nullable UUID after, int limit);
+
+    /**
+     * Get a lazily-populated stream of every user, ordered by UUID.
+     * <p>
+     * Users are fetched a page at a time with {@link #getUserPage(UUID, int)} as the stream is consumed, so memory
+     * use is bounded by the page size and no connection is held open between pages.
+     *
+     * @param pageSize the number of users to fetch per page
+     * @return a stream of all users
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public Stream<User> streamUsers(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        final Iterator<User> iterator = new Iterator<>() {
+            private List<User> page = List.of();
+            private int index = 0;
+            private boolean lastPage = false;
+
+            @Override
+            public boolean hasNext() {
+                if (index < page.size()) {
+                    return true;
+                }
+                if (lastPage) {
+                    return false;
+                }
+                page = getUserPage(page.isEmpty() ? null : page.get(page.size() - 1).getUuid(), pageSize);
+                index = 0;
+                lastPage = page.size() < pageSize;
+                return !page.isEmpty();
+            }
+
+            @Override
+            public User next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL
+        ), false);
+    }
+
+    /**
+     * Get the users with the given UUIDs, in as few queries as possible
+     *
+     * @param uuids the UUIDs of the users to get
+     * @return the users that exist; users that don't are omitted
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public abstract List<User> getUsers(@NotNull Collection<UUID> uuids);
+
+    /**
+     * Get the latest data snapshot of each of the given users, in as few queries as possible.
+     * Snapshots are decoded in parallel.
+     *
+     * @param users the users to get the latest data snapshots of
+     * @return a map of user UUIDs to their latest data snapshot; users without any data are omitted
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public abstract Map<UUID, DataSnapshot.Packed> getLatestSnapshots(@NotNull Collection<User> users);
+
+    /**
+     * Iterate over the latest data snapshot of every user, fetching them in batches. Only one batch of snapshots is
+     * held in memory at a time.
+     *
+     * @param consumer  the consumer to accept each user and their latest snapshot. Users without data are skipped.
+     * @param batchSize the number of users to fetch snapshots for at a time
+     * @throws IllegalArgumentException if the batch size is not positive
+     * @since 4.0
+     */
+    @Blocking
+    public void forEachLatestSnapshot(@NotNull BiConsumer<User, DataSnapshot.Packed> consumer, int batchSize)
+            throws IllegalArgumentException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, but was " + batchSize);
+        }
+        UUID last = null;
+        List<User> page;
+        do {
+            page = getUserPage(last, batchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            final Map<UUID, DataSnapshot.Packed> snapshots = getLatestSnapshots(page);
+            for (User user : page) {
+                final DataSnapshot.Packed snapshot = snapshots.get(user.getUuid());
+                if (snapshot != null) {
+                    consumer.accept(user, snapshot);
+                }
+            }
+            last = page.get(page.size() - 1).getUuid();
+        } while (page.size() >= batchSize);
+    }
+
     /**
      * Get the latest data snapshot for a user.
      *
@@ -185,6 +473,11 @@ public abstract class Database {
      *     <li>Rotate snapshot backups</li>
      * </ol>
      * This is an expensive blocking method and should be run off the main thread.
+     * <p>
+     * The user's revision is incremented with the snapshot, so concurrent revision-checked edits notice the save.
+     * On MySQL, MariaDB and PostgreSQL, this makes every save one transaction, which holds a lock on the user's
+     * row until the snapshot is written; this costs one extra statement and a commit per save, and only makes
+     * concurrent writes of the same user's data wait for each other.
      *
      * @param user     The user to add data for
      * @param snapshot The {@link DataSnapshot} to set.
@@ -193,12 +486,133 @@ public abstract class Database {
      */
     @Blocking
     public void addSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot) {
-        final int backupFrequency = plugin.getSettings().getSynchronization().getSnapshotBackupFrequency();
-        if (!snapshot.isPinned() && backupFrequency > 0) {
-            this.rotateLatestSnapshot(user, snapshot.getTimestamp().minusHours(backupFrequency));
+        this.addSnapshot(user, snapshot, ANY_REVISION);
+    }
+
+    /**
+     * Save the data of many users to the database as per {@link #addSnapshot(User, DataSnapshot.Packed)}, writing
+     * the snapshots in batches where the database supports it, e.g. when saving every player on shutdown.
+     *
+     * @param snapshots map of users to the snapshot to add for them
+     * @return the users whose snapshot failed to be added
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public Set<User> addSnapshots(@NotNull Map<User, DataSnapshot.Packed> snapshots) {
+        final Set<User> failed = new HashSet<>();
+        snapshots.forEach((user, snapshot) -> {
+            if (!addSnapshot(user, snapshot, ANY_REVISION)) {
+                failed.add(user);
+            }
+        });
+        return failed;
+    }
+
+    // Serialize snapshots ahead of a batched write, so the connection isn't held open while they're serialized.
+    // Users whose snapshot can't be serialized are added to the failed users
+    @NotNull
+    protected Map<User, byte[]> serializeSnapshots(@NotNull Map<User, DataSnapshot.Packed> snapshots,
+                                                   @NotNull Set<User> failed) {
+        final Map<User, byte[]> serialized = new LinkedHashMap<>();
+        snapshots.forEach((user, snapshot) -> {
+            try {
+                serialized.put(user, snapshot.asBytes(plugin));
+            } catch (RuntimeException e) {
+                plugin.log(Level.SEVERE, "Failed to serialize the data of %s".formatted(user.getName()), e);
+                failed.add(user);
+            }
+        });
+        return serialized;
+    }
+
+    /**
+     * Save user data to the database as per {@link #addSnapshot(User, DataSnapshot.Packed)}, only if the user's
+     * data has not been written to since their revision was read.
+     *
+     * @param user     The user to add data for
+     * @param snapshot The {@link DataSnapshot} to set.
+     * @param revision The user's revision, as returned by {@link #getRevision(User)} before the data the snapshot
+     *                 is based on was read
+     * @return {@code true} if the snapshot was added, or {@code false} if the user's data was written to
+     * concurrently or the write failed, in which case the snapshot was not added
+     * @since 4.0
+     */
+    @Blocking
+    public final boolean addSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot, long revision) {
+        final boolean added = this.writeIfRevision(user, revision, () -> {
+            final int backupFrequency = plugin.getSettings().getSynchronization().getSnapshotBackupFrequency();
+            if (!snapshot.isPinned() && backupFrequency > 0) {
+                this.rotateLatestSnapshot(user, snapshot.getTimestamp().minusHours(backupFrequency));
+            }
+            this.createSnapshot(user, snapshot);
+        });
+        if (added) {
+            this.rotateSnapshots(user);
+        }
+        return added;
+    }
+
+    /**
+     * Save user data to the database as per {@link #addSnapshot(User, DataSnapshot.Packed, long)}, retrying with
+     * a merged snapshot if the user's data is written to concurrently.
+     * <p>
+     * On a conflict, the user's latest snapshot is re-read and passed to the {@code merger}, which should
+     * re-apply the changes made in {@code snapshot} to it and return the snapshot to add instead.
+     *
+     * @param user     The user to add data for
+     * @param snapshot The {@link DataSnapshot} to set.
+     * @param revision The user's revision, as returned by {@link #getRevision(User)} before the data the snapshot
+     *                 is based on was read
+     * @param merger   Function re-applying the changes to the user's latest snapshot after a conflict
+     * @return the snapshot that was added, or an empty optional if the user's data was deleted or kept being
+     * written to concurrently
+     * @since 4.0
+     */
+    @Blocking
+    public final Optional<DataSnapshot.Packed> addSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot,
+                                                           long revision,
+                                                           @NotNull UnaryOperator<DataSnapshot.Packed> merger) {
+        DataSnapshot.Packed toAdd = snapshot;
+        long expected = revision;
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            if (this.addSnapshot(user, toAdd, expected)) {
+                return Optional.of(toAdd);
+            }
+            expected = this.getRevision(user);
+            final Optional<DataSnapshot.Packed> latest = this.getLatestSnapshot(user);
+            if (latest.isEmpty()) {
+                return Optional.empty();
+            }
+            toAdd = merger.apply(latest.get());
         }
+        plugin.log(Level.WARNING, "Gave up saving data for %s after %s conflicting concurrent writes"
+                .formatted(user.getName(), MAX_WRITE_ATTEMPTS));
+        return Optional.empty();
+    }
+
+    /**
+     * Insert a snapshot as-is, keeping its ID, timestamp and pinned state and without rotating the user's other
+     * snapshots. This is used for restoring snapshots from an archive.
+     *
+     * @param user     The user to add the snapshot for
+     * @param snapshot The snapshot to insert
+     */
+    @Blocking
+    public void importSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot) {
         this.createSnapshot(user, snapshot);
-        this.rotateSnapshots(user);
+    }
+
+    /**
+     * Insert many users' snapshots as-is as per {@link #importSnapshot(User, DataSnapshot.Packed)}, writing them in
+     * batches where the database supports it. The users must already exist in the database.
+     *
+     * @param snapshots map of users to the snapshots to insert for them
+     * @since 4.0
+     */
+    @Blocking
+    public void importSnapshots(@NotNull Map<User, List<DataSnapshot.Packed>> snapshots) {
+        snapshots.forEach((user, userSnapshots) -> userSnapshots.forEach(snapshot -> importSnapshot(user, snapshot)));
     }
 
     /**
@@ -221,6 +635,15 @@ public abstract class Database {
     @Blocking
     protected abstract void createSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed data);
 
+    /**
+     * <b>Internal</b> - Overwrite a saved {@link DataSnapshot} by given version UUID
+     *
+     * @param user     The user whose data snapshot
+     * @param snapshot The {@link DataSnapshot} to overwrite
+     */
+    @Blocking
+    protected abstract void replaceSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot);
+
     /**
      * Update a saved {@link DataSnapshot} by given version UUID
      *
@@ -228,7 +651,103 @@ public abstract class Database {
      * @param snapshot The {@link DataSnapshot} to update
      */
     @Blocking
-    public abstract void updateSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot);
+    public final void updateSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot) {
+        this.updateSnapshot(user, snapshot, ANY_REVISION);
+    }
+
+    /**
+     * Update a saved {@link DataSnapshot} by given version UUID, only if the user's data has not been written to
+     * since their revision was read.
+     *
+     * @param user     The user whose data snapshot
+     * @param snapshot The {@link DataSnapshot} to update
+     * @param revision The user's revision, as returned by {@link #getRevision(User)} before the snapshot was read
+     * @return {@code true} if the snapshot was updated, or {@code false} if the user's data was written to
+     * concurrently, in which case the snapshot was not updated
+     * @since 4.0
+     */
+    @Blocking
+    public final boolean updateSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot, long revision) {
+        return this.writeIfRevision(user, revision, () -> this.replaceSnapshot(user, snapshot));
+    }
+
+    /**
+     * Edit a saved {@link DataSnapshot} in place, re-reading the snapshot and calling the editor again if the
+     * user's data is written to concurrently.
+     *
+     * @param user        The user whose data snapshot to edit
+     * @param versionUuid The version UUID of the snapshot to edit
+     * @param editor      The editor, returning {@code false} to cancel the edit. May be called more than once.
+     * @return {@code true} if the snapshot was edited, or {@code false} if it doesn't exist, the edit was
+     * cancelled, or the user's data kept being written to concurrently
+     * @since 4.0
+     */
+    @Blocking
+    public final boolean editSnapshot(@NotNull User user, @NotNull UUID versionUuid,
+                                      @NotNull Predicate<DataSnapshot.Packed> editor) {
+        return this.editSnapshot(user, () -> this.getSnapshot(user, versionUuid), editor);
+    }
+
+    /**
+     * Edit the latest saved {@link DataSnapshot} of a user in place, re-reading the snapshot and calling the editor
+     * again if the user's data is written to concurrently.
+     *
+     * @param user   The user whose latest data snapshot to edit
+     * @param editor The editor, returning {@code false} to cancel the edit. May be called more than once.
+     * @return {@code true} if the snapshot was edited, or {@code false} if the user has no data, the edit was
+     * cancelled, or the user's data kept being written to concurrently
+     * @since 4.0
+     */
+    @Blocking
+    public final boolean editLatestSnapshot(@NotNull User user, @NotNull Predicate<DataSnapshot.Packed> editor) {
+        return this.editSnapshot(user, () -> this.getLatestSnapshot(user), editor);
+    }
+
+    // Read a snapshot, edit it and write it back if the user's revision is unchanged, retrying on conflicts
+    @Blocking
+    private boolean editSnapshot(@NotNull User user, @NotNull Supplier<Optional<DataSnapshot.Packed>> reader,
+                                 @NotNull Predicate<DataSnapshot.Packed> editor) {
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            final long revision = this.getRevision(user);
+            final Optional<DataSnapshot.Packed> snapshot = reader.get();
+            if (snapshot.isEmpty() || !editor.test(snapshot.get())) {
+                return false;
+            }
+            if (this.updateSnapshot(user, snapshot.get(), revision)) {
+                return true;
+            }
+        }
+        plugin.log(Level.WARNING, "Gave up editing data for %s after %s conflicting concurrent writes"
+                .formatted(user.getName(), MAX_WRITE_ATTEMPTS));
+        return false;
+    }
+
+    /**
+     * Get a user's revision: a counter incremented every time a snapshot of theirs is added or updated.
+     * <p>
+     * Read this <i>before</i> reading the data a write is based on, then pass it to a revision-checked write
+     * (e.g. {@link #addSnapshot(User, DataSnapshot.Packed, long)}) to only write if nothing else has since.
+     *
+     * @param user The user to get the revision of
+     * @return the user's revision, or {@code 0} if they have none
+     * @since 4.0
+     */
+    @Blocking
+    public abstract long getRevision(@NotNull User user);
+
+    /**
+     * <b>Internal</b> - Increment a user's revision and run a write, if the user's revision matches the
+     * expected revision. Where the database supports it, the increment and the write are made in one transaction,
+     * which holds a lock on the user's row until it commits; otherwise, the increment is undone if the write fails.
+     *
+     * @param user             The user to write data for
+     * @param expectedRevision The revision the user is expected to have, or {@link #ANY_REVISION} to write
+     *                         regardless of it
+     * @param write            The write to run
+     * @return {@code true} if the write was run, or {@code false} if the user's revision did not match
+     */
+    @Blocking
+    protected abstract boolean writeIfRevision(@NotNull User user, long expectedRevision, @NotNull Runnable write);
 
     /**
      * Unpin a saved {@link DataSnapshot} by given version UUID, setting it's {@code pinned} state to {@code false}.
@@ -239,9 +758,9 @@ public abstract class Database {
      */
     @Blocking
     public final void unpinSnapshot(@NotNull User user, @NotNull UUID versionUuid) {
-        this.getSnapshot(user, versionUuid).ifPresent(data -> {
+        this.editSnapshot(user, versionUuid, data -> {
             data.edit(plugin, (snapshot) -> snapshot.setPinned(false));
-            this.updateSnapshot(user, data);
+            return true;
         });
     }
 
@@ -253,9 +772,9 @@ public abstract class Database {
      */
     @Blocking
     public final void pinSnapshot(@NotNull User user, @NotNull UUID versionUuid) {
-        this.getSnapshot(user, versionUuid).ifPresent(data -> {
+        this.editSnapshot(user, versionUuid, data -> {
             data.edit(plugin, (snapshot) -> snapshot.setPinned(true));
-            this.updateSnapshot(user, data);
+            return true;
         });
     }
 
@@ -311,6 +830,71 @@ public abstract class Database {
     @Blocking
     public abstract int getBoundMapId(@NotNull String fromServerName, int fromMapId, @NotNull String toServerName);
 
+    /**
+     * Get the server name and map ID of every map saved to the database
+     *
+     * @return the list of map keys, as server name (key) and map ID (value) entries
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public abstract List<Map.Entry<String, Integer>> getAllMapIds();
+
+    /**
+     * Get every map ID binding saved to the database
+     *
+     * @return the list of map bindings
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public abstract List<MapBinding> getAllMapBindings();
+
+    /**
+     * Get a page of snapshots as their encoded bytes, without decoding them, ordered by snapshot ID
+     *
+     * @param after the ID of the last snapshot of the previous page, or {@code null} to get the first page
+     * @param limit the maximum number of snapshots to get
+     * @return the page of encoded snapshots
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public abstract List<EncodedSnapshot> getEncodedSnapshotPage(@Nullable UUID after, int limit);
+
+    /**
+     * Get all of a user's snapshots as their encoded bytes, exactly as stored and without decoding them
+     *
+     * @param user the user to get snapshots for
+     * @return the user's encoded snapshots
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public abstract List<EncodedSnapshot> getEncodedSnapshots(@NotNull User user);
+
+    /**
+     * Replace the encoded bytes of snapshots in one batch, leaving everything else about them unchanged. Each
+     * snapshot is only replaced if its bytes haven't changed since it was read.
+     *
+     * @param replacements the snapshots as read, mapped to the bytes to replace them with
+     * @return the number of snapshots replaced
+     * @since 4.0
+     */
+    @Blocking
+    public abstract int replaceEncodedSnapshots(@NotNull Map<EncodedSnapshot, byte[]> replacements);
+
+    /**
+     * Replace the encoded bytes of maps in one batch. Each map is only replaced if its bytes haven't changed since
+     * it was read.
+     *
+     * @param replacements the maps as read, mapped to the bytes to replace them with
+     * @return the number of maps replaced
+     * @since 4.0
+     */
+    @Blocking
+    public abstract int replaceEncodedMaps(@NotNull Map<EncodedMap, byte[]> replacements);
+
     /**
      * Wipes <b>all</b> {@link User} entries from the database.
      * <b>This should only be used when preparing tables for a data migration.</b>
@@ -323,6 +907,52 @@ public abstract class Database {
      */
     public abstract void terminate();
 
+    /**
+     * A raw data snapshot row, read in a bulk query before being decoded
+     *
+     * @param playerUuid  the UUID of the user the snapshot belongs to
+     * @param versionUuid the snapshot ID
+     * @param timestamp   the snapshot timestamp
+     * @param data        the snapshot data
+     */
+    protected record SnapshotRow(@NotNull UUID playerUuid, @NotNull UUID versionUuid,
+                                 @NotNull OffsetDateTime timestamp, byte[] data) {
+    }
+
+    /**
+     * A snapshot's encoded bytes, as stored in the database
+     *
+     * @param playerUuid  the UUID of the user the snapshot belongs to
+     * @param versionUuid the snapshot ID
+     * @param data        the encoded snapshot
+     * @since 4.0
+     */
+    public record EncodedSnapshot(@NotNull UUID playerUuid, @NotNull UUID versionUuid, byte @NotNull [] data) {
+    }
+
+    /**
+     * A map's encoded bytes, as stored in the database
+     *
+     * @param serverName name of the server the map originates from
+     * @param mapId      original map ID
+     * @param data       the encoded map data
+     * @since 4.0
+     */
+    public record EncodedMap(@NotNull String serverName, int mapId, byte @NotNull [] data) {
+    }
+
+    /**
+     * Represents a binding of a map ID on one server to a map ID on another
+     *
+     * @param fromServerName name of the server the map originates from
+     * @param fromId         original map ID
+     * @param toServerName   name of the server the map is bound on
+     * @param toId           bound map ID
+     * @since 4.0
+     */
+    public record MapBinding(@NotNull String fromServerName, int fromId, @NotNull String toServerName, int toId) {
+    }
+
     /**
      * Identifies types of databases
      */
@@ -0,0 +1,220 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Records how long named database queries take to run and, for databases backed by a Hikari connection pool, how
+ * long queries wait for a pooled connection and how many connections are in use. Queries and connection waits that
+ * take longer than the configured thresholds are logged.
+ *
+ * @since 4.0
+ */
+public class DatabaseMetrics implements MetricsTrackerFactory {
+
+    private final HuskSync plugin;
+    private final Settings.DatabaseSettings.SlowQuerySettings settings;
+    private final Map<String, Timer> queries = new ConcurrentSkipListMap<>();
+    private final Timer connectionWait = new Timer("connection_wait");
+    private final LongAdder connectionTimeouts = new LongAdder();
+    @Nullable
+    private PoolStats pool;
+
+    DatabaseMetrics(@NotNull HuskSync plugin, @NotNull Settings.DatabaseSettings settings) {
+        this.plugin = plugin;
+        this.settings = settings.getSlowQueries();
+    }
+
+    /**
+     * Run a query, recording how long it took under the given name
+     *
+     * @param name  the name of the query
+     * @param query the query to run
+     * @param <T>   the type of the query result
+     * @return the query result
+     * @throws SQLException if the query fails
+     */
+    public <T> T time(@NotNull String name, @NotNull Query<T> query) throws SQLException {
+        final long start = System.nanoTime();
+        try {
+            return query.execute();
+        } finally {
+            record(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Record how long a query took to run
+     *
+     * @param name  the name of the query
+     * @param nanos the time the query took, in nanoseconds
+     */
+    public void record(@NotNull String name, long nanos) {
+        queries.computeIfAbsent(name, Timer::new).record(nanos);
+        final long threshold = settings.getThresholdMillis();
+        if (settings.isEnabled() && threshold > 0 && nanos >= threshold * 1_000_000L) {
+            plugin.log(Level.WARNING, "Slow database query: %s took %sms (threshold: %sms)"
+                    .formatted(name, nanos / 1_000_000L, threshold));
+        }
+    }
+
+    /**
+     * Track the connection pool of a Hikari data source. Must be called before the pool is started.
+     *
+     * @param dataSource the data source
+     */
+    void track(@NotNull HikariDataSource dataSource) {
+        dataSource.setMetricsTrackerFactory(this);
+    }
+
+    @NotNull
+    @Override
+    public IMetricsTracker create(@NotNull String poolName, @NotNull PoolStats poolStats) {
+        this.pool = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                connectionWait.record(elapsedAcquiredNanos);
+                final long threshold = settings.getConnectionWaitThresholdMillis();
+                if (settings.isEnabled() && threshold > 0 && elapsedAcquiredNanos >= threshold * 1_000_000L) {
+                    plugin.log(Level.WARNING, ("Slow database connection: waited %sms for a pooled connection "
+                                               + "(threshold: %sms, pool: %s)").formatted(
+                            elapsedAcquiredNanos / 1_000_000L, threshold, getPoolSummary().orElse("?")
+                    ));
+                }
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                connectionTimeouts.increment();
+            }
+        };
+    }
+
+    /**
+     * Get the timers of all queries that have been run, sorted by name
+     *
+     * @return the query timers
+     */
+    @NotNull
+    public List<Timer> getQueries() {
+        return List.copyOf(queries.values());
+    }
+
+    /**
+     * Get the timer of how long queries waited for a pooled connection
+     *
+     * @return the connection wait timer
+     */
+    @NotNull
+    public Timer getConnectionWait() {
+        return connectionWait;
+    }
+
+    public long getConnectionTimeouts() {
+        return connectionTimeouts.sum();
+    }
+
+    /**
+     * Get a summary of the state of the connection pool, if the database is backed by a Hikari pool
+     *
+     * @return the summary of active, idle and total connections, and the number of threads waiting for one
+     */
+    public Optional<String> getPoolSummary() {
+        final PoolStats stats = this.pool;
+        if (stats == null) {
+            return Optional.empty();
+        }
+        return Optional.of("%s active, %s idle, %s/%s total, %s waiting".formatted(
+                stats.getActiveConnections(), stats.getIdleConnections(), stats.getTotalConnections(),
+                stats.getMaxConnections(), stats.getPendingThreads()
+        ));
+    }
+
+    /**
+     * A query that can be timed
+     *
+     * @param <T> the type of the query result
+     */
+    @FunctionalInterface
+    public interface Query<T> {
+        T execute() throws SQLException;
+    }
+
+    /**
+     * Records the number of times something was timed, and the total and longest time taken
+     */
+    public static final class Timer {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Timer(@NotNull String name) {
+            this.name = name;
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        @NotNull
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMillis() {
+            final long count = getCount();
+            return count == 0 ? 0 : totalNanos.sum() / (count * 1_000_000d);
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1_000_000d;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return "%s: %s, avg %.1fms, max %.1fms".formatted(name, getCount(), getMeanMillis(), getMaxMillis());
+        }
+    }
+
+}
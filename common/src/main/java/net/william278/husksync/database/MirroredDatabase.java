@@ -0,0 +1,385 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.database;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.user.User;
+import org.jetbrains.annotations.Blocking;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * A database that reads from a primary database and writes to both it and a target database, used to keep a
+ * target database up-to-date while data is migrated to it (see {@link net.william278.husksync.migrator.DatabaseMigrator}).
+ * <p>
+ * Writes are made to the primary database first. A failed write to the target is logged and does not fail the
+ * write to the primary; differences left by failed writes are repaired by the migrator's verification pass.
+ * Revision-checked writes are checked against the primary only. The writes they make to the target are held back
+ * until the primary's transaction has committed, then made in one write to the target that bumps its revision too.
+ *
+ * @since 4.0
+ */
+@Getter
+public class MirroredDatabase extends Database {
+
+    private static final int FENCE_STRIPES = 64;
+
+    private final Database primary;
+    private final Database target;
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<List<Runnable>> deferred = new ThreadLocal<>();
+    @Getter(AccessLevel.NONE)
+    private final Striped<Lock> fences = Striped.lock(FENCE_STRIPES);
+
+    public MirroredDatabase(@NotNull HuskSync plugin, @NotNull Database primary, @NotNull Database target) {
+        super(plugin, plugin.getSettings().getDatabase(), primary.getMetrics());
+        this.primary = primary;
+        this.target = target;
+    }
+
+    @Blocking
+    @Override
+    public void initialize() throws IllegalStateException {
+        primary.initialize();
+        target.initialize();
+    }
+
+    @Blocking
+    @Override
+    public void ensureUser(@NotNull User user) {
+        fence(List.of(user), () -> {
+            primary.ensureUser(user);
+            mirror(() -> target.ensureUser(user));
+            return null;
+        });
+    }
+
+    @Blocking
+    @Override
+    public Optional<User> getUser(@NotNull UUID uuid) {
+        return primary.getUser(uuid);
+    }
+
+    @Blocking
+    @Override
+    public Optional<User> getUserByName(@NotNull String username) {
+        return primary.getUserByName(username);
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<User> getAllUsers() {
+        return primary.getAllUsers();
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<User> getUserPage(@Nullable UUID after, int limit) {
+        return primary.getUserPage(after, limit);
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<User> getUsers(@NotNull Collection<UUID> uuids) {
+        return primary.getUsers(uuids);
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public Map<UUID, DataSnapshot.Packed> getLatestSnapshots(@NotNull Collection<User> users) {
+        return primary.getLatestSnapshots(users);
+    }
+
+    @Blocking
+    @Override
+    public Optional<DataSnapshot.Packed> getLatestSnapshot(@NotNull User user) {
+        return primary.getLatestSnapshot(user);
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<DataSnapshot.Packed> getAllSnapshots(@NotNull User user) {
+        return primary.getAllSnapshots(user);
+    }
+
+    @Blocking
+    @Override
+    public int getUnpinnedSnapshotCount(@NotNull User user) {
+        return primary.getUnpinnedSnapshotCount(user);
+    }
+
+    @Blocking
+    @Override
+    public Optional<DataSnapshot.Packed> getSnapshot(@NotNull User user, @NotNull UUID versionUuid) {
+        return primary.getSnapshot(user, versionUuid);
+    }
+
+    @Blocking
+    @Override
+    protected void rotateSnapshots(@NotNull User user) {
+        fence(List.of(user), () -> {
+            primary.rotateSnapshots(user);
+            mirror(() -> target.rotateSnapshots(user));
+            return null;
+        });
+    }
+
+    @Blocking
+    @Override
+    public boolean deleteSnapshot(@NotNull User user, @NotNull UUID versionUuid) {
+        return fence(List.of(user), () -> {
+            final boolean deleted = primary.deleteSnapshot(user, versionUuid);
+            mirror(() -> target.deleteSnapshot(user, versionUuid));
+            return deleted;
+        });
+    }
+
+    @Blocking
+    @Override
+    protected void rotateLatestSnapshot(@NotNull User user, @NotNull OffsetDateTime within) {
+        fence(List.of(user), () -> {
+            primary.rotateLatestSnapshot(user, within);
+            mirror(() -> target.rotateLatestSnapshot(user, within));
+            return null;
+        });
+    }
+
+    @Blocking
+    @Override
+    protected void createSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed data) {
+        fence(List.of(user), () -> {
+            primary.createSnapshot(user, data);
+            mirror(() -> target.createSnapshot(user, data));
+            return null;
+        });
+    }
+
+    @Blocking
+    @Override
+    @NotNull
+    public Set<User> addSnapshots(@NotNull Map<User, DataSnapshot.Packed> snapshots) {
+        return fence(snapshots.keySet(), () -> {
+            final Set<User> failed = primary.addSnapshots(snapshots);
+            mirror(() -> target.addSnapshots(snapshots));
+            return failed;
+        });
+    }
+
+    @Blocking
+    @Override
+    public void importSnapshots(@NotNull Map<User, List<DataSnapshot.Packed>> snapshots) {
+        fence(snapshots.keySet(), () -> {
+            primary.importSnapshots(snapshots);
+            mirror(() -> target.importSnapshots(snapshots));
+            return null;
+        });
+    }
+
+    @Blocking
+    @Override
+    protected void replaceSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed snapshot) {
+        fence(List.of(user), () -> {
+            primary.replaceSnapshot(user, snapshot);
+            mirror(() -> target.replaceSnapshot(user, snapshot));
+            return null;
+        });
+    }
+
+    @Blocking
+    @Override
+    public long getRevision(@NotNull User user) {
+        return primary.getRevision(user);
+    }
+
+    // Revisions are only checked against the primary. The target writes made while it runs are held back until it
+    // has committed, then made together in a write to the target that bumps the target revision as well
+    @Blocking
+    @Override
+    protected boolean writeIfRevision(@NotNull User user, long expectedRevision, @NotNull Runnable write) {
+        return fence(List.of(user), () -> {
+            final List<Runnable> writes = new ArrayList<>();
+            final List<Runnable> outer = deferred.get();
+            deferred.set(writes);
+            final boolean written;
+            try {
+                written = primary.writeIfRevision(user, expectedRevision, write);
+            } finally {
+                if (outer != null) {
+                    deferred.set(outer);
+                } else {
+                    deferred.remove();
+                }
+            }
+            if (written && !writes.isEmpty()) {
+                mirror(() -> target.writeIfRevision(user, ANY_REVISION, () -> writes.forEach(Runnable::run)));
+            }
+            return written;
+        });
+    }
+
+    @Blocking
+    @Override
+    public void saveMapData(@NotNull String serverName, int mapId, byte @NotNull [] data) {
+        primary.saveMapData(serverName, mapId, data);
+        mirror(() -> target.saveMapData(serverName, mapId, data));
+    }
+
+    @Blocking
+    @Override
+    public byte @Nullable [] getMapData(@NotNull String serverName, int mapId) {
+        return primary.getMapData(serverName, mapId);
+    }
+
+    @Blocking
+    @Override
+    public @Nullable Map.Entry<String, Integer> getMapBinding(@NotNull String serverName, int mapId) {
+        return primary.getMapBinding(serverName, mapId);
+    }
+
+    @Blocking
+    @Override
+    public void setMapBinding(@NotNull String fromServerName, int fromMapId, @NotNull String toServerName, int toMapId) {
+        primary.setMapBinding(fromServerName, fromMapId, toServerName, toMapId);
+        mirror(() -> target.setMapBinding(fromServerName, fromMapId, toServerName, toMapId));
+    }
+
+    @Blocking
+    @Override
+    public int getBoundMapId(@NotNull String fromServerName, int fromMapId, @NotNull String toServerName) {
+        return primary.getBoundMapId(fromServerName, fromMapId, toServerName);
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<Map.Entry<String, Integer>> getAllMapIds() {
+        return primary.getAllMapIds();
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<MapBinding> getAllMapBindings() {
+        return primary.getAllMapBindings();
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<EncodedSnapshot> getEncodedSnapshotPage(@Nullable UUID after, int limit) {
+        return primary.getEncodedSnapshotPage(after, limit);
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<EncodedSnapshot> getEncodedSnapshots(@NotNull User user) {
+        return primary.getEncodedSnapshots(user);
+    }
+
+    @Blocking
+    @Override
+    public int replaceEncodedSnapshots(@NotNull Map<EncodedSnapshot, byte[]> replacements) {
+        final int replaced = primary.replaceEncodedSnapshots(replacements);
+        mirror(() -> target.replaceEncodedSnapshots(replacements));
+        return replaced;
+    }
+
+    @Blocking
+    @Override
+    public int replaceEncodedMaps(@NotNull Map<EncodedMap, byte[]> replacements) {
+        final int replaced = primary.replaceEncodedMaps(replacements);
+        mirror(() -> target.replaceEncodedMaps(replacements));
+        return replaced;
+    }
+
+    @Blocking
+    @Override
+    public void wipeDatabase() {
+        primary.wipeDatabase();
+        mirror(target::wipeDatabase);
+    }
+
+    @Override
+    public void terminate() {
+        primary.terminate();
+        target.terminate();
+    }
+
+    /**
+     * Run an action while writes to a user's data through this database are held back, e.g. so the migrator can
+     * repair the user's data on the target without losing a write made at the same time. Only writes made by this
+     * server are held back.
+     *
+     * @param user   the user
+     * @param action the action to run
+     * @param <T>    the type of the action result
+     * @return the action result
+     */
+    @Blocking
+    public <T> T fence(@NotNull User user, @NotNull Supplier<T> action) {
+        return fence(List.of(user), action);
+    }
+
+    // Hold the fences of the given users while running an action. Locks are taken in stripe order, so concurrent
+    // writes for overlapping sets of users can't deadlock
+    private <T> T fence(@NotNull Collection<User> users, @NotNull Supplier<T> action) {
+        final List<Lock> locks = Lists.newArrayList(fences.bulkGet(users.stream().map(User::getUuid).toList()));
+        locks.forEach(Lock::lock);
+        try {
+            return action.get();
+        } finally {
+            Lists.reverse(locks).forEach(Lock::unlock);
+        }
+    }
+
+    // Run a write against the target database, logging rather than propagating failures. Writes made during a
+    // revision-checked write are held back, to be made once it has committed
+    private void mirror(@NotNull Runnable write) {
+        final List<Runnable> writes = deferred.get();
+        if (writes != null) {
+            writes.add(write);
+            return;
+        }
+        try {
+            write.run();
+        } catch (Throwable e) {
+            plugin.log(Level.WARNING, "Failed to mirror a write to the target %s database"
+                    .formatted(target.settings.getType().getDisplayName()), e);
+        }
+    }
+
+}
@@ -22,8 +22,18 @@ package net.william278.husksync.database;
 import com.google.common.collect.Lists;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoException;
+import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.config.Settings;
 import net.william278.husksync.data.DataSnapshot;
@@ -46,29 +56,36 @@ public class MongoDbDatabase extends Database {
     private MongoConnectionHandler mongoConnectionHandler;
     private MongoCollectionHelper mongoCollectionHelper;
 
+    // Whether a revision-checked write is running on the current thread, in which case failed writes are rethrown
+    private final ThreadLocal<Boolean> revisionWrite = ThreadLocal.withInitial(() -> false);
+
     private final String usersTable;
     private final String userDataTable;
     private final String mapDataTable;
     private final String mapIdsTable;
 
     public MongoDbDatabase(@NotNull HuskSync plugin) {
-        super(plugin);
-        this.usersTable = plugin.getSettings().getDatabase().getTableName(TableName.USERS);
-        this.userDataTable = plugin.getSettings().getDatabase().getTableName(TableName.USER_DATA);
-        this.mapDataTable = plugin.getSettings().getDatabase().getTableName(TableName.MAP_DATA);
-        this.mapIdsTable = plugin.getSettings().getDatabase().getTableName(TableName.MAP_IDS);
+        this(plugin, plugin.getSettings().getDatabase());
+    }
+
+    public MongoDbDatabase(@NotNull HuskSync plugin, @NotNull Settings.DatabaseSettings settings) {
+        super(plugin, settings);
+        this.usersTable = settings.getTableName(TableName.USERS);
+        this.userDataTable = settings.getTableName(TableName.USER_DATA);
+        this.mapDataTable = settings.getTableName(TableName.MAP_DATA);
+        this.mapIdsTable = settings.getTableName(TableName.MAP_IDS);
     }
 
     @Override
     public void initialize() throws IllegalStateException {
-        final Settings.DatabaseSettings.DatabaseCredentials credentials = plugin.getSettings().getDatabase().getCredentials();
+        final Settings.DatabaseSettings.DatabaseCredentials credentials = settings.getCredentials();
         try {
             ConnectionString URI = createConnectionURI(credentials);
             mongoConnectionHandler = new MongoConnectionHandler(URI, credentials.getDatabase());
             mongoCollectionHelper = new MongoCollectionHelper(mongoConnectionHandler);
 
             // Check config for if tables should be created
-            if (!plugin.getSettings().getDatabase().isCreateTables()) return;
+            if (!settings.isCreateTables()) return;
 
             if (mongoCollectionHelper.getCollection(usersTable) == null) {
                 mongoCollectionHelper.createCollection(usersTable);
@@ -90,14 +107,14 @@ public class MongoDbDatabase extends Database {
 
     @NotNull
     private ConnectionString createConnectionURI(Settings.DatabaseSettings.DatabaseCredentials credentials) {
-        String baseURI = plugin.getSettings().getDatabase().getMongoSettings().isUsingAtlas() ?
+        String baseURI = settings.getMongoSettings().isUsingAtlas() ?
                 "mongodb+srv://{0}:{1}@{2}/{4}{5}" : "mongodb://{0}:{1}@{2}:{3}/{4}{5}";
         baseURI = baseURI.replace("{0}", credentials.getUsername());
         baseURI = baseURI.replace("{1}", credentials.getPassword());
         baseURI = baseURI.replace("{2}", credentials.getHost());
         baseURI = baseURI.replace("{3}", String.valueOf(credentials.getPort()));
         baseURI = baseURI.replace("{4}", credentials.getDatabase());
-        baseURI = baseURI.replace("{5}", plugin.getSettings().getDatabase().getMongoSettings().getParameters());
+        baseURI = baseURI.replace("{5}", settings.getMongoSettings().getParameters());
         return new ConnectionString(baseURI);
     }
 
@@ -178,10 +195,7 @@ public class MongoDbDatabase extends Database {
         try {
             final FindIterable<Document> doc = mongoCollectionHelper.getCollection(usersTable).find();
             for (Document document : doc) {
-                users.add(new User(
-                        UUID.fromString(document.getString("uuid")),
-                        document.getString("username")
-                ));
+                users.add(new User(document.get("uuid", UUID.class), document.getString("username")));
             }
         } catch (MongoException e) {
             plugin.log(Level.SEVERE, "Failed to get all users from the database", e);
@@ -189,6 +203,74 @@ public class MongoDbDatabase extends Database {
         return users;
     }
 
+    @Blocking
+    @Override
+    @NotNull
+    public List<User> getUserPage(@Nullable UUID after, int limit) {
+        final List<User> users = Lists.newArrayList();
+        try {
+            final Bson filter = after != null ? Filters.gt("uuid", after) : new Document();
+            final FindIterable<Document> doc = mongoCollectionHelper.getCollection(usersTable)
+                    .find(filter).sort(new Document("uuid", 1)).limit(limit).batchSize(limit);
+            for (Document document : doc) {
+                users.add(new User(document.get("uuid", UUID.class), document.getString("username")));
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to get a page of users from the database", e);
+        }
+        return users;
+    }
+
+    @Blocking
+    @Override
+    @NotNull
+    public List<User> getUsers(@NotNull Collection<UUID> uuids) {
+        final List<User> users = Lists.newArrayList();
+        try {
+            for (List<UUID> batch : Lists.partition(List.copyOf(uuids), MAX_BULK_QUERY_SIZE)) {
+                final FindIterable<Document> docs = mongoCollectionHelper.getCollection(usersTable)
+                        .find(Filters.in("uuid", batch));
+                for (Document document : docs) {
+                    users.add(new User(document.get("uuid", UUID.class), document.getString("username")));
+                }
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to get users from the database", e);
+        }
+        return users;
+    }
+
+    @Blocking
+    @Override
+    @NotNull
+    public Map<UUID, DataSnapshot.Packed> getLatestSnapshots(@NotNull Collection<User> users) {
+        final List<SnapshotRow> rows = Lists.newArrayList();
+        try {
+            for (List<User> batch : Lists.partition(List.copyOf(users), MAX_BULK_QUERY_SIZE)) {
+                final AggregateIterable<Document> docs = mongoCollectionHelper.getCollection(userDataTable).aggregate(
+                        List.of(
+                                Aggregates.match(Filters.in("player_uuid", batch.stream().map(User::getUuid).toList())),
+                                Aggregates.sort(Sorts.descending("timestamp")),
+                                Aggregates.group("$player_uuid", Accumulators.first("latest", "$$ROOT"))
+                        )
+                ).allowDiskUse(true);
+                for (Document result : docs) {
+                    final Document doc = result.get("latest", Document.class);
+                    rows.add(new SnapshotRow(
+                            doc.get("player_uuid", UUID.class),
+                            doc.get("version_uuid", UUID.class),
+                            OffsetDateTime.ofInstant(Instant.ofEpochMilli((long) doc.get("timestamp")),
+                                    TimeZone.getDefault().toZoneId()),
+                            doc.get("data", Binary.class).getData()
+                    ));
+                }
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to get users' latest snapshots from the database", e);
+        }
+        return decodeLatestSnapshots(rows);
+    }
+
     @Blocking
     @Override
     public Optional<DataSnapshot.Packed> getLatestSnapshot(@NotNull User user) {
@@ -325,7 +407,7 @@ public class MongoDbDatabase extends Database {
                 }
             }
         } catch (MongoException e) {
-            plugin.log(Level.SEVERE, "Failed to rotate latest snapshot from the database", e);
+            failWrite("Failed to rotate latest snapshot from the database", e);
         }
     }
 
@@ -341,13 +423,13 @@ public class MongoDbDatabase extends Database {
                     .append("data", new Binary(data.asBytes(plugin)));
             mongoCollectionHelper.insertDocument(userDataTable, doc);
         } catch (MongoException e) {
-            plugin.log(Level.SEVERE, "Failed to set user data in the database", e);
+            failWrite("Failed to set user data in the database", e);
         }
     }
 
     @Blocking
     @Override
-    public void updateSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed data) {
+    protected void replaceSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed data) {
         try {
             Document doc = new Document("player_uuid", user.getUuid()).append("version_uuid", data.getId());
             Bson updates = Updates.combine(
@@ -357,8 +439,82 @@ public class MongoDbDatabase extends Database {
             );
             mongoCollectionHelper.updateDocument(userDataTable, doc, updates);
         } catch (MongoException e) {
-            plugin.log(Level.SEVERE, "Failed to update snapshot in the database", e);
+            failWrite("Failed to update snapshot in the database", e);
+        }
+    }
+
+    @Blocking
+    @Override
+    public long getRevision(@NotNull User user) {
+        try {
+            final Document doc = mongoCollectionHelper.getCollection(usersTable)
+                    .find(Filters.eq("uuid", user.getUuid())).first();
+            if (doc != null && doc.get("revision") instanceof Number revision) {
+                return revision.longValue();
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to get a user's revision from the database", e);
         }
+        return 0;
+    }
+
+    // Multi-document transactions need a replica set, so the revision is incremented first, which claims the write
+    // against concurrent revision-checked writes, and the increment is undone if the write fails. If the server stops
+    // between the two, the revision is left one ahead, which only makes the next revision-checked write retry
+    @Blocking
+    @Override
+    protected boolean writeIfRevision(@NotNull User user, long expectedRevision, @NotNull Runnable write) {
+        final Document claimed;
+        try {
+            Bson filter = Filters.eq("uuid", user.getUuid());
+            if (expectedRevision != ANY_REVISION) {
+                filter = Filters.and(filter, expectedRevision == 0
+                        ? Filters.or(Filters.eq("revision", 0L), Filters.exists("revision", false))
+                        : Filters.eq("revision", expectedRevision));
+            }
+            claimed = mongoCollectionHelper.getCollection(usersTable).findOneAndUpdate(filter,
+                    Updates.inc("revision", 1L), new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+            if (claimed == null && expectedRevision != ANY_REVISION) {
+                return false;
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to update a user's revision in the database", e);
+            return false;
+        }
+
+        revisionWrite.set(true);
+        try {
+            write.run();
+            return true;
+        } catch (RuntimeException e) {
+            plugin.log(Level.SEVERE, "Failed to write user data to the database", e);
+            if (claimed != null) {
+                undoRevision(user, claimed.get("revision", Number.class).longValue());
+            }
+            return false;
+        } finally {
+            revisionWrite.remove();
+        }
+    }
+
+    // Undo the increment of a failed revision-checked write, unless the user's data has been written to since
+    private void undoRevision(@NotNull User user, long revision) {
+        try {
+            mongoCollectionHelper.getCollection(usersTable).updateOne(
+                    Filters.and(Filters.eq("uuid", user.getUuid()), Filters.eq("revision", revision)),
+                    Updates.inc("revision", -1L)
+            );
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to undo a user's revision in the database", e);
+        }
+    }
+
+    // Log a failed write, or rethrow it if it's part of a revision-checked write, so its revision is undone
+    private void failWrite(@NotNull String message, @NotNull Exception e) {
+        if (revisionWrite.get()) {
+            throw new IllegalStateException(message, e);
+        }
+        plugin.log(Level.SEVERE, message, e);
     }
 
     @Blocking
@@ -440,6 +596,128 @@ public class MongoDbDatabase extends Database {
         }
     }
 
+    @NotNull
+    @Blocking
+    @Override
+    public List<Map.Entry<String, Integer>> getAllMapIds() {
+        final List<Map.Entry<String, Integer>> mapIds = Lists.newArrayList();
+        try {
+            final FindIterable<Document> iterable = mongoCollectionHelper.getCollection(mapDataTable).find()
+                    .projection(new Document("server_name", 1).append("map_id", 1));
+            for (Document doc : iterable) {
+                mapIds.add(new AbstractMap.SimpleImmutableEntry<>(doc.getString("server_name"), doc.getInteger("map_id")));
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to get map IDs from the database", e);
+        }
+        return mapIds;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<MapBinding> getAllMapBindings() {
+        final List<MapBinding> bindings = Lists.newArrayList();
+        try {
+            for (Document doc : mongoCollectionHelper.getCollection(mapIdsTable).find()) {
+                bindings.add(new MapBinding(
+                        doc.getString("from_server_name"),
+                        doc.getInteger("from_id"),
+                        doc.getString("to_server_name"),
+                        doc.getInteger("to_id")
+                ));
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to get map bindings from the database", e);
+        }
+        return bindings;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<EncodedSnapshot> getEncodedSnapshotPage(@Nullable UUID after, int limit) {
+        final List<EncodedSnapshot> snapshots = Lists.newArrayList();
+        try {
+            final Bson filter = after != null ? Filters.gt("version_uuid", after) : new Document();
+            final FindIterable<Document> docs = mongoCollectionHelper.getCollection(userDataTable)
+                    .find(filter).sort(Sorts.ascending("version_uuid")).limit(limit).batchSize(limit);
+            for (Document doc : docs) {
+                snapshots.add(new EncodedSnapshot(
+                        doc.get("player_uuid", UUID.class),
+                        doc.get("version_uuid", UUID.class),
+                        doc.get("data", Binary.class).getData()
+                ));
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to get a page of encoded snapshots from the database", e);
+        }
+        return snapshots;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<EncodedSnapshot> getEncodedSnapshots(@NotNull User user) {
+        final List<EncodedSnapshot> snapshots = Lists.newArrayList();
+        try {
+            final FindIterable<Document> docs = mongoCollectionHelper.getCollection(userDataTable)
+                    .find(new Document("player_uuid", user.getUuid()));
+            for (Document doc : docs) {
+                snapshots.add(new EncodedSnapshot(
+                        user.getUuid(),
+                        doc.get("version_uuid", UUID.class),
+                        doc.get("data", Binary.class).getData()
+                ));
+            }
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to get a user's encoded snapshots from the database", e);
+        }
+        return snapshots;
+    }
+
+    @Blocking
+    @Override
+    public int replaceEncodedSnapshots(@NotNull Map<EncodedSnapshot, byte[]> replacements) {
+        if (replacements.isEmpty()) {
+            return 0;
+        }
+        try {
+            final List<WriteModel<Document>> updates = Lists.newArrayList();
+            replacements.forEach((snapshot, data) -> updates.add(new UpdateOneModel<>(
+                    Filters.and(Filters.eq("version_uuid", snapshot.versionUuid()),
+                            Filters.eq("data", new Binary(snapshot.data()))),
+                    Updates.set("data", new Binary(data))
+            )));
+            return mongoCollectionHelper.getCollection(userDataTable)
+                    .bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to replace encoded snapshots in the database", e);
+        }
+        return 0;
+    }
+
+    @Blocking
+    @Override
+    public int replaceEncodedMaps(@NotNull Map<EncodedMap, byte[]> replacements) {
+        if (replacements.isEmpty()) {
+            return 0;
+        }
+        try {
+            final List<WriteModel<Document>> updates = Lists.newArrayList();
+            replacements.forEach((map, data) -> updates.add(new UpdateOneModel<>(
+                    Filters.and(Filters.eq("server_name", map.serverName()), Filters.eq("map_id", map.mapId()),
+                            Filters.eq("data", new Binary(map.data()))),
+                    Updates.set("data", new Binary(data))
+            )));
+            return mongoCollectionHelper.getCollection(mapDataTable)
+                    .bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        } catch (MongoException e) {
+            plugin.log(Level.SEVERE, "Failed to replace encoded map data in the database", e);
+        }
+        return 0;
+    }
+
     @Blocking
     @Override
     public void wipeDatabase() {
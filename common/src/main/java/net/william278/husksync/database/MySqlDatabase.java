@@ -45,10 +45,17 @@ public class MySqlDatabase extends Database {
     private final String driverClass;
     private HikariDataSource dataSource;
 
+    // Connection of the revision-checked write transaction running on the current thread, if any
+    private final ThreadLocal<Connection> transaction = new ThreadLocal<>();
+
     public MySqlDatabase(@NotNull HuskSync plugin) {
-        super(plugin);
+        this(plugin, plugin.getSettings().getDatabase());
+    }
 
-        final Type type = plugin.getSettings().getDatabase().getType();
+    public MySqlDatabase(@NotNull HuskSync plugin, @NotNull DatabaseSettings settings) {
+        super(plugin, settings);
+
+        final Type type = settings.getType();
         this.flavor = type.getProtocol();
         this.driverClass = type == Type.MARIADB ? "org.mariadb.jdbc.Driver" : "com.mysql.cj.jdbc.Driver";
     }
@@ -65,6 +72,10 @@ public class MySqlDatabase extends Database {
         if (dataSource == null) {
             throw new IllegalStateException("The database has not been initialized");
         }
+        final Connection transaction = this.transaction.get();
+        if (transaction != null) {
+            return uncloseable(transaction);
+        }
         return dataSource.getConnection();
     }
 
@@ -72,7 +83,7 @@ public class MySqlDatabase extends Database {
     @Override
     public void initialize() throws IllegalStateException {
         // Initialize the Hikari pooled connection
-        final DatabaseSettings.DatabaseCredentials credentials = plugin.getSettings().getDatabase().getCredentials();
+        final DatabaseSettings.DatabaseCredentials credentials = settings.getCredentials();
         dataSource = new HikariDataSource();
         dataSource.setDriverClassName(driverClass);
         dataSource.setJdbcUrl(String.format("jdbc:%s://%s:%s/%s%s",
@@ -88,13 +99,14 @@ public class MySqlDatabase extends Database {
         dataSource.setPassword(credentials.getPassword());
 
         // Set connection pool options
-        final DatabaseSettings.PoolSettings pool = plugin.getSettings().getDatabase().getConnectionPool();
+        final DatabaseSettings.PoolSettings pool = settings.getConnectionPool();
         dataSource.setMaximumPoolSize(pool.getMaximumPoolSize());
         dataSource.setMinimumIdle(pool.getMinimumIdle());
         dataSource.setMaxLifetime(pool.getMaximumLifetime());
         dataSource.setKeepaliveTime(pool.getKeepaliveTime());
         dataSource.setConnectionTimeout(pool.getConnectionTimeout());
         dataSource.setPoolName(DATA_POOL_NAME);
+        metrics.track(dataSource);
 
         // Set additional connection pool properties
         final Properties properties = new Properties();
@@ -116,8 +128,18 @@ public class MySqlDatabase extends Database {
         );
         dataSource.setDataSourceProperties(properties);
 
-        // Check config for if tables should be created
-        if (!plugin.getSettings().getDatabase().isCreateTables()) return;
+        // Check config for if tables should be created. Revision-checked writes need the revision column, so it is
+        // added to users tables created before it was introduced either way
+        if (!settings.isCreateTables()) {
+            try (Connection connection = dataSource.getConnection()) {
+                addRevisionColumn(connection);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to add the revision column to the users table. Please ensure " +
+                        "your connecting user account has privileges to alter tables, or add the column yourself " +
+                        "(see the database schema).", e);
+            }
+            return;
+        }
 
         // Prepare database schema; make tables if they don't exist
         try (Connection connection = dataSource.getConnection()) {
@@ -126,6 +148,7 @@ public class MySqlDatabase extends Database {
                 for (String tableCreationStatement : databaseSchema) {
                     statement.execute(tableCreationStatement);
                 }
+                addRevisionColumn(connection);
             } catch (SQLException e) {
                 throw new IllegalStateException("Failed to create database tables. Please ensure you are running MySQL v8.0+ " +
                         "and that your connecting user account has privileges to create tables.", e);
@@ -136,6 +159,25 @@ public class MySqlDatabase extends Database {
         }
     }
 
+    // Add the revision column to users tables created before it was introduced
+    private void addRevisionColumn(@NotNull Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT COUNT(*)
+                FROM information_schema.COLUMNS
+                WHERE `TABLE_SCHEMA`=DATABASE() AND `TABLE_NAME`=? AND `COLUMN_NAME`='revision';""")) {
+            statement.setString(1, settings.getTableName(TableName.USERS));
+            final ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next() && resultSet.getInt(1) > 0) {
+                return;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(formatStatementTables("""
+                    ALTER TABLE `%users_table%`
+                    ADD COLUMN `revision` bigint NOT NULL DEFAULT 0;"""));
+        }
+    }
+
     @Blocking
     @Override
     public void ensureUser(@NotNull User user) {
@@ -151,7 +193,7 @@ public class MySqlDatabase extends Database {
 
                                 statement.setString(1, user.getName());
                                 statement.setString(2, existingUser.getUuid().toString());
-                                statement.executeUpdate();
+                                metrics.time("update_username", statement::executeUpdate);
                             }
                             plugin.log(Level.INFO, "Updated " + user.getName() + "'s name in the database ("
                                     + existingUser.getName() + " -> " + user.getName() + ")");
@@ -169,7 +211,7 @@ public class MySqlDatabase extends Database {
 
                             statement.setString(1, user.getUuid().toString());
                             statement.setString(2, user.getName());
-                            statement.executeUpdate();
+                            metrics.time("insert_user", statement::executeUpdate);
                         }
                     } catch (SQLException e) {
                         plugin.log(Level.SEVERE, "Failed to insert a user into the database", e);
@@ -189,7 +231,7 @@ public class MySqlDatabase extends Database {
 
                 statement.setString(1, uuid.toString());
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_user", statement::executeQuery);
                 if (resultSet.next()) {
                     return Optional.of(new User(UUID.fromString(resultSet.getString("uuid")),
                             resultSet.getString("username")));
@@ -211,7 +253,7 @@ public class MySqlDatabase extends Database {
                     WHERE `username`=?"""))) {
                 statement.setString(1, username);
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_user_by_name", statement::executeQuery);
                 if (resultSet.next()) {
                     return Optional.of(new User(UUID.fromString(resultSet.getString("uuid")),
                             resultSet.getString("username")));
@@ -232,7 +274,7 @@ public class MySqlDatabase extends Database {
                     SELECT `uuid`, `username`
                     FROM `%users_table%`;
                     """))) {
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_all_users", statement::executeQuery);
                 while (resultSet.next()) {
                     users.add(new User(UUID.fromString(resultSet.getString("uuid")),
                             resultSet.getString("username")));
@@ -244,6 +286,107 @@ public class MySqlDatabase extends Database {
         return users;
     }
 
+    @Blocking
+    @Override
+    @NotNull
+    public List<User> getUserPage(@Nullable UUID after, int limit) {
+        final List<User> users = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT `uuid`, `username`
+                    FROM `%users_table%`
+                    WHERE `uuid` > ?
+                    ORDER BY `uuid` ASC
+                    LIMIT ?;"""))) {
+                statement.setString(1, after != null ? after.toString() : "");
+                statement.setInt(2, limit);
+                statement.setFetchSize(limit);
+                final ResultSet resultSet = metrics.time("get_user_page", statement::executeQuery);
+                while (resultSet.next()) {
+                    users.add(new User(UUID.fromString(resultSet.getString("uuid")),
+                            resultSet.getString("username")));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch a page of users from the database", e);
+        }
+        return users;
+    }
+
+    @Blocking
+    @Override
+    @NotNull
+    public List<User> getUsers(@NotNull Collection<UUID> uuids) {
+        final List<User> users = Lists.newArrayList();
+        if (uuids.isEmpty()) {
+            return users;
+        }
+        try (Connection connection = getConnection()) {
+            for (List<UUID> batch : Lists.partition(List.copyOf(uuids), MAX_BULK_QUERY_SIZE)) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `uuid`, `username`
+                        FROM `%users_table%`
+                        WHERE `uuid` IN (%uuids%);""").replace("%uuids%", getPlaceholders(batch.size())))) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setString(i + 1, batch.get(i).toString());
+                    }
+                    final ResultSet resultSet = metrics.time("get_users", statement::executeQuery);
+                    while (resultSet.next()) {
+                        users.add(new User(UUID.fromString(resultSet.getString("uuid")),
+                                resultSet.getString("username")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch users from the database", e);
+        }
+        return users;
+    }
+
+    @Blocking
+    @Override
+    @NotNull
+    public Map<UUID, DataSnapshot.Packed> getLatestSnapshots(@NotNull Collection<User> users) {
+        final List<SnapshotRow> rows = Lists.newArrayList();
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+        try (Connection connection = getConnection()) {
+            for (List<User> batch : Lists.partition(List.copyOf(users), MAX_BULK_QUERY_SIZE)) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT `d`.`player_uuid`, `d`.`version_uuid`, `d`.`timestamp`, `d`.`data`
+                        FROM `%user_data_table%` `d`
+                        INNER JOIN (
+                            SELECT `player_uuid`, MAX(`timestamp`) AS `latest`
+                            FROM `%user_data_table%`
+                            WHERE `player_uuid` IN (%uuids%)
+                            GROUP BY `player_uuid`
+                        ) `l` ON `d`.`player_uuid`=`l`.`player_uuid` AND `d`.`timestamp`=`l`.`latest`;""")
+                        .replace("%uuids%", getPlaceholders(batch.size())))) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setString(i + 1, batch.get(i).getUuid().toString());
+                    }
+                    final ResultSet resultSet = metrics.time("latest_snapshots", statement::executeQuery);
+                    while (resultSet.next()) {
+                        final Blob blob = resultSet.getBlob("data");
+                        final byte[] dataByteArray = blob.getBytes(1, (int) blob.length());
+                        blob.free();
+                        rows.add(new SnapshotRow(
+                                UUID.fromString(resultSet.getString("player_uuid")),
+                                UUID.fromString(resultSet.getString("version_uuid")),
+                                OffsetDateTime.ofInstant(resultSet.getTimestamp("timestamp").toInstant(),
+                                        TimeZone.getDefault().toZoneId()),
+                                dataByteArray
+                        ));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch users' latest data snapshots from the database", e);
+        }
+        return decodeLatestSnapshots(rows);
+    }
+
     @Blocking
     @Override
     public Optional<DataSnapshot.Packed> getLatestSnapshot(@NotNull User user) {
@@ -255,7 +398,7 @@ public class MySqlDatabase extends Database {
                     ORDER BY `timestamp` DESC
                     LIMIT 1;"""))) {
                 statement.setString(1, user.getUuid().toString());
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("latest_snapshot", statement::executeQuery);
                 if (resultSet.next()) {
                     final UUID versionUuid = UUID.fromString(resultSet.getString("version_uuid"));
                     final OffsetDateTime timestamp = OffsetDateTime.ofInstant(
@@ -285,7 +428,7 @@ public class MySqlDatabase extends Database {
                     WHERE `player_uuid`=?
                     ORDER BY `timestamp` DESC;"""))) {
                 statement.setString(1, user.getUuid().toString());
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("all_snapshots", statement::executeQuery);
                 while (resultSet.next()) {
                     final UUID versionUuid = UUID.fromString(resultSet.getString("version_uuid"));
                     final OffsetDateTime timestamp = OffsetDateTime.ofInstant(
@@ -312,7 +455,7 @@ public class MySqlDatabase extends Database {
             FROM `%user_data_table%`
             WHERE `player_uuid`=? AND `pinned`=false;"""))) {
                 statement.setString(1, user.getUuid().toString());
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("unpinned_snapshot_count", statement::executeQuery);
                 if (resultSet.next()) {
                     return resultSet.getInt(1);
                 }
@@ -335,7 +478,7 @@ public class MySqlDatabase extends Database {
                     LIMIT 1;"""))) {
                 statement.setString(1, user.getUuid().toString());
                 statement.setString(2, versionUuid.toString());
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_snapshot", statement::executeQuery);
                 if (resultSet.next()) {
                     final Blob blob = resultSet.getBlob("data");
                     final OffsetDateTime timestamp = OffsetDateTime.ofInstant(
@@ -367,7 +510,7 @@ public class MySqlDatabase extends Database {
                         LIMIT %entry_count%;""".replace("%entry_count%",
                         Integer.toString(unpinnedSnapshots - maxSnapshots))))) {
                     statement.setString(1, user.getUuid().toString());
-                    statement.executeUpdate();
+                    metrics.time("rotate_snapshots", statement::executeUpdate);
                 }
             } catch (SQLException e) {
                 plugin.log(Level.SEVERE, "Failed to prune user data from the database", e);
@@ -385,7 +528,7 @@ public class MySqlDatabase extends Database {
                     LIMIT 1;"""))) {
                 statement.setString(1, user.getUuid().toString());
                 statement.setString(2, versionUuid.toString());
-                return statement.executeUpdate() > 0;
+                return metrics.time("delete_snapshot", statement::executeUpdate) > 0;
             }
         } catch (SQLException e) {
             plugin.log(Level.SEVERE, "Failed to delete specific user data from the database", e);
@@ -404,10 +547,10 @@ public class MySqlDatabase extends Database {
                     LIMIT 1;"""))) {
                 statement.setString(1, user.getUuid().toString());
                 statement.setTimestamp(2, Timestamp.from(within.toInstant()));
-                statement.executeUpdate();
+                metrics.time("rotate_latest_snapshot", statement::executeUpdate);
             }
         } catch (SQLException e) {
-            plugin.log(Level.SEVERE, "Failed to delete a user's data from the database", e);
+            failWrite("Failed to delete a user's data from the database", e);
         }
     }
 
@@ -425,16 +568,126 @@ public class MySqlDatabase extends Database {
                 statement.setString(4, data.getSaveCause().name());
                 statement.setBoolean(5, data.isPinned());
                 statement.setBlob(6, new ByteArrayInputStream(data.asBytes(plugin)));
-                statement.executeUpdate();
+                metrics.time("insert_snapshot", statement::executeUpdate);
             }
         } catch (SQLException | DataAdapter.AdaptionException e) {
-            plugin.log(Level.SEVERE, "Failed to set user data in the database", e);
+            failWrite("Failed to set user data in the database", e);
         }
     }
 
+    // Serialize the snapshots, then add them in one transaction of batched statements, falling back to adding them
+    // one at a time. Returns the users whose snapshot could not be serialized or added
     @Blocking
     @Override
-    public void updateSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed data) {
+    @NotNull
+    public Set<User> addSnapshots(@NotNull Map<User, DataSnapshot.Packed> snapshots) {
+        final Set<User> failed = new HashSet<>();
+        final Map<User, byte[]> serialized = serializeSnapshots(snapshots, failed);
+        if (serialized.isEmpty()) {
+            return failed;
+        }
+        final int backupFrequency = plugin.getSettings().getSynchronization().getSnapshotBackupFrequency();
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement revisions = connection.prepareStatement(formatStatementTables("""
+                    UPDATE `%users_table%`
+                    SET `revision`=`revision`+1
+                    WHERE `uuid`=?;"""));
+                 PreparedStatement rotations = connection.prepareStatement(formatStatementTables("""
+                         DELETE FROM `%user_data_table%`
+                         WHERE `player_uuid`=? AND `timestamp`>? AND `pinned` IS FALSE
+                         ORDER BY `timestamp` ASC
+                         LIMIT 1;"""));
+                 PreparedStatement inserts = connection.prepareStatement(formatStatementTables("""
+                         INSERT INTO `%user_data_table%`
+                         (`player_uuid`,`version_uuid`,`timestamp`,`save_cause`,`pinned`,`data`)
+                         VALUES (?,?,?,?,?,?);"""))) {
+                for (Map.Entry<User, byte[]> entry : serialized.entrySet()) {
+                    final String uuid = entry.getKey().getUuid().toString();
+                    final DataSnapshot.Packed data = snapshots.get(entry.getKey());
+                    revisions.setString(1, uuid);
+                    revisions.addBatch();
+                    if (!data.isPinned() && backupFrequency > 0) {
+                        rotations.setString(1, uuid);
+                        rotations.setTimestamp(2, Timestamp.from(
+                                data.getTimestamp().minusHours(backupFrequency).toInstant()));
+                        rotations.addBatch();
+                    }
+                    inserts.setString(1, uuid);
+                    inserts.setString(2, data.getId().toString());
+                    inserts.setTimestamp(3, Timestamp.from(data.getTimestamp().toInstant()));
+                    inserts.setString(4, data.getSaveCause().name());
+                    inserts.setBoolean(5, data.isPinned());
+                    inserts.setBlob(6, new ByteArrayInputStream(entry.getValue()));
+                    inserts.addBatch();
+                }
+                metrics.time("increment_revisions", revisions::executeBatch);
+                metrics.time("rotate_latest_snapshots", rotations::executeBatch);
+                metrics.time("insert_snapshots", inserts::executeBatch);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            plugin.log(Level.WARNING, "Failed to save a batch of user data; saving it one user at a time", e);
+            final Map<User, DataSnapshot.Packed> remaining = new LinkedHashMap<>(snapshots);
+            remaining.keySet().removeAll(failed);
+            failed.addAll(super.addSnapshots(remaining));
+            return failed;
+        }
+        serialized.keySet().forEach(this::rotateSnapshots);
+        return failed;
+    }
+
+    // Insert the snapshots in one transaction of batched statements, falling back to inserting them one at a time
+    @Blocking
+    @Override
+    public void importSnapshots(@NotNull Map<User, List<DataSnapshot.Packed>> snapshots) {
+        final Map<DataSnapshot.Packed, byte[]> bytes = new IdentityHashMap<>();
+        try {
+            snapshots.values().forEach(list -> list.forEach(snapshot -> bytes.put(snapshot, snapshot.asBytes(plugin))));
+        } catch (DataAdapter.AdaptionException e) {
+            plugin.log(Level.WARNING, "Failed to serialize a batch of snapshots; importing them one at a time", e);
+            super.importSnapshots(snapshots);
+            return;
+        }
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    INSERT INTO `%user_data_table%`
+                    (`player_uuid`,`version_uuid`,`timestamp`,`save_cause`,`pinned`,`data`)
+                    VALUES (?,?,?,?,?,?);"""))) {
+                for (Map.Entry<User, List<DataSnapshot.Packed>> entry : snapshots.entrySet()) {
+                    for (DataSnapshot.Packed snapshot : entry.getValue()) {
+                        statement.setString(1, entry.getKey().getUuid().toString());
+                        statement.setString(2, snapshot.getId().toString());
+                        statement.setTimestamp(3, Timestamp.from(snapshot.getTimestamp().toInstant()));
+                        statement.setString(4, snapshot.getSaveCause().name());
+                        statement.setBoolean(5, snapshot.isPinned());
+                        statement.setBlob(6, new ByteArrayInputStream(bytes.get(snapshot)));
+                        statement.addBatch();
+                    }
+                }
+                metrics.time("import_snapshots", statement::executeBatch);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            plugin.log(Level.WARNING, "Failed to import a batch of snapshots; importing them one at a time", e);
+            super.importSnapshots(snapshots);
+        }
+    }
+
+    @Blocking
+    @Override
+    protected void replaceSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed data) {
         try (Connection connection = getConnection()) {
             try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
                     UPDATE `%user_data_table%`
@@ -446,11 +699,77 @@ public class MySqlDatabase extends Database {
                 statement.setBlob(3, new ByteArrayInputStream(data.asBytes(plugin)));
                 statement.setString(4, user.getUuid().toString());
                 statement.setString(5, data.getId().toString());
-                statement.executeUpdate();
+                metrics.time("replace_snapshot", statement::executeUpdate);
+            }
+        } catch (SQLException e) {
+            failWrite("Failed to pin user data in the database", e);
+        }
+    }
+
+    @Blocking
+    @Override
+    public long getRevision(@NotNull User user) {
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT `revision`
+                    FROM `%users_table%`
+                    WHERE `uuid`=?;"""))) {
+                statement.setString(1, user.getUuid().toString());
+                final ResultSet resultSet = metrics.time("get_revision", statement::executeQuery);
+                if (resultSet.next()) {
+                    return resultSet.getLong("revision");
+                }
             }
         } catch (SQLException e) {
-            plugin.log(Level.SEVERE, "Failed to pin user data in the database", e);
+            plugin.log(Level.SEVERE, "Failed to fetch a user's revision from the database", e);
+        }
+        return 0;
+    }
+
+    @Blocking
+    @Override
+    protected boolean writeIfRevision(@NotNull User user, long expectedRevision, @NotNull Runnable write) {
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        UPDATE `%users_table%`
+                        SET `revision`=`revision`+1
+                        WHERE `uuid`=? AND (?=-1 OR `revision`=?);"""))) {
+                    statement.setString(1, user.getUuid().toString());
+                    statement.setLong(2, expectedRevision);
+                    statement.setLong(3, expectedRevision);
+                    final int updated = metrics.time("increment_revision", statement::executeUpdate);
+                    if (updated == 0 && expectedRevision != ANY_REVISION) {
+                        connection.rollback();
+                        return false;
+                    }
+                }
+
+                // Run the write in this transaction, so the revision and data are committed together
+                transaction.set(connection);
+                write.run();
+                connection.commit();
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                transaction.remove();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            plugin.log(Level.SEVERE, "Failed to write user data to the database", e);
         }
+        return false;
+    }
+
+    // Log a failed write, or rethrow it if it's part of a revision-checked write, so the transaction is rolled back
+    private void failWrite(@NotNull String message, @NotNull Exception e) {
+        if (transaction.get() != null) {
+            throw new IllegalStateException(message, e);
+        }
+        plugin.log(Level.SEVERE, message, e);
     }
 
     @Blocking
@@ -464,7 +783,7 @@ public class MySqlDatabase extends Database {
                 statement.setString(1, serverName);
                 statement.setInt(2, mapId);
                 statement.setBlob(3, new ByteArrayInputStream(data));
-                statement.executeUpdate();
+                metrics.time("save_map_data", statement::executeUpdate);
             }
         } catch (SQLException | DataAdapter.AdaptionException e) {
             plugin.log(Level.SEVERE, "Failed to write map data to the database", e);
@@ -483,7 +802,7 @@ public class MySqlDatabase extends Database {
                 statement.setString(1, serverName);
                 statement.setInt(2, mapId);
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_map_data", statement::executeQuery);
                 if (resultSet.next()) {
                     final Blob blob = resultSet.getBlob("data");
                     final byte[] dataByteArray = blob.getBytes(1, (int) blob.length());
@@ -510,7 +829,7 @@ public class MySqlDatabase extends Database {
                 statement.setString(1, serverName);
                 statement.setInt(2, mapId);
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_map_binding", statement::executeQuery);
                 if (resultSet.next()) {
                     return new AbstractMap.SimpleImmutableEntry<>(
                             resultSet.getString("from_server_name"),
@@ -536,7 +855,7 @@ public class MySqlDatabase extends Database {
                 statement.setInt(2, fromMapId);
                 statement.setString(3, toServerName);
                 statement.setInt(4, toMapId);
-                statement.executeUpdate();
+                metrics.time("set_map_binding", statement::executeUpdate);
             }
         } catch (SQLException | DataAdapter.AdaptionException e) {
             plugin.log(Level.SEVERE, "Failed to connect map IDs in the database", e);
@@ -556,7 +875,7 @@ public class MySqlDatabase extends Database {
                 statement.setInt(2, fromMapId);
                 statement.setString(3, toServerName);
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_bound_map_id", statement::executeQuery);
                 if (resultSet.next()) {
                     return resultSet.getInt("to_id");
                 }
@@ -567,6 +886,167 @@ public class MySqlDatabase extends Database {
         return -1;
     }
 
+    @NotNull
+    @Blocking
+    @Override
+    public List<Map.Entry<String, Integer>> getAllMapIds() {
+        final List<Map.Entry<String, Integer>> mapIds = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT `server_name`, `map_id`
+                    FROM `%map_data_table%`;"""))) {
+                final ResultSet resultSet = metrics.time("all_map_ids", statement::executeQuery);
+                while (resultSet.next()) {
+                    mapIds.add(new AbstractMap.SimpleImmutableEntry<>(
+                            resultSet.getString("server_name"),
+                            resultSet.getInt("map_id")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to get map IDs from the database", e);
+        }
+        return mapIds;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<MapBinding> getAllMapBindings() {
+        final List<MapBinding> bindings = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT `from_server_name`, `from_id`, `to_server_name`, `to_id`
+                    FROM `%map_ids_table%`;"""))) {
+                final ResultSet resultSet = metrics.time("all_map_bindings", statement::executeQuery);
+                while (resultSet.next()) {
+                    bindings.add(new MapBinding(
+                            resultSet.getString("from_server_name"),
+                            resultSet.getInt("from_id"),
+                            resultSet.getString("to_server_name"),
+                            resultSet.getInt("to_id")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to get map bindings from the database", e);
+        }
+        return bindings;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<EncodedSnapshot> getEncodedSnapshotPage(@Nullable UUID after, int limit) {
+        final List<EncodedSnapshot> snapshots = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT `player_uuid`, `version_uuid`, `data`
+                    FROM `%user_data_table%`
+                    WHERE `version_uuid` > ?
+                    ORDER BY `version_uuid` ASC
+                    LIMIT ?;"""))) {
+                statement.setString(1, after != null ? after.toString() : "");
+                statement.setInt(2, limit);
+                statement.setFetchSize(limit);
+                final ResultSet resultSet = metrics.time("encoded_snapshot_page", statement::executeQuery);
+                while (resultSet.next()) {
+                    final Blob blob = resultSet.getBlob("data");
+                    final byte[] dataByteArray = blob.getBytes(1, (int) blob.length());
+                    blob.free();
+                    snapshots.add(new EncodedSnapshot(
+                            UUID.fromString(resultSet.getString("player_uuid")),
+                            UUID.fromString(resultSet.getString("version_uuid")),
+                            dataByteArray
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch a page of encoded snapshots from the database", e);
+        }
+        return snapshots;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<EncodedSnapshot> getEncodedSnapshots(@NotNull User user) {
+        final List<EncodedSnapshot> snapshots = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT `version_uuid`, `data`
+                    FROM `%user_data_table%`
+                    WHERE `player_uuid`=?;"""))) {
+                statement.setString(1, user.getUuid().toString());
+                final ResultSet resultSet = metrics.time("encoded_snapshots", statement::executeQuery);
+                while (resultSet.next()) {
+                    final Blob blob = resultSet.getBlob("data");
+                    final byte[] dataByteArray = blob.getBytes(1, (int) blob.length());
+                    blob.free();
+                    snapshots.add(new EncodedSnapshot(
+                            user.getUuid(),
+                            UUID.fromString(resultSet.getString("version_uuid")),
+                            dataByteArray
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch a user's encoded snapshots from the database", e);
+        }
+        return snapshots;
+    }
+
+    @Blocking
+    @Override
+    public int replaceEncodedSnapshots(@NotNull Map<EncodedSnapshot, byte[]> replacements) {
+        if (replacements.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    UPDATE `%user_data_table%`
+                    SET `data`=?
+                    WHERE `version_uuid`=? AND `data`=?;"""))) {
+                for (Map.Entry<EncodedSnapshot, byte[]> entry : replacements.entrySet()) {
+                    statement.setBlob(1, new ByteArrayInputStream(entry.getValue()));
+                    statement.setString(2, entry.getKey().versionUuid().toString());
+                    statement.setBlob(3, new ByteArrayInputStream(entry.getKey().data()));
+                    statement.addBatch();
+                }
+                return countUpdated(metrics.time("replace_encoded_snapshots", statement::executeBatch));
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to replace encoded snapshots in the database", e);
+        }
+        return 0;
+    }
+
+    @Blocking
+    @Override
+    public int replaceEncodedMaps(@NotNull Map<EncodedMap, byte[]> replacements) {
+        if (replacements.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    UPDATE `%map_data_table%`
+                    SET `data`=?
+                    WHERE `server_name`=? AND `map_id`=? AND `data`=?;"""))) {
+                for (Map.Entry<EncodedMap, byte[]> entry : replacements.entrySet()) {
+                    statement.setBlob(1, new ByteArrayInputStream(entry.getValue()));
+                    statement.setString(2, entry.getKey().serverName());
+                    statement.setInt(3, entry.getKey().mapId());
+                    statement.setBlob(4, new ByteArrayInputStream(entry.getKey().data()));
+                    statement.addBatch();
+                }
+                return countUpdated(metrics.time("replace_encoded_maps", statement::executeBatch));
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to replace encoded map data in the database", e);
+        }
+        return 0;
+    }
+
     @Override
     public void wipeDatabase() {
         try (Connection connection = getConnection()) {
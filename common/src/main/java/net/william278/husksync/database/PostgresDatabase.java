@@ -44,10 +44,17 @@ public class PostgresDatabase extends Database {
     private final String driverClass;
     private HikariDataSource dataSource;
 
+    // Connection of the revision-checked write transaction running on the current thread, if any
+    private final ThreadLocal<Connection> transaction = new ThreadLocal<>();
+
     public PostgresDatabase(@NotNull HuskSync plugin) {
-        super(plugin);
+        this(plugin, plugin.getSettings().getDatabase());
+    }
+
+    public PostgresDatabase(@NotNull HuskSync plugin, @NotNull DatabaseSettings settings) {
+        super(plugin, settings);
 
-        final Type type = plugin.getSettings().getDatabase().getType();
+        final Type type = settings.getType();
         this.flavor = type.getProtocol();
         this.driverClass = "org.postgresql.Driver";
     }
@@ -58,6 +65,10 @@ public class PostgresDatabase extends Database {
         if (dataSource == null) {
             throw new IllegalStateException("The database has not been initialized");
         }
+        final Connection transaction = this.transaction.get();
+        if (transaction != null) {
+            return uncloseable(transaction);
+        }
         return dataSource.getConnection();
     }
 
@@ -65,7 +76,7 @@ public class PostgresDatabase extends Database {
     @Override
     public void initialize() throws IllegalStateException {
         // Initialize the Hikari pooled connection
-        final DatabaseSettings.DatabaseCredentials credentials = plugin.getSettings().getDatabase().getCredentials();
+        final DatabaseSettings.DatabaseCredentials credentials = settings.getCredentials();
         dataSource = new HikariDataSource();
         dataSource.setDriverClassName(driverClass);
         dataSource.setJdbcUrl(String.format("jdbc:%s://%s:%s/%s%s",
@@ -81,13 +92,14 @@ public class PostgresDatabase extends Database {
         dataSource.setPassword(credentials.getPassword());
 
         // Set connection pool options
-        final DatabaseSettings.PoolSettings pool = plugin.getSettings().getDatabase().getConnectionPool();
+        final DatabaseSettings.PoolSettings pool = settings.getConnectionPool();
         dataSource.setMaximumPoolSize(pool.getMaximumPoolSize());
         dataSource.setMinimumIdle(pool.getMinimumIdle());
         dataSource.setMaxLifetime(pool.getMaximumLifetime());
         dataSource.setKeepaliveTime(pool.getKeepaliveTime());
         dataSource.setConnectionTimeout(pool.getConnectionTimeout());
         dataSource.setPoolName(DATA_POOL_NAME);
+        metrics.track(dataSource);
 
         // Set additional connection pool properties
         final Properties properties = new Properties();
@@ -109,8 +121,18 @@ public class PostgresDatabase extends Database {
         );
         dataSource.setDataSourceProperties(properties);
 
-        // Check config for if tables should be created
-        if (!plugin.getSettings().getDatabase().isCreateTables()) return;
+        // Check config for if tables should be created. Revision-checked writes need the revision column, so it is
+        // added to users tables created before it was introduced either way
+        if (!settings.isCreateTables()) {
+            try (Connection connection = dataSource.getConnection()) {
+                addRevisionColumn(connection);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to add the revision column to the users table. Please ensure " +
+                        "your connecting user account has privileges to alter tables, or add the column yourself " +
+                        "(see the database schema).", e);
+            }
+            return;
+        }
 
         // Prepare database schema; make tables if they don't exist
         try (Connection connection = dataSource.getConnection()) {
@@ -129,6 +151,25 @@ public class PostgresDatabase extends Database {
         }
     }
 
+    // Add the revision column to users tables created before it was introduced
+    private void addRevisionColumn(@NotNull Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT COUNT(*)
+                FROM information_schema.columns
+                WHERE table_schema=current_schema() AND table_name=? AND column_name='revision';""")) {
+            statement.setString(1, settings.getTableName(TableName.USERS));
+            final ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next() && resultSet.getInt(1) > 0) {
+                return;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(formatStatementTables("""
+                    ALTER TABLE %users_table%
+                    ADD COLUMN IF NOT EXISTS revision bigint NOT NULL DEFAULT 0;"""));
+        }
+    }
+
     @Blocking
     @Override
     public void ensureUser(@NotNull User user) {
@@ -144,7 +185,7 @@ public class PostgresDatabase extends Database {
 
                                 statement.setString(1, user.getName());
                                 statement.setObject(2, existingUser.getUuid());
-                                statement.executeUpdate();
+                                metrics.time("update_username", statement::executeUpdate);
                             }
                             plugin.log(Level.INFO, "Updated " + user.getName() + "'s name in the database (" + existingUser.getName() + " -> " + user.getName() + ")");
                         } catch (SQLException e) {
@@ -161,7 +202,7 @@ public class PostgresDatabase extends Database {
 
                             statement.setObject(1, user.getUuid());
                             statement.setString(2, user.getName());
-                            statement.executeUpdate();
+                            metrics.time("insert_user", statement::executeUpdate);
                         }
                     } catch (SQLException e) {
                         plugin.log(Level.SEVERE, "Failed to insert a user into the database", e);
@@ -181,7 +222,7 @@ public class PostgresDatabase extends Database {
 
                 statement.setObject(1, uuid);
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_user", statement::executeQuery);
                 if (resultSet.next()) {
                     return Optional.of(new User((UUID) resultSet.getObject("uuid"),
                             resultSet.getString("username")));
@@ -203,7 +244,7 @@ public class PostgresDatabase extends Database {
                     WHERE username=?;"""))) {
                 statement.setString(1, username);
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_user_by_name", statement::executeQuery);
                 if (resultSet.next()) {
                     return Optional.of(new User((UUID) resultSet.getObject("uuid"),
                             resultSet.getString("username")));
@@ -225,7 +266,7 @@ public class PostgresDatabase extends Database {
                     SELECT uuid, username
                     FROM %users_table%;
                     """))) {
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_all_users", statement::executeQuery);
                 while (resultSet.next()) {
                     users.add(new User(UUID.fromString(resultSet.getString("uuid")),
                             resultSet.getString("username")));
@@ -237,6 +278,96 @@ public class PostgresDatabase extends Database {
         return users;
     }
 
+    @Blocking
+    @Override
+    @NotNull
+    public List<User> getUserPage(@Nullable UUID after, int limit) {
+        final List<User> users = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT uuid, username
+                    FROM %users_table%
+                    WHERE uuid > ?
+                    ORDER BY uuid ASC
+                    LIMIT ?;"""))) {
+                statement.setObject(1, after != null ? after : new UUID(0L, 0L));
+                statement.setInt(2, limit);
+                statement.setFetchSize(limit);
+                final ResultSet resultSet = metrics.time("get_user_page", statement::executeQuery);
+                while (resultSet.next()) {
+                    users.add(new User((UUID) resultSet.getObject("uuid"),
+                            resultSet.getString("username")));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch a page of users from the database", e);
+        }
+        return users;
+    }
+
+    @Blocking
+    @Override
+    @NotNull
+    public List<User> getUsers(@NotNull Collection<UUID> uuids) {
+        final List<User> users = Lists.newArrayList();
+        if (uuids.isEmpty()) {
+            return users;
+        }
+        try (Connection connection = getConnection()) {
+            for (List<UUID> batch : Lists.partition(List.copyOf(uuids), MAX_BULK_QUERY_SIZE)) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT uuid, username
+                        FROM %users_table%
+                        WHERE uuid = ANY(?);"""))) {
+                    statement.setArray(1, connection.createArrayOf("uuid", batch.toArray()));
+                    final ResultSet resultSet = metrics.time("get_users", statement::executeQuery);
+                    while (resultSet.next()) {
+                        users.add(new User((UUID) resultSet.getObject("uuid"),
+                                resultSet.getString("username")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch users from the database", e);
+        }
+        return users;
+    }
+
+    @Blocking
+    @Override
+    @NotNull
+    public Map<UUID, DataSnapshot.Packed> getLatestSnapshots(@NotNull Collection<User> users) {
+        final List<SnapshotRow> rows = Lists.newArrayList();
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+        try (Connection connection = getConnection()) {
+            for (List<User> batch : Lists.partition(List.copyOf(users), MAX_BULK_QUERY_SIZE)) {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        SELECT DISTINCT ON (player_uuid) player_uuid, version_uuid, timestamp, data
+                        FROM %user_data_table%
+                        WHERE player_uuid = ANY(?)
+                        ORDER BY player_uuid, timestamp DESC;"""))) {
+                    statement.setArray(1, connection.createArrayOf("uuid",
+                            batch.stream().map(User::getUuid).toArray()));
+                    final ResultSet resultSet = metrics.time("latest_snapshots", statement::executeQuery);
+                    while (resultSet.next()) {
+                        rows.add(new SnapshotRow(
+                                (UUID) resultSet.getObject("player_uuid"),
+                                (UUID) resultSet.getObject("version_uuid"),
+                                OffsetDateTime.ofInstant(resultSet.getTimestamp("timestamp").toInstant(),
+                                        TimeZone.getDefault().toZoneId()),
+                                resultSet.getBytes("data")
+                        ));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch users' latest data snapshots from the database", e);
+        }
+        return decodeLatestSnapshots(rows);
+    }
+
     @Blocking
     @Override
     public Optional<DataSnapshot.Packed> getLatestSnapshot(@NotNull User user) {
@@ -248,7 +379,7 @@ public class PostgresDatabase extends Database {
                     ORDER BY timestamp DESC
                     LIMIT 1;"""))) {
                 statement.setObject(1, user.getUuid());
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("latest_snapshot", statement::executeQuery);
                 if (resultSet.next()) {
                     final UUID versionUuid = (UUID) resultSet.getObject("version_uuid");
                     final OffsetDateTime timestamp = OffsetDateTime.ofInstant(
@@ -276,7 +407,7 @@ public class PostgresDatabase extends Database {
                     WHERE player_uuid=?
                     ORDER BY timestamp DESC;"""))) {
                 statement.setObject(1, user.getUuid());
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("all_snapshots", statement::executeQuery);
                 while (resultSet.next()) {
                     final UUID versionUuid = (UUID) resultSet.getObject("version_uuid");
                     final OffsetDateTime timestamp = OffsetDateTime.ofInstant(
@@ -301,7 +432,7 @@ public class PostgresDatabase extends Database {
             FROM %user_data_table%
             WHERE player_uuid=? AND pinned=false;"""))) {
                 statement.setObject(1, user.getUuid());
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("unpinned_snapshot_count", statement::executeQuery);
                 if (resultSet.next()) {
                     return resultSet.getInt(1);
                 }
@@ -324,7 +455,7 @@ public class PostgresDatabase extends Database {
                     LIMIT 1;"""))) {
                 statement.setObject(1, user.getUuid());
                 statement.setObject(2, versionUuid);
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_snapshot", statement::executeQuery);
                 if (resultSet.next()) {
                     final OffsetDateTime timestamp = OffsetDateTime.ofInstant(
                             resultSet.getTimestamp("timestamp").toInstant(), TimeZone.getDefault().toZoneId()
@@ -359,7 +490,7 @@ public class PostgresDatabase extends Database {
                         WHERE version_uuid IN (SELECT version_uuid FROM cte);""".replace("%entry_count%",
                         Integer.toString(unpinnedSnapshots - maxSnapshots))))) {
                     statement.setObject(1, user.getUuid());
-                    statement.executeUpdate();
+                    metrics.time("rotate_snapshots", statement::executeUpdate);
                 }
             } catch (SQLException e) {
                 plugin.log(Level.SEVERE, "Failed to prune user data from the database", e);
@@ -376,7 +507,7 @@ public class PostgresDatabase extends Database {
                     WHERE player_uuid=? AND version_uuid=?;"""))) {
                 statement.setObject(1, user.getUuid());
                 statement.setObject(2, versionUuid);
-                return statement.executeUpdate() > 0;
+                return metrics.time("delete_snapshot", statement::executeUpdate) > 0;
             }
         } catch (SQLException e) {
             plugin.log(Level.SEVERE, "Failed to delete specific user data from the database", e);
@@ -400,10 +531,10 @@ public class PostgresDatabase extends Database {
                 statement.setObject(1, user.getUuid());
                 statement.setObject(2, user.getUuid());
                 statement.setTimestamp(3, Timestamp.from(within.toInstant()));
-                statement.executeUpdate();
+                metrics.time("rotate_latest_snapshot", statement::executeUpdate);
             }
         } catch (SQLException e) {
-            plugin.log(Level.SEVERE, "Failed to delete a user's data from the database", e);
+            failWrite("Failed to delete a user's data from the database", e);
         }
     }
 
@@ -421,16 +552,131 @@ public class PostgresDatabase extends Database {
                 statement.setString(4, data.getSaveCause().name());
                 statement.setBoolean(5, data.isPinned());
                 statement.setBytes(6, data.asBytes(plugin));
-                statement.executeUpdate();
+                metrics.time("insert_snapshot", statement::executeUpdate);
             }
         } catch (SQLException | DataAdapter.AdaptionException e) {
-            plugin.log(Level.SEVERE, "Failed to set user data in the database", e);
+            failWrite("Failed to set user data in the database", e);
+        }
+    }
+
+    // Serialize the snapshots, then add them in one transaction of batched statements, falling back to adding them
+    // one at a time. Returns the users whose snapshot could not be serialized or added
+    @Blocking
+    @Override
+    @NotNull
+    public Set<User> addSnapshots(@NotNull Map<User, DataSnapshot.Packed> snapshots) {
+        final Set<User> failed = new HashSet<>();
+        final Map<User, byte[]> serialized = serializeSnapshots(snapshots, failed);
+        if (serialized.isEmpty()) {
+            return failed;
+        }
+        final int backupFrequency = plugin.getSettings().getSynchronization().getSnapshotBackupFrequency();
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement revisions = connection.prepareStatement(formatStatementTables("""
+                    UPDATE %users_table%
+                    SET revision=revision+1
+                    WHERE uuid=?;"""));
+                 PreparedStatement rotations = connection.prepareStatement(formatStatementTables("""
+                         DELETE FROM %user_data_table%
+                         WHERE player_uuid=? AND timestamp = (
+                            SELECT timestamp
+                            FROM %user_data_table%
+                            WHERE player_uuid=? AND timestamp > ? AND pinned=FALSE
+                            ORDER BY timestamp ASC
+                            LIMIT 1
+                         );"""));
+                 PreparedStatement inserts = connection.prepareStatement(formatStatementTables("""
+                         INSERT INTO %user_data_table%
+                         (player_uuid,version_uuid,timestamp,save_cause,pinned,data)
+                         VALUES (?,?,?,?,?,?);"""))) {
+                for (Map.Entry<User, byte[]> entry : serialized.entrySet()) {
+                    final UUID uuid = entry.getKey().getUuid();
+                    final DataSnapshot.Packed data = snapshots.get(entry.getKey());
+                    revisions.setObject(1, uuid);
+                    revisions.addBatch();
+                    if (!data.isPinned() && backupFrequency > 0) {
+                        rotations.setObject(1, uuid);
+                        rotations.setObject(2, uuid);
+                        rotations.setTimestamp(3, Timestamp.from(
+                                data.getTimestamp().minusHours(backupFrequency).toInstant()));
+                        rotations.addBatch();
+                    }
+                    inserts.setObject(1, uuid);
+                    inserts.setObject(2, data.getId());
+                    inserts.setTimestamp(3, Timestamp.from(data.getTimestamp().toInstant()));
+                    inserts.setString(4, data.getSaveCause().name());
+                    inserts.setBoolean(5, data.isPinned());
+                    inserts.setBytes(6, entry.getValue());
+                    inserts.addBatch();
+                }
+                metrics.time("increment_revisions", revisions::executeBatch);
+                metrics.time("rotate_latest_snapshots", rotations::executeBatch);
+                metrics.time("insert_snapshots", inserts::executeBatch);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            plugin.log(Level.WARNING, "Failed to save a batch of user data; saving it one user at a time", e);
+            final Map<User, DataSnapshot.Packed> remaining = new LinkedHashMap<>(snapshots);
+            remaining.keySet().removeAll(failed);
+            failed.addAll(super.addSnapshots(remaining));
+            return failed;
         }
+        serialized.keySet().forEach(this::rotateSnapshots);
+        return failed;
     }
 
+    // Insert the snapshots in one transaction of batched statements, falling back to inserting them one at a time
     @Blocking
     @Override
-    public void updateSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed data) {
+    public void importSnapshots(@NotNull Map<User, List<DataSnapshot.Packed>> snapshots) {
+        final Map<DataSnapshot.Packed, byte[]> bytes = new IdentityHashMap<>();
+        try {
+            snapshots.values().forEach(list -> list.forEach(snapshot -> bytes.put(snapshot, snapshot.asBytes(plugin))));
+        } catch (DataAdapter.AdaptionException e) {
+            plugin.log(Level.WARNING, "Failed to serialize a batch of snapshots; importing them one at a time", e);
+            super.importSnapshots(snapshots);
+            return;
+        }
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    INSERT INTO %user_data_table%
+                    (player_uuid,version_uuid,timestamp,save_cause,pinned,data)
+                    VALUES (?,?,?,?,?,?);"""))) {
+                for (Map.Entry<User, List<DataSnapshot.Packed>> entry : snapshots.entrySet()) {
+                    for (DataSnapshot.Packed snapshot : entry.getValue()) {
+                        statement.setObject(1, entry.getKey().getUuid());
+                        statement.setObject(2, snapshot.getId());
+                        statement.setTimestamp(3, Timestamp.from(snapshot.getTimestamp().toInstant()));
+                        statement.setString(4, snapshot.getSaveCause().name());
+                        statement.setBoolean(5, snapshot.isPinned());
+                        statement.setBytes(6, bytes.get(snapshot));
+                        statement.addBatch();
+                    }
+                }
+                metrics.time("import_snapshots", statement::executeBatch);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            plugin.log(Level.WARNING, "Failed to import a batch of snapshots; importing them one at a time", e);
+            super.importSnapshots(snapshots);
+        }
+    }
+
+    @Blocking
+    @Override
+    protected void replaceSnapshot(@NotNull User user, @NotNull DataSnapshot.Packed data) {
         try (Connection connection = getConnection()) {
             try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
                     UPDATE %user_data_table%
@@ -442,11 +688,77 @@ public class PostgresDatabase extends Database {
                 statement.setBytes(3, data.asBytes(plugin));
                 statement.setObject(4, user.getUuid());
                 statement.setObject(5, data.getId());
-                statement.executeUpdate();
+                metrics.time("replace_snapshot", statement::executeUpdate);
+            }
+        } catch (SQLException e) {
+            failWrite("Failed to pin user data in the database", e);
+        }
+    }
+
+    @Blocking
+    @Override
+    public long getRevision(@NotNull User user) {
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT revision
+                    FROM %users_table%
+                    WHERE uuid=?;"""))) {
+                statement.setObject(1, user.getUuid());
+                final ResultSet resultSet = metrics.time("get_revision", statement::executeQuery);
+                if (resultSet.next()) {
+                    return resultSet.getLong("revision");
+                }
             }
         } catch (SQLException e) {
-            plugin.log(Level.SEVERE, "Failed to pin user data in the database", e);
+            plugin.log(Level.SEVERE, "Failed to fetch a user's revision from the database", e);
+        }
+        return 0;
+    }
+
+    @Blocking
+    @Override
+    protected boolean writeIfRevision(@NotNull User user, long expectedRevision, @NotNull Runnable write) {
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                        UPDATE %users_table%
+                        SET revision=revision+1
+                        WHERE uuid=? AND (?=-1 OR revision=?);"""))) {
+                    statement.setObject(1, user.getUuid());
+                    statement.setLong(2, expectedRevision);
+                    statement.setLong(3, expectedRevision);
+                    final int updated = metrics.time("increment_revision", statement::executeUpdate);
+                    if (updated == 0 && expectedRevision != ANY_REVISION) {
+                        connection.rollback();
+                        return false;
+                    }
+                }
+
+                // Run the write in this transaction, so the revision and data are committed together
+                transaction.set(connection);
+                write.run();
+                connection.commit();
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                transaction.remove();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            plugin.log(Level.SEVERE, "Failed to write user data to the database", e);
+        }
+        return false;
+    }
+
+    // Log a failed write, or rethrow it if it's part of a revision-checked write, so the transaction is rolled back
+    private void failWrite(@NotNull String message, @NotNull Exception e) {
+        if (transaction.get() != null) {
+            throw new IllegalStateException(message, e);
         }
+        plugin.log(Level.SEVERE, message, e);
     }
 
     @Blocking
@@ -460,7 +772,7 @@ public class PostgresDatabase extends Database {
                 statement.setString(1, serverName);
                 statement.setInt(2, mapId);
                 statement.setBytes(3, data);
-                statement.executeUpdate();
+                metrics.time("save_map_data", statement::executeUpdate);
             }
         } catch (SQLException | DataAdapter.AdaptionException e) {
             plugin.log(Level.SEVERE, "Failed to write map data to the database", e);
@@ -478,7 +790,7 @@ public class PostgresDatabase extends Database {
                     LIMIT 1;"""))) {
                 statement.setString(1, serverName);
                 statement.setInt(2, mapId);
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_map_data", statement::executeQuery);
                 if (resultSet.next()) {
                     return resultSet.getBytes("data");
                 }
@@ -503,7 +815,7 @@ public class PostgresDatabase extends Database {
                 statement.setString(1, serverName);
                 statement.setInt(2, mapId);
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_map_binding", statement::executeQuery);
                 if (resultSet.next()) {
                     return new AbstractMap.SimpleImmutableEntry<>(
                             resultSet.getString("from_server_name"),
@@ -529,7 +841,7 @@ public class PostgresDatabase extends Database {
                 statement.setInt(2, fromMapId);
                 statement.setString(3, toServerName);
                 statement.setInt(4, toMapId);
-                statement.executeUpdate();
+                metrics.time("set_map_binding", statement::executeUpdate);
             }
         } catch (SQLException | DataAdapter.AdaptionException e) {
             plugin.log(Level.SEVERE, "Failed to connect map IDs in the database", e);
@@ -549,7 +861,7 @@ public class PostgresDatabase extends Database {
                 statement.setInt(2, fromMapId);
                 statement.setString(3, toServerName);
 
-                final ResultSet resultSet = statement.executeQuery();
+                final ResultSet resultSet = metrics.time("get_bound_map_id", statement::executeQuery);
                 if (resultSet.next()) {
                     return resultSet.getInt("to_id");
                 }
@@ -560,6 +872,161 @@ public class PostgresDatabase extends Database {
         return -1;
     }
 
+    @NotNull
+    @Blocking
+    @Override
+    public List<Map.Entry<String, Integer>> getAllMapIds() {
+        final List<Map.Entry<String, Integer>> mapIds = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT server_name, map_id
+                    FROM %map_data_table%;"""))) {
+                final ResultSet resultSet = metrics.time("all_map_ids", statement::executeQuery);
+                while (resultSet.next()) {
+                    mapIds.add(new AbstractMap.SimpleImmutableEntry<>(
+                            resultSet.getString("server_name"),
+                            resultSet.getInt("map_id")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to get map IDs from the database", e);
+        }
+        return mapIds;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<MapBinding> getAllMapBindings() {
+        final List<MapBinding> bindings = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT from_server_name, from_id, to_server_name, to_id
+                    FROM %map_ids_table%;"""))) {
+                final ResultSet resultSet = metrics.time("all_map_bindings", statement::executeQuery);
+                while (resultSet.next()) {
+                    bindings.add(new MapBinding(
+                            resultSet.getString("from_server_name"),
+                            resultSet.getInt("from_id"),
+                            resultSet.getString("to_server_name"),
+                            resultSet.getInt("to_id")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to get map bindings from the database", e);
+        }
+        return bindings;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<EncodedSnapshot> getEncodedSnapshotPage(@Nullable UUID after, int limit) {
+        final List<EncodedSnapshot> snapshots = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT player_uuid, version_uuid, data
+                    FROM %user_data_table%
+                    WHERE version_uuid > ?
+                    ORDER BY version_uuid ASC
+                    LIMIT ?;"""))) {
+                statement.setObject(1, after != null ? after : new UUID(0L, 0L));
+                statement.setInt(2, limit);
+                statement.setFetchSize(limit);
+                final ResultSet resultSet = metrics.time("encoded_snapshot_page", statement::executeQuery);
+                while (resultSet.next()) {
+                    snapshots.add(new EncodedSnapshot(
+                            (UUID) resultSet.getObject("player_uuid"),
+                            (UUID) resultSet.getObject("version_uuid"),
+                            resultSet.getBytes("data")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch a page of encoded snapshots from the database", e);
+        }
+        return snapshots;
+    }
+
+    @NotNull
+    @Blocking
+    @Override
+    public List<EncodedSnapshot> getEncodedSnapshots(@NotNull User user) {
+        final List<EncodedSnapshot> snapshots = Lists.newArrayList();
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    SELECT version_uuid, data
+                    FROM %user_data_table%
+                    WHERE player_uuid=?;"""))) {
+                statement.setObject(1, user.getUuid());
+                final ResultSet resultSet = metrics.time("encoded_snapshots", statement::executeQuery);
+                while (resultSet.next()) {
+                    snapshots.add(new EncodedSnapshot(
+                            user.getUuid(),
+                            (UUID) resultSet.getObject("version_uuid"),
+                            resultSet.getBytes("data")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to fetch a user's encoded snapshots from the database", e);
+        }
+        return snapshots;
+    }
+
+    @Blocking
+    @Override
+    public int replaceEncodedSnapshots(@NotNull Map<EncodedSnapshot, byte[]> replacements) {
+        if (replacements.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    UPDATE %user_data_table%
+                    SET data=?
+                    WHERE version_uuid=? AND data=?;"""))) {
+                for (Map.Entry<EncodedSnapshot, byte[]> entry : replacements.entrySet()) {
+                    statement.setBytes(1, entry.getValue());
+                    statement.setObject(2, entry.getKey().versionUuid());
+                    statement.setBytes(3, entry.getKey().data());
+                    statement.addBatch();
+                }
+                return countUpdated(metrics.time("replace_encoded_snapshots", statement::executeBatch));
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to replace encoded snapshots in the database", e);
+        }
+        return 0;
+    }
+
+    @Blocking
+    @Override
+    public int replaceEncodedMaps(@NotNull Map<EncodedMap, byte[]> replacements) {
+        if (replacements.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(formatStatementTables("""
+                    UPDATE %map_data_table%
+                    SET data=?
+                    WHERE server_name=? AND map_id=? AND data=?;"""))) {
+                for (Map.Entry<EncodedMap, byte[]> entry : replacements.entrySet()) {
+                    statement.setBytes(1, entry.getValue());
+                    statement.setString(2, entry.getKey().serverName());
+                    statement.setInt(3, entry.getKey().mapId());
+                    statement.setBytes(4, entry.getKey().data());
+                    statement.addBatch();
+                }
+                return countUpdated(metrics.time("replace_encoded_maps", statement::executeBatch));
+            }
+        } catch (SQLException e) {
+            plugin.log(Level.SEVERE, "Failed to replace encoded map data in the database", e);
+        }
+        return 0;
+    }
+
     @Override
     public void wipeDatabase() {
         try (Connection connection = getConnection()) {
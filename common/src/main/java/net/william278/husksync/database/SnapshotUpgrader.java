@@ -0,0 +1,184 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.database;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.user.User;
+import net.william278.husksync.util.ProgressFile;
+import org.jetbrains.annotations.Blocking;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Upgrades snapshots saved on older Minecraft versions or in legacy formats to the current format and version, and
+ * writes them back to the database, so their data only has to be converted once rather than every time it's read.
+ * <p>
+ * Snapshots are upgraded lazily when they are applied to a user, if enabled, and all at once with
+ * {@link #upgradeAll()}, which walks every user a batch at a time and saves its progress after each batch so it can be
+ * resumed if interrupted. Pinned snapshots are never rewritten.
+ *
+ * @since 4.0
+ */
+public class SnapshotUpgrader {
+
+    private static final String PROGRESS_FILE = "upgrade.progress";
+
+    // Maximum number of snapshots that failed to upgrade to remember, so they aren't retried on every read
+    private static final int MAX_FAILED = 1000;
+
+    private final HuskSync plugin;
+    private final Database database;
+    private final Set<UUID> upgrading = ConcurrentHashMap.newKeySet();
+    private final Cache<UUID, Boolean> failed = CacheBuilder.newBuilder().maximumSize(MAX_FAILED).build();
+
+    SnapshotUpgrader(@NotNull HuskSync plugin, @NotNull Database database) {
+        this.plugin = plugin;
+        this.database = database;
+    }
+
+    /**
+     * Upgrade a snapshot that is being applied to a user and write it back to the database in the background, if it
+     * is outdated, isn't pinned and upgrading snapshots on read is enabled
+     *
+     * @param user     the user who owns the snapshot
+     * @param snapshot the snapshot being applied
+     */
+    public void upgradeLazily(@NotNull User user, @NotNull DataSnapshot.Packed snapshot) {
+        if (!getSettings().isUpgradeOnRead() || snapshot.isPinned() || !snapshot.isOutdated(plugin)
+            || failed.getIfPresent(snapshot.getId()) != null || !upgrading.add(snapshot.getId())) {
+            return;
+        }
+        plugin.runAsync(() -> {
+            try {
+                if (upgrade(user, snapshot.getId())) {
+                    plugin.debug("Upgraded snapshot %s of %s to the current format".formatted(
+                            snapshot.getShortId(), user.getName()));
+                }
+            } finally {
+                upgrading.remove(snapshot.getId());
+            }
+        });
+    }
+
+    /**
+     * Upgrade every outdated, unpinned snapshot of every user, resuming a previous run if one was interrupted. The
+     * data cached on Redis for users with upgraded snapshots is cleared, so it's read again from the database.
+     *
+     * @throws IOException if the progress file could not be read or written
+     */
+    @Blocking
+    public void upgradeAll() throws IOException {
+        final ProgressFile progressFile = new ProgressFile(
+                plugin.getConfigDirectory().resolve(PROGRESS_FILE), "HuskSync snapshot upgrade progress"
+        );
+        final Progress progress = Optional.ofNullable(Progress.load(progressFile)).orElseGet(Progress::new);
+        if (progress.lastUser != null) {
+            plugin.log(Level.INFO, "Resuming snapshot upgrade after %s users".formatted(progress.users));
+        }
+
+        final int batchSize = Math.max(1, getSettings().getUsersPerBatch());
+        List<User> page;
+        do {
+            page = database.getUserPage(progress.lastUser, batchSize);
+            for (User user : page) {
+                boolean upgraded = false;
+                for (DataSnapshot.Packed snapshot : database.getAllSnapshots(user)) {
+                    if (!snapshot.isPinned() && snapshot.isOutdated(plugin) && upgrade(user, snapshot.getId())) {
+                        progress.snapshots++;
+                        upgraded = true;
+                    }
+                }
+                if (upgraded) {
+                    plugin.getRedisManager().clearUserData(user);
+                }
+            }
+            if (!page.isEmpty()) {
+                progress.lastUser = page.get(page.size() - 1).getUuid();
+                progress.users += page.size();
+                progress.save(progressFile);
+                plugin.log(Level.INFO, "Upgraded %s snapshots of %s users so far..."
+                        .formatted(progress.snapshots, progress.users));
+            }
+        } while (page.size() >= batchSize);
+
+        progressFile.delete();
+        plugin.log(Level.INFO, "Snapshot upgrade complete! Upgraded %s snapshots of %s users"
+                .formatted(progress.snapshots, progress.users));
+    }
+
+    // Re-read, upgrade and save a snapshot, checking the user's data wasn't written to in the meantime
+    @Blocking
+    private boolean upgrade(@NotNull User user, @NotNull UUID versionUuid) {
+        try {
+            if (database.editSnapshot(user, versionUuid, snapshot -> snapshot.upgrade(plugin))) {
+                return true;
+            }
+        } catch (Throwable e) {
+            plugin.log(Level.WARNING, "Failed to upgrade snapshot %s of %s".formatted(versionUuid, user.getName()), e);
+        }
+        failed.put(versionUuid, true);
+        return false;
+    }
+
+    @NotNull
+    private Settings.DatabaseSettings.UpgradeSettings getSettings() {
+        return plugin.getSettings().getDatabase().getUpgrades();
+    }
+
+    // Progress of an upgrade of all snapshots, saved after each batch of users
+    private static final class Progress {
+        @Nullable
+        private UUID lastUser;
+        private long users;
+        private long snapshots;
+
+        @Nullable
+        private static Progress load(@NotNull ProgressFile file) throws IOException {
+            final Properties properties = file.load();
+            if (properties == null) {
+                return null;
+            }
+            final Progress progress = new Progress();
+            final String lastUser = properties.getProperty("last_user", "");
+            progress.lastUser = lastUser.isEmpty() ? null : UUID.fromString(lastUser);
+            progress.users = Long.parseLong(properties.getProperty("users", "0"));
+            progress.snapshots = Long.parseLong(properties.getProperty("snapshots", "0"));
+            return progress;
+        }
+
+        private void save(@NotNull ProgressFile file) throws IOException {
+            final Properties properties = new Properties();
+            properties.setProperty("last_user", lastUser != null ? lastUser.toString() : "");
+            properties.setProperty("users", Long.toString(users));
+            properties.setProperty("snapshots", Long.toString(snapshots));
+            file.save(properties);
+        }
+    }
+
+}
@@ -260,13 +260,15 @@ public class PlanHook {
                     .columnOneFormat(TableColumnFormat.DATE_SECOND)
                     .columnTwo("ID", new Icon(Family.SOLID, "bolt", Color.NONE))
                     .columnThree("Cause", new Icon(Family.SOLID, "flag", Color.NONE))
-                    .columnFour("Pinned", new Icon(Family.SOLID, "thumbtack", Color.NONE));
+                    .columnFour("Pinned", new Icon(Family.SOLID, "thumbtack", Color.NONE))
+                    .columnFive("Size", new Icon(Family.SOLID, "weight-hanging", Color.NONE));
             plugin.getDatabase().getUser(playerUUID).ifPresent(user ->
                     plugin.getDatabase().getAllSnapshots(user).forEach(snapshot -> dataSnapshotsTable.addRow(
                             snapshot.getTimestamp().toEpochSecond(),
                             snapshot.getShortId(),
                             snapshot.getSaveCause().getDisplayName(),
-                            snapshot.isPinned() ? PINNED_HTML_STRING + "Pinned" : "Unpinned"
+                            snapshot.isPinned() ? PINNED_HTML_STRING + "Pinned" : "Unpinned",
+                            String.format("%.2fKiB", snapshot.getFileSize(plugin) / 1024f)
                     ))
             );
             return dataSnapshotsTable.build();
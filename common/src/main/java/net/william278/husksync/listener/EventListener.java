@@ -52,7 +52,8 @@ public abstract class EventListener {
             return;
         }
         plugin.lockPlayer(user.getUuid());
-        plugin.getDataSyncer().syncApplyUserData(user);
+        plugin.runAsync(() -> plugin.getRedisManager().setUserServer(user, true));
+        plugin.getDataSyncer().queueApplyUserData(user);
     }
 
     /**
@@ -66,19 +67,25 @@ public abstract class EventListener {
             return;
         }
         plugin.getDisconnectingPlayers().add(user.getUuid());
+        plugin.getDataSyncer().getLoadQueue().release(user);
+        plugin.getDataSyncer().getPrefetcher().invalidate(user);
+        plugin.getDataSyncer().getWorldSaveScheduler().cancel(user);
+        plugin.runAsync(() -> plugin.getRedisManager().setUserServer(user, false));
 
         // Lock, then save their data if the user is unlocked
         if (!plugin.isLocked(user.getUuid())) {
             plugin.lockPlayer(user.getUuid());
             plugin.getDataSyncer().syncSaveUserData(user);
         } else {
+            plugin.getDataSyncer().getChangeTracker().forget(user);
             plugin.debug(String.format("[%s] disconnected while locked - data will NOT be saved!",
                     user.getName()));
         }
     }
 
     /**
-     * Handles the saving of data when the world save event is fired
+     * Handles the saving of data when the world save event is fired, scheduling snapshots to be taken for users in
+     * the world over the configured world save window
      *
      * @param usersInWorld a list of users in the world that is being saved
      */
@@ -86,11 +93,9 @@ public abstract class EventListener {
         if (plugin.isDisabling() || !plugin.getSettings().getSynchronization().isSaveOnWorldSave()) {
             return;
         }
-        usersInWorld.stream()
+        plugin.getDataSyncer().getWorldSaveScheduler().schedule(usersInWorld.stream()
                 .filter(user -> !user.isNpc() && !user.hasDisconnected() && !plugin.isLocked(user.getUuid()))
-                .forEach(user -> plugin.getDataSyncer().saveCurrentUserData(
-                        user, DataSnapshot.SaveCause.WORLD_SAVE
-                ));
+                .toList());
     }
 
     /**
@@ -117,13 +122,12 @@ public abstract class EventListener {
      * Handle the plugin disabling
      */
     public void handlePluginDisable() {
-        // Save for all online players.
-        plugin.getOnlineUsers().stream()
+        // Save for all online players
+        final List<OnlineUser> users = plugin.getOnlineUsers().stream()
                 .filter(user -> !plugin.isLocked(user.getUuid()) && !user.isNpc())
-                .forEach(user -> {
-                    plugin.lockPlayer(user.getUuid());
-                    plugin.getDataSyncer().saveCurrentUserData(user, DataSnapshot.SaveCause.SERVER_SHUTDOWN);
-                });
+                .toList();
+        users.forEach(user -> plugin.lockPlayer(user.getUuid()));
+        plugin.getDataSyncer().getShutdownSaver().saveAll(users);
 
         // Close outstanding connections
         plugin.getDatabase().terminate();
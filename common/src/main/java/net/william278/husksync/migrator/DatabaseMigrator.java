@@ -0,0 +1,466 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.migrator;
+
+import com.google.common.collect.Lists;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.database.Database;
+import net.william278.husksync.database.MirroredDatabase;
+import net.william278.husksync.user.User;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import static net.william278.husksync.config.Settings.DatabaseSettings;
+
+/**
+ * Migrates users, data snapshots, map data and map bindings from the configured database to the database configured
+ * under {@code database.mirror} (e.g. from MySQL to MongoDB), then verifies the copy.
+ * <p>
+ * Copies are idempotent, so the migrator can be re-run safely. With {@code database.mirror} enabled on every server,
+ * writes made while the migration runs are also made to the target, so servers can stay online during the cutover.
+ *
+ * @since 4.0
+ */
+public class DatabaseMigrator extends Migrator {
+
+    private int workers;
+    private int batchSize;
+    private boolean verify;
+
+    public DatabaseMigrator(@NotNull HuskSync plugin) {
+        super(plugin);
+        this.workers = plugin.getSettings().getDatabase().getMirror().getMigrationWorkers();
+        this.batchSize = 100;
+        this.verify = true;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> start() {
+        final DatabaseSettings settings = plugin.getSettings().getDatabase();
+        plugin.log(Level.INFO, "Starting migration of data from %s to %s...".formatted(
+                settings.getType().getDisplayName(), settings.getMirror().getType().getDisplayName()));
+        final long startTime = System.currentTimeMillis();
+        return plugin.supplyAsync(() -> {
+            final Database source;
+            final Database target;
+            final MirroredDatabase mirror = plugin.getDatabase() instanceof MirroredDatabase mirrored
+                    ? mirrored : null;
+            if (mirror != null) {
+                source = mirror.getPrimary();
+                target = mirror.getTarget();
+            } else {
+                plugin.log(Level.WARNING, "Writing to the target database is not enabled (database.mirror.enabled). "
+                        + "Data saved while the migration runs will not be copied until the migrator is run again.");
+                if (isSameDatabase(settings)) {
+                    plugin.log(Level.SEVERE, "The target database is the same as the current database");
+                    return false;
+                }
+                source = plugin.getDatabase();
+                target = Database.create(plugin, settings.getMirrorTarget());
+            }
+
+            final ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, workers));
+            try {
+                if (mirror == null) {
+                    plugin.log(Level.INFO, "Connecting to the target database...");
+                    target.initialize();
+                }
+
+                // Copy users and their snapshots, then map data
+                plugin.log(Level.INFO, "Copying users and data snapshots (this might take a while)...");
+                final int copied = forEachUser(source, pool, users -> copyUsers(source, target, users), "Copied");
+                plugin.log(Level.INFO, "Copied %s new data snapshots".formatted(copied));
+                plugin.log(Level.INFO, "Copying map data and map bindings...");
+                copyMaps(source, target);
+
+                if (!verify) {
+                    plugin.log(Level.INFO, "Migration complete in %s seconds (verification skipped)!"
+                            .formatted((System.currentTimeMillis() - startTime) / 1000));
+                    return true;
+                }
+
+                // Verify the copy, repairing users whose snapshots differ
+                plugin.log(Level.INFO, "Verifying the copied data...");
+                final int mismatched = forEachUser(source, pool, users -> users.stream()
+                        .mapToInt(user -> verifyUser(source, target, mirror, user)).sum(), "Verified");
+                final boolean valid = verifyUsers(source, target) && verifyMaps(source, target) && mismatched == 0;
+                if (!valid) {
+                    plugin.log(Level.SEVERE, "Migration finished, but the target database does not match. "
+                            + "Check the log for details and run the migrator again.");
+                    return false;
+                }
+                plugin.log(Level.INFO, "Migration complete and verified in %s seconds! You can now change the database "
+                        .formatted((System.currentTimeMillis() - startTime) / 1000)
+                        + "type and credentials in your config to those of the target database, and disable mirroring.");
+                return true;
+            } catch (Throwable e) {
+                plugin.log(Level.SEVERE, "Error while migrating data to the target database: " + e.getMessage(), e);
+                return false;
+            } finally {
+                pool.shutdown();
+                if (mirror == null) {
+                    target.terminate();
+                }
+            }
+        });
+    }
+
+    // Run a task for every user in pages, splitting each page between the workers, returning the sum of the results
+    private int forEachUser(@NotNull Database source, @NotNull ExecutorService pool,
+                            @NotNull Function<List<User>, Integer> task, @NotNull String verb) {
+        final AtomicInteger total = new AtomicInteger();
+        int users = 0;
+        UUID last = null;
+        List<User> page;
+        do {
+            page = source.getUserPage(last, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            final int shareSize = Math.max(1, (page.size() + workers - 1) / workers);
+            CompletableFuture.allOf(Lists.partition(page, shareSize).stream()
+                    .map(share -> CompletableFuture.runAsync(() -> {
+                        try {
+                            total.addAndGet(task.apply(share));
+                        } catch (Throwable e) {
+                            plugin.log(Level.WARNING, "Failed to migrate data for %s users".formatted(share.size()), e);
+                        }
+                    }, pool))
+                    .toArray(CompletableFuture[]::new)).join();
+            users += page.size();
+            last = page.get(page.size() - 1).getUuid();
+            plugin.log(Level.INFO, "%s data for %s users...".formatted(verb, users));
+        } while (page.size() >= batchSize);
+        return total.get();
+    }
+
+    // Copy users and any of their snapshots missing from the target in one batch, returning the number copied
+    private int copyUsers(@NotNull Database source, @NotNull Database target, @NotNull List<User> users) {
+        final Map<User, List<DataSnapshot.Packed>> missing = new LinkedHashMap<>();
+        for (User user : users) {
+            target.ensureUser(user);
+            final Set<UUID> existing = getStoredBytes(target, user).keySet();
+            final List<DataSnapshot.Packed> snapshots = source.getAllSnapshots(user).stream()
+                    .filter(snapshot -> !existing.contains(snapshot.getId()))
+                    .toList();
+            if (!snapshots.isEmpty()) {
+                missing.put(user, snapshots);
+            }
+        }
+        target.importSnapshots(missing);
+        missing.forEach((user, snapshots) -> copyStoredBytes(source, target, user, snapshots));
+        return missing.values().stream().mapToInt(List::size).sum();
+    }
+
+    // Snapshots are re-encoded when they are inserted (e.g. legacy data is converted when read), so replace the
+    // inserted bytes with those stored on the source wherever they differ, making the copy exact
+    private void copyStoredBytes(@NotNull Database source, @NotNull Database target, @NotNull User user,
+                                 @NotNull List<DataSnapshot.Packed> inserted) {
+        final Map<UUID, byte[]> stored = getStoredBytes(source, user);
+        final Map<Database.EncodedSnapshot, byte[]> replacements = new HashMap<>();
+        for (DataSnapshot.Packed snapshot : inserted) {
+            final byte[] expected = stored.get(snapshot.getId());
+            final byte[] written = snapshot.asBytes(plugin);
+            if (expected != null && !Arrays.equals(expected, written)) {
+                replacements.put(new Database.EncodedSnapshot(user.getUuid(), snapshot.getId(), written), expected);
+            }
+        }
+        if (!replacements.isEmpty()) {
+            target.replaceEncodedSnapshots(replacements);
+        }
+    }
+
+    // Compare a user's stored snapshots, repairing the target if they differ. Returns 1 if still mismatched
+    private int verifyUser(@NotNull Database source, @NotNull Database target, @Nullable MirroredDatabase mirror,
+                           @NotNull User user) {
+        try {
+            // Hold back this server's writes to the user while they are repaired, so none are lost by the repair
+            return mirror != null
+                    ? mirror.fence(user, () -> repairUser(source, target, user))
+                    : repairUser(source, target, user);
+        } catch (Throwable e) {
+            plugin.log(Level.WARNING, "Failed to verify data for " + user.getName(), e);
+            return 1;
+        }
+    }
+
+    private int repairUser(@NotNull Database source, @NotNull Database target, @NotNull User user) {
+        // Read the target first. Other servers write to the source before the target, so any snapshot they have
+        // written to the target by then is also read from the source, and is never mistaken for an extra one
+        final Map<UUID, byte[]> actual = getStoredBytes(target, user);
+        final Map<UUID, byte[]> expected = getStoredBytes(source, user);
+        final boolean missingUser = target.getUser(user.getUuid()).isEmpty();
+        if (!missingUser && matches(expected, actual)) {
+            return 0;
+        }
+
+        plugin.log(Level.WARNING, "Data snapshots for %s differ on the target database (%s expected, %s found); "
+                .formatted(user.getName(), expected.size(), actual.size()) + "repairing...");
+        target.ensureUser(user);
+        for (UUID id : actual.keySet()) {
+            if (!expected.containsKey(id)) {
+                target.deleteSnapshot(user, id);
+            }
+        }
+        final Map<Database.EncodedSnapshot, byte[]> replacements = new HashMap<>();
+        actual.forEach((id, bytes) -> {
+            final byte[] stored = expected.get(id);
+            if (stored != null && !Arrays.equals(bytes, stored)) {
+                replacements.put(new Database.EncodedSnapshot(user.getUuid(), id, bytes), stored);
+            }
+        });
+        if (!replacements.isEmpty()) {
+            target.replaceEncodedSnapshots(replacements);
+        }
+        final List<DataSnapshot.Packed> missing = source.getAllSnapshots(user).stream()
+                .filter(snapshot -> expected.containsKey(snapshot.getId()) && !actual.containsKey(snapshot.getId()))
+                .toList();
+        if (!missing.isEmpty()) {
+            target.importSnapshots(Map.of(user, missing));
+            copyStoredBytes(source, target, user, missing);
+        }
+
+        if (!matches(expected, getStoredBytes(target, user))) {
+            plugin.log(Level.SEVERE, "Failed to repair data snapshots for %s on the target database"
+                    .formatted(user.getName()));
+            return 1;
+        }
+        return 0;
+    }
+
+    // Check every user on the target is also on the source. Users on the source were each checked when verified
+    private boolean verifyUsers(@NotNull Database source, @NotNull Database target) {
+        int targetUsers = 0;
+        int extraUsers = 0;
+        UUID last = null;
+        List<User> page;
+        do {
+            page = target.getUserPage(last, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            final Set<UUID> found = new HashSet<>();
+            source.getUsers(page.stream().map(User::getUuid).toList()).forEach(user -> found.add(user.getUuid()));
+            for (User user : page) {
+                if (!found.contains(user.getUuid())) {
+                    plugin.log(Level.WARNING, "User %s (%s) is on the target database but not the source"
+                            .formatted(user.getName(), user.getUuid()));
+                    extraUsers++;
+                }
+            }
+            targetUsers += page.size();
+            last = page.get(page.size() - 1).getUuid();
+        } while (page.size() >= batchSize);
+
+        if (extraUsers > 0) {
+            plugin.log(Level.SEVERE, "%s of the %s users on the target database are not on the source database"
+                    .formatted(extraUsers, targetUsers));
+            return false;
+        }
+        plugin.log(Level.INFO, "Verified %s users".formatted(targetUsers));
+        return true;
+    }
+
+    // Copy map data and map bindings missing from the target
+    private void copyMaps(@NotNull Database source, @NotNull Database target) {
+        final Set<Map.Entry<String, Integer>> existingMaps = new HashSet<>(target.getAllMapIds());
+        int maps = 0;
+        for (Map.Entry<String, Integer> map : source.getAllMapIds()) {
+            if (existingMaps.contains(map)) {
+                continue;
+            }
+            final byte[] data = source.getMapData(map.getKey(), map.getValue());
+            if (data != null) {
+                target.saveMapData(map.getKey(), map.getValue(), data);
+                maps++;
+            }
+        }
+
+        final Set<Database.MapBinding> existingBindings = new HashSet<>(target.getAllMapBindings());
+        int bindings = 0;
+        for (Database.MapBinding binding : source.getAllMapBindings()) {
+            if (!existingBindings.contains(binding)) {
+                target.setMapBinding(binding.fromServerName(), binding.fromId(),
+                        binding.toServerName(), binding.toId());
+                bindings++;
+            }
+        }
+        plugin.log(Level.INFO, "Copied %s maps and %s map bindings".formatted(maps, bindings));
+    }
+
+    // Check all maps and map bindings are present on the target and that map data matches
+    private boolean verifyMaps(@NotNull Database source, @NotNull Database target) {
+        final List<Map.Entry<String, Integer>> sourceMaps = source.getAllMapIds();
+        final Set<Map.Entry<String, Integer>> targetMaps = new HashSet<>(target.getAllMapIds());
+        int mismatched = 0;
+        for (Map.Entry<String, Integer> map : sourceMaps) {
+            if (!targetMaps.contains(map) || !Arrays.equals(source.getMapData(map.getKey(), map.getValue()),
+                    target.getMapData(map.getKey(), map.getValue()))) {
+                plugin.log(Level.WARNING, "Map #%s from %s does not match on the target database"
+                        .formatted(map.getValue(), map.getKey()));
+                mismatched++;
+            }
+        }
+
+        final Set<Database.MapBinding> targetBindings = new HashSet<>(target.getAllMapBindings());
+        final long missingBindings = source.getAllMapBindings().stream()
+                .filter(binding -> !targetBindings.contains(binding)).count();
+        if (mismatched > 0 || missingBindings > 0) {
+            plugin.log(Level.SEVERE, "%s maps and %s map bindings do not match on the target database"
+                    .formatted(mismatched, missingBindings));
+            return false;
+        }
+        plugin.log(Level.INFO, "Verified %s maps and %s map bindings".formatted(sourceMaps.size(), targetBindings.size()));
+        return true;
+    }
+
+    // Get a user's snapshots as stored, in snapshot ID order
+    @NotNull
+    private static Map<UUID, byte[]> getStoredBytes(@NotNull Database database, @NotNull User user) {
+        final Map<UUID, byte[]> snapshots = new TreeMap<>();
+        database.getEncodedSnapshots(user).forEach(snapshot -> snapshots.put(snapshot.versionUuid(), snapshot.data()));
+        return snapshots;
+    }
+
+    // Check two sets of a user's stored snapshots have the same number of snapshots and the same checksum
+    private static boolean matches(@NotNull Map<UUID, byte[]> expected, @NotNull Map<UUID, byte[]> actual) {
+        return expected.size() == actual.size() && checksum(expected) == checksum(actual);
+    }
+
+    // Checksum a user's stored snapshots, in snapshot ID order
+    private static long checksum(@NotNull Map<UUID, byte[]> snapshots) {
+        final CRC32 crc = new CRC32();
+        snapshots.forEach((id, bytes) -> {
+            crc.update(id.toString().getBytes(StandardCharsets.UTF_8));
+            crc.update(bytes);
+        });
+        return crc.getValue();
+    }
+
+    private boolean isSameDatabase(@NotNull DatabaseSettings settings) {
+        final DatabaseSettings.DatabaseCredentials source = settings.getCredentials();
+        final DatabaseSettings.DatabaseCredentials target = settings.getMirror().getCredentials();
+        return settings.getType().getProtocol().equals(settings.getMirror().getType().getProtocol())
+                && source.getHost().equalsIgnoreCase(target.getHost()) && source.getPort() == target.getPort()
+                && source.getDatabase().equals(target.getDatabase());
+    }
+
+    @Override
+    public void handleConfigurationCommand(@NotNull String[] args) {
+        if (args.length == 2) {
+            if (switch (args[0].toLowerCase(Locale.ENGLISH)) {
+                case "workers" -> {
+                    try {
+                        this.workers = Math.max(1, Integer.parseInt(args[1]));
+                        yield true;
+                    } catch (NumberFormatException e) {
+                        yield false;
+                    }
+                }
+                case "batch_size" -> {
+                    try {
+                        this.batchSize = Math.max(1, Integer.parseInt(args[1]));
+                        yield true;
+                    } catch (NumberFormatException e) {
+                        yield false;
+                    }
+                }
+                case "verify" -> {
+                    this.verify = Boolean.parseBoolean(args[1]);
+                    yield true;
+                }
+                default -> false;
+            }) {
+                plugin.log(Level.INFO, getHelpMenu());
+                plugin.log(Level.INFO, "Successfully set " + args[0] + " to " + args[1]);
+            } else {
+                plugin.log(Level.INFO, "Invalid operation, could not set " + args[0] + " to " + args[1]
+                                       + " (is it a valid option?)");
+            }
+        } else {
+            plugin.log(Level.INFO, getHelpMenu());
+        }
+    }
+
+    @NotNull
+    @Override
+    public String getIdentifier() {
+        return "database";
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return "Database --> Database Migrator";
+    }
+
+    @NotNull
+    @Override
+    public String getHelpMenu() {
+        final DatabaseSettings settings = plugin.getSettings().getDatabase();
+        return """
+                === HuskSync Database Migration Wizard ==============
+                This will copy all users, data snapshots, maps and
+                map bindings from your current database to another
+                database (e.g. from MySQL to MongoDB).
+
+                STEP 1] Set the type and credentials of the database
+                to migrate to under "mirror" in the database section
+                of config.yml on every server, then set "enabled" to
+                true and restart. Servers will then save data to both
+                databases, so players can stay online.
+                - from: %source_type%
+                - to: %target_type%
+                - mirroring enabled: %mirror_enabled%
+
+                STEP 2] Check the migration options below. Set them
+                using the command:
+                "husksync migrate set database <parameter> <value>"
+                - workers: %workers%
+                - batch_size: %batch_size%
+                - verify: %verify%
+
+                STEP 3] To start the migration, please run:
+                "husksync migrate start database"
+
+                STEP 4] Once the migration has been verified, change
+                your database settings to the new database on every
+                server, disable mirroring and restart.
+                """.replaceAll(Pattern.quote("%source_type%"), settings.getType().getDisplayName())
+                .replaceAll(Pattern.quote("%target_type%"), settings.getMirror().getType().getDisplayName())
+                .replaceAll(Pattern.quote("%mirror_enabled%"), Boolean.toString(settings.getMirror().isEnabled()))
+                .replaceAll(Pattern.quote("%workers%"), Integer.toString(workers))
+                .replaceAll(Pattern.quote("%batch_size%"), Integer.toString(batchSize))
+                .replaceAll(Pattern.quote("%verify%"), Boolean.toString(verify));
+    }
+
+}
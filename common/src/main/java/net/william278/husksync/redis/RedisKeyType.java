@@ -21,18 +21,22 @@ package net.william278.husksync.redis;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.Optional;
 
 public enum RedisKeyType {
 
     LATEST_SNAPSHOT,
     SERVER_SWITCH,
     DATA_CHECKOUT,
+    USER_SERVER,
     MAP_ID,
     MAP_ID_REVERSED,
     MAP_DATA;
 
     public static final int TTL_1_YEAR = 60 * 60 * 24 * 7 * 52; // 1 year
+    public static final int TTL_1_DAY = 60 * 60 * 24; // 1 day
     public static final int TTL_10_SECONDS = 10; // 10 seconds
 
     @NotNull
@@ -45,4 +49,16 @@ public enum RedisKeyType {
         );
     }
 
+    /**
+     * Get the type of key a key is
+     *
+     * @param key       the key
+     * @param clusterId the ID of the cluster the key belongs to
+     * @return the type of the key, if it is a HuskSync key on the cluster
+     * @since 4.0
+     */
+    public static Optional<RedisKeyType> fromKey(@NotNull String key, @NotNull String clusterId) {
+        return Arrays.stream(values()).filter(type -> key.startsWith(type.getKeyPrefix(clusterId) + ":")).findFirst();
+    }
+
 }
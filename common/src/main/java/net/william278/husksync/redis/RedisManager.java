@@ -19,48 +19,73 @@
 
 package net.william278.husksync.redis;
 
+import com.google.common.collect.Lists;
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.config.Settings;
 import net.william278.husksync.data.DataSnapshot;
 import net.william278.husksync.user.User;
+import net.william278.husksync.util.Task;
 import org.jetbrains.annotations.Blocking;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import redis.clients.jedis.*;
 import redis.clients.jedis.exceptions.JedisException;
-import redis.clients.jedis.util.Pool;
+import redis.clients.jedis.util.JedisClusterCRC16;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 /**
- * Manages the connection to Redis, handling the caching of user data
+ * Manages the connection to Redis, handling the caching of user data. Connects to a standalone Redis server, a
+ * Sentinel-managed server, or a Redis Cluster.
+ * <p>
+ * On a Redis Cluster, the keys of each user are hash-tagged with their UUID, so all of a user's keys are on the same
+ * slot, and messages are published with sharded pub/sub, so they are spread across the cluster's shards.
  */
-public class RedisManager extends JedisPubSub {
+public class RedisManager extends BinaryJedisPubSub {
 
     protected static final String KEY_NAMESPACE = "husksync:";
     private static final int RECONNECTION_TIME = 8000;
+    private static final int SCAN_COUNT = 1000;
+    private static final int MAX_USAGE_SAMPLES = 64;
+    private static final int HAND_OFF_BATCH_SIZE = 100;
+    private static final String CLEAR_USER_SERVER_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0""";
 
     private final HuskSync plugin;
     private final String clusterId;
-    private Pool<Jedis> jedisPool;
+    private final boolean binaryMessages;
+    private UnifiedJedis redis;
+    private boolean cluster;
+    private boolean sharded;
+    private final List<ShardListener> shardListeners = new ArrayList<>();
+    @Nullable
+    private Task.Repeating memoryBudgetTask;
     private final Map<UUID, CompletableFuture<Optional<DataSnapshot.Packed>>> pendingRequests;
 
     private boolean enabled;
     private boolean reconnected;
+    private boolean warnedIncompatible;
 
     public RedisManager(@NotNull HuskSync plugin) {
         this.plugin = plugin;
         this.clusterId = plugin.getSettings().getClusterId();
+        this.binaryMessages = plugin.getSettings().getRedis().isBinaryMessages();
         this.pendingRequests = new ConcurrentHashMap<>();
     }
 
     /**
-     * Initialize Redis connection pool
+     * Initialize the Redis connection
      */
 
     @Blocking
@@ -74,75 +99,123 @@ public class RedisManager extends JedisPubSub {
         final int database = credentials.getDatabase();
         final boolean useSSL = credentials.isUseSsl();
 
-        // Configure JedisPoolConfig
-        final JedisPoolConfig config = new JedisPoolConfig();
+        // Configure the connection pool
+        final ConnectionPoolConfig config = new ConnectionPoolConfig();
         config.setMaxTotal(credentials.getMaxTotalConnections());
         config.setMaxIdle(credentials.getMaxIdleConnections());
         config.setMinIdle(credentials.getMinIdleConnections());
         config.setTestOnBorrow(credentials.isTestOnBorrow());
         config.setTestOnReturn(credentials.isTestOnReturn());
         config.setTestWhileIdle(credentials.isTestWhileIdle());
-        config.setMinEvictableIdleTimeMillis(credentials.getMinEvictableIdleTimeMillis());
-        config.setTimeBetweenEvictionRunsMillis(credentials.getTimeBetweenEvictionRunsMillis());
+        config.setMinEvictableIdleDuration(Duration.ofMillis(credentials.getMinEvictableIdleTimeMillis()));
+        config.setTimeBetweenEvictionRuns(Duration.ofMillis(credentials.getTimeBetweenEvictionRunsMillis()));
 
         final Settings.RedisSettings.RedisSentinel sentinel = plugin.getSettings().getRedis().getSentinel();
-        Set<String> redisSentinelNodes = new HashSet<>(sentinel.getNodes());
+        final Settings.RedisSettings.RedisCluster redisCluster = plugin.getSettings().getRedis().getCluster();
+        final Set<HostAndPort> redisSentinelNodes = sentinel.getNodes().stream()
+                .map(HostAndPort::from).collect(Collectors.toSet());
+        final Set<HostAndPort> redisClusterNodes = redisCluster.getNodes().stream()
+                .map(HostAndPort::from).collect(Collectors.toSet());
+        final DefaultJedisClientConfig.Builder clientConfigBuilder = DefaultJedisClientConfig.builder()
+                .ssl(useSSL)
+                .connectionTimeoutMillis(credentials.getConnectionTimeout())
+                .socketTimeoutMillis(credentials.getSocketTimeout())
+                .user(user.isEmpty() ? null : user)
+                .password(password.isEmpty() ? null : password);
 
-        if (redisSentinelNodes.isEmpty()) {
+        if (!redisClusterNodes.isEmpty()) {
+            // Redis Cluster setup (clusters only have database 0)
+            this.redis = new JedisCluster(redisClusterNodes, clientConfigBuilder.build(),
+                    Math.max(1, redisCluster.getMaxAttempts()), config);
+            this.cluster = true;
+            this.sharded = redisCluster.isShardedPubSub();
+        } else if (redisSentinelNodes.isEmpty()) {
             // Standalone Redis setup
-            DefaultJedisClientConfig.Builder clientConfigBuilder = DefaultJedisClientConfig.builder()
-                    .ssl(useSSL)
-                    .database(database)
-                    .timeoutMillis(credentials.getConnectionTimeout()) // connection and socket timeout combined
-                    .user(user.isEmpty() ? null : user)
-                    .password(password.isEmpty() ? null : password);
-
-            this.jedisPool = new JedisPool(config, new HostAndPort(host, port), clientConfigBuilder.build());
+            this.redis = new JedisPooled(new HostAndPort(host, port),
+                    clientConfigBuilder.database(database).build(), config);
         } else {
             final String sentinelPassword = sentinel.getPassword();
-            this.jedisPool = new JedisSentinelPool(
+            this.redis = new JedisSentineled(
                     sentinel.getMaster(),
-                    redisSentinelNodes,
+                    clientConfigBuilder.database(database).build(),
                     config,
-                    credentials.getConnectionTimeout(),
-                    credentials.getSocketTimeout(),
-                    password.isEmpty() ? null : password,
-                    sentinelPassword.isEmpty() ? null : sentinelPassword,
-                    database);
+                    redisSentinelNodes,
+                    DefaultJedisClientConfig.builder()
+                            .connectionTimeoutMillis(credentials.getConnectionTimeout())
+                            .socketTimeoutMillis(credentials.getSocketTimeout())
+                            .password(sentinelPassword.isEmpty() ? null : sentinelPassword)
+                            .build());
         }
 
-        try (var jedis = jedisPool.getResource()) {
-            jedis.ping();
+        try {
+            redis.ping();
         } catch (JedisException e) {
             throw new IllegalStateException("Failed to establish connection with Redis. " +
                     "Please check the supplied credentials in the config file", e);
         }
 
         enabled = true;
-        new Thread(this::subscribe, "husksync:redis_subscriber").start();
+        if (sharded) {
+            subscribeSharded();
+        } else {
+            new Thread(this::subscribe, "husksync:redis_subscriber").start();
+        }
+
+        // Periodically evict cold entries if a memory budget is set
+        final Settings.RedisSettings.RedisCacheSettings cache = getCacheSettings();
+        if (cache.getMemoryBudgetMegabytes() > 0) {
+            memoryBudgetTask = plugin.getRepeatingTask(this::enforceMemoryBudget,
+                    Math.max(1, cache.getMemoryCheckIntervalSeconds()) * 20L);
+            memoryBudgetTask.run();
+        }
     }
 
     @Blocking
     private void subscribe() {
-        while (enabled && !Thread.interrupted() && jedisPool != null && !jedisPool.isClosed()) {
-            try (Jedis jedis = jedisPool.getResource()) {
+        while (enabled && !Thread.interrupted()) {
+            try {
                 if (reconnected) {
                     plugin.log(Level.INFO, "Redis connection is alive again");
                 }
-                // Subscribe channels and lock the thread
-                jedis.subscribe(
-                        this,
-                        Arrays.stream(RedisMessage.Type.values())
-                                .map(type -> type.getMessageChannel(clusterId))
-                                .toArray(String[]::new));
+                // Subscribe to the channels of each message type and of this server, then lock the thread
+                redis.subscribe(this, getChannels().toArray(byte[][]::new));
             } catch (Throwable t) {
                 // Thread was unlocked due error
-                onThreadUnlock(t);
+                onThreadUnlock(t, this::unsubscribe);
             }
         }
     }
 
-    private void onThreadUnlock(@NotNull Throwable t) {
+    // Subscribe to each channel with sharded pub/sub, on one thread per hash slot, as a sharded subscription
+    // can only span channels in the same slot
+    private void subscribeSharded() {
+        final Map<Integer, List<byte[]>> slots = getChannels().stream()
+                .collect(Collectors.groupingBy(JedisClusterCRC16::getSlot, TreeMap::new, Collectors.toList()));
+        slots.forEach((slot, channels) -> {
+            final ShardListener listener = new ShardListener();
+            shardListeners.add(listener);
+            new Thread(() -> {
+                while (enabled && !Thread.interrupted()) {
+                    try {
+                        ((JedisCluster) redis).ssubscribe(listener, channels.toArray(byte[][]::new));
+                    } catch (Throwable t) {
+                        onThreadUnlock(t, listener::sunsubscribe);
+                    }
+                }
+            }, "husksync:redis_subscriber_" + slot).start();
+        });
+    }
+
+    // Get the channels of each message type and of this server
+    @NotNull
+    private List<byte[]> getChannels() {
+        final List<String> channels = new ArrayList<>();
+        Arrays.stream(RedisMessage.Type.values()).forEach(type -> channels.add(type.getMessageChannel(clusterId)));
+        channels.add(RedisMessage.getServerChannel(clusterId, plugin.getServerName()));
+        return channels.stream().map(channel -> channel.getBytes(StandardCharsets.UTF_8)).toList();
+    }
+
+    private void onThreadUnlock(@NotNull Throwable t, @NotNull Runnable unsubscribe) {
         if (!enabled) {
             return;
         }
@@ -152,7 +225,7 @@ public class RedisManager extends JedisPubSub {
                     .formatted(RECONNECTION_TIME / 1000), t);
         }
         try {
-            this.unsubscribe();
+            unsubscribe.run();
         } catch (Throwable ignored) {
             // empty catch
         }
@@ -170,15 +243,26 @@ public class RedisManager extends JedisPubSub {
     }
 
     @Override
-    public void onMessage(@NotNull String channel, @NotNull String message) {
-        final RedisMessage.Type messageType = RedisMessage.Type.getTypeFromChannel(channel, clusterId).orElse(null);
-        if (messageType == null) {
+    public void onMessage(byte @NotNull [] channel, byte @NotNull [] message) {
+        final String channelName = new String(channel, StandardCharsets.UTF_8);
+        final RedisMessage.Type messageType;
+        final RedisMessage redisMessage;
+        try {
+            messageType = getMessageType(channelName, message).orElse(null);
+            if (messageType == null) {
+                return;
+            }
+            redisMessage = readMessage(messageType, message);
+        } catch (RedisMessage.IncompatibleFormatException e) {
+            warnIncompatible("messages in format v%s were received, but this server uses v%s"
+                    .formatted(e.getVersion(), RedisMessage.FORMAT_VERSION));
+            return;
+        } catch (Throwable e) {
+            plugin.log(Level.WARNING, "Received a malformed message from Redis", e);
             return;
         }
-
-        final RedisMessage redisMessage = RedisMessage.fromJson(plugin, message);
         switch (messageType) {
-            case UPDATE_USER_DATA -> redisMessage.getTargetUser(plugin).ifPresent(
+            case UPDATE_USER_DATA -> redisMessage.getTargetUser(plugin).ifPresentOrElse(
                     user -> {
                         plugin.lockPlayer(user.getUuid());
                         try {
@@ -189,12 +273,26 @@ public class RedisManager extends JedisPubSub {
                             plugin.log(Level.SEVERE, "An exception occurred updating user data from Redis", e);
                             user.completeSync(false, DataSnapshot.UpdateCause.UPDATED, plugin);
                         }
+                    },
+                    () -> {
+                        // The user has left this server since it was looked up, so publish the update to every server
+                        if (isServerChannel(channelName)) {
+                            plugin.runAsync(() -> publish(messageType.getMessageChannel(clusterId), message));
+                        }
                     });
-            case REQUEST_USER_DATA -> redisMessage.getTargetUser(plugin).ifPresent(
-                    user -> RedisMessage.create(
-                            UUID.fromString(new String(redisMessage.getPayload(), StandardCharsets.UTF_8)),
-                            user.createSnapshot(DataSnapshot.SaveCause.INVENTORY_COMMAND).asBytes(plugin))
-                            .dispatch(plugin, RedisMessage.Type.RETURN_USER_DATA));
+            case REQUEST_USER_DATA -> redisMessage.getTargetUser(plugin).ifPresent(user -> {
+                final UUID requestId = redisMessage.getRequestId().orElse(null);
+                if (requestId == null) {
+                    return;
+                }
+                final RedisMessage response = RedisMessage.create(user.getUuid(),
+                        user.createSnapshot(DataSnapshot.SaveCause.INVENTORY_COMMAND).asBytes(plugin));
+                response.setRequestId(requestId);
+
+                // Reply to the server that made the request, or to every server if it isn't known
+                redisMessage.getSourceServer().ifPresent(response::setTargetServer);
+                response.dispatch(plugin, RedisMessage.Type.RETURN_USER_DATA);
+            });
             case CHECK_IN_PETITION -> {
                 if (!redisMessage.isTargetServer(plugin)
                         || !plugin.getSettings().getSynchronization().isCheckinPetitions()) {
@@ -216,8 +314,18 @@ public class RedisManager extends JedisPubSub {
                 plugin.getRedisManager().setUserCheckedOut(user, false);
                 plugin.debug("[%s] Petition accepted - user checked in".formatted(user.getName()));
             }
+            case PREFETCH_USER_DATA -> {
+                if (!redisMessage.isTargetServer(plugin)) {
+                    return;
+                }
+                final UUID uuid = UUID.fromString(new String(redisMessage.getPayload(), StandardCharsets.UTF_8));
+                plugin.getDataSyncer().getPrefetcher().prefetch(uuid);
+            }
             case RETURN_USER_DATA -> {
-                final UUID target = redisMessage.getTargetUuid().orElse(null);
+                final UUID target = redisMessage.getRequestId().orElse(null);
+                if (target == null) {
+                    return;
+                }
                 final CompletableFuture<Optional<DataSnapshot.Packed>> future = pendingRequests.get(target);
                 if (future != null) {
                     try {
@@ -233,21 +341,93 @@ public class RedisManager extends JedisPubSub {
         }
     }
 
+    // Get the type of message received; messages on this server's channel carry their type in the frame
+    private Optional<RedisMessage.Type> getMessageType(@NotNull String channel, byte @NotNull [] message) {
+        if (isServerChannel(channel)) {
+            return RedisMessage.isJson(message) ? Optional.empty() : Optional.of(RedisMessage.getFrameType(message));
+        }
+        return RedisMessage.Type.getTypeFromChannel(channel, clusterId);
+    }
+
+    private boolean isServerChannel(@NotNull String channel) {
+        return channel.equalsIgnoreCase(RedisMessage.getServerChannel(clusterId, plugin.getServerName()));
+    }
+
+    // Read a binary message frame, or a JSON message (as published by proxy plugins and older versions)
+    @NotNull
+    private RedisMessage readMessage(@NotNull RedisMessage.Type type, byte @NotNull [] message) {
+        if (!RedisMessage.isJson(message)) {
+            return RedisMessage.fromBytes(type, message);
+        }
+        if (binaryMessages && type != RedisMessage.Type.PREFETCH_USER_DATA) {
+            warnIncompatible("JSON messages were received from a server running a version before v4.0, which "
+                    + "can't read the binary messages this server sends (disable binary_messages until it's updated)");
+        }
+        return RedisMessage.fromJson(plugin, type, new String(message, StandardCharsets.UTF_8));
+    }
+
+    // Warn (once) that servers on the cluster are running incompatible versions of HuskSync
+    private void warnIncompatible(@NotNull String reason) {
+        if (warnedIncompatible) {
+            return;
+        }
+        warnedIncompatible = true;
+        plugin.log(Level.WARNING, "Servers on this cluster (%s) are running different versions of HuskSync; %s. "
+                .formatted(clusterId, reason) + "Please update HuskSync on all servers to the same version.");
+    }
+
     @Override
-    public void onSubscribe(String channel, int subscribedChannels) {
-        plugin.log(Level.INFO, "Redis subscribed to channel '" + channel + "'");
+    public void onSubscribe(byte[] channel, int subscribedChannels) {
+        plugin.log(Level.INFO, "Redis subscribed to channel '" + new String(channel, StandardCharsets.UTF_8) + "'");
     }
 
     @Override
-    public void onUnsubscribe(String channel, int subscribedChannels) {
-        plugin.log(Level.INFO, "Redis unsubscribed from channel '" + channel + "'");
+    public void onUnsubscribe(byte[] channel, int subscribedChannels) {
+        plugin.log(Level.INFO, "Redis unsubscribed from channel '" + new String(channel, StandardCharsets.UTF_8) + "'");
+    }
+
+    /**
+     * Publish a message. If {@code binary_messages} is enabled, messages are sent as binary frames, and messages
+     * addressed to a server, or user data updates for a user whose server is known, are published on that server's
+     * channel so that only it receives them. Otherwise, messages are sent as JSON to every server, as servers running
+     * versions before v4.0 only read JSON from the channel of each message type.
+     * <p>
+     * Only user data updates look up the user's server, as their payload is large enough to be worth the lookup.
+     * If no server is subscribed to the looked-up server's channel, the update is published to every server instead,
+     * and a server that receives an update for a user who has since left it publishes it to every server.
+     *
+     * @param type    the type of message
+     * @param message the message
+     */
+    @Blocking
+    protected void sendMessage(@NotNull RedisMessage.Type type, @NotNull RedisMessage message) {
+        if (!binaryMessages) {
+            publish(type.getMessageChannel(clusterId),
+                    message.toJson(plugin, type).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        final byte[] frame = message.toBytes(type);
+        final Optional<String> targetServer = message.getTargetServer();
+        if (targetServer.isPresent()) {
+            publish(RedisMessage.getServerChannel(clusterId, targetServer.get()), frame);
+            return;
+        }
+
+        // Route user data updates to the user's server, or to every server if it isn't known or is offline
+        final Optional<String> userServer = type == RedisMessage.Type.UPDATE_USER_DATA
+                ? message.getTargetUuid().flatMap(this::getUserServer) : Optional.empty();
+        if (userServer.isEmpty() || publish(RedisMessage.getServerChannel(clusterId, userServer.get()), frame) == 0) {
+            publish(type.getMessageChannel(clusterId), frame);
+        }
     }
 
+    // Publish a message on a channel, returning the number of subscribers that received it
     @Blocking
-    protected void sendMessage(@NotNull String channel, @NotNull String message) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.publish(channel, message);
+    private long publish(@NotNull String channel, byte @NotNull [] message) {
+        if (sharded) {
+            return ((JedisCluster) redis).spublish(channel.getBytes(StandardCharsets.UTF_8), message);
         }
+        return redis.publish(channel.getBytes(StandardCharsets.UTF_8), message);
     }
 
     @Blocking
@@ -278,9 +458,9 @@ public class RedisManager extends JedisPubSub {
         final CompletableFuture<Optional<DataSnapshot.Packed>> future = new CompletableFuture<>();
         pendingRequests.put(requestId, future);
         plugin.runAsync(() -> {
-            final RedisMessage redisMessage = RedisMessage.create(
-                    user.getUuid(),
-                    requestId.toString().getBytes(StandardCharsets.UTF_8));
+            final RedisMessage redisMessage = RedisMessage.create(user.getUuid(), new byte[0]);
+            redisMessage.setRequestId(requestId);
+            redisMessage.setSourceServer(plugin.getServerName());
             redisMessage.dispatch(plugin, RedisMessage.Type.REQUEST_USER_DATA);
         });
         return future
@@ -296,10 +476,10 @@ public class RedisManager extends JedisPubSub {
     // Set a user's data to Redis
     @Blocking
     public void setUserData(@NotNull User user, @NotNull DataSnapshot.Packed data) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.setex(
-                    getKey(RedisKeyType.LATEST_SNAPSHOT, user.getUuid(), clusterId),
-                    RedisKeyType.TTL_1_YEAR,
+        try {
+            redis.setex(
+                    getKey(RedisKeyType.LATEST_SNAPSHOT, user.getUuid()),
+                    getCacheSettings().getSnapshotTtlSeconds(),
                     data.asBytes(plugin));
             plugin.debug(String.format("[%s] Set %s key on Redis", user.getName(), RedisKeyType.LATEST_SNAPSHOT));
         } catch (Throwable e) {
@@ -307,11 +487,66 @@ public class RedisManager extends JedisPubSub {
         }
     }
 
+    /**
+     * Hand a user's saved data off to the next server they join, setting their latest data and, optionally, their
+     * server switch key and releasing their checkout, in one round-trip
+     *
+     * @param user         the user
+     * @param data         the user's saved data
+     * @param serverSwitch whether to set the user's server switch key
+     * @param checkIn      whether to release the user's checkout
+     * @since 4.0
+     */
+    @Blocking
+    public void handOffUserData(@NotNull User user, @NotNull DataSnapshot.Packed data,
+                                boolean serverSwitch, boolean checkIn) {
+        handOffUserData(Map.of(user, data), serverSwitch, checkIn);
+    }
+
+    /**
+     * Hand the saved data of many users off to the next server they join, writing the keys of each batch of users in
+     * one pipeline rather than a round-trip per key
+     *
+     * @param data         map of users to their saved data
+     * @param serverSwitch whether to set the users' server switch keys
+     * @param checkIn      whether to release the users' checkouts
+     * @since 4.0
+     */
+    @Blocking
+    public void handOffUserData(@NotNull Map<? extends User, DataSnapshot.Packed> data,
+                                boolean serverSwitch, boolean checkIn) {
+        final long snapshotTtl = getCacheSettings().getSnapshotTtlSeconds();
+        for (List<? extends Map.Entry<? extends User, DataSnapshot.Packed>> batch :
+                Lists.partition(List.copyOf(data.entrySet()), HAND_OFF_BATCH_SIZE)) {
+            try (AbstractPipeline pipeline = redis.pipelined()) {
+                // Data is written before the checkout is released, so the next server never sees stale data
+                batch.forEach(entry -> {
+                    final UUID uuid = entry.getKey().getUuid();
+                    pipeline.setex(getKey(RedisKeyType.LATEST_SNAPSHOT, uuid), snapshotTtl,
+                            entry.getValue().asBytes(plugin));
+                    if (serverSwitch) {
+                        pipeline.setex(getKey(RedisKeyType.SERVER_SWITCH, uuid), RedisKeyType.TTL_10_SECONDS,
+                                new byte[0]);
+                    }
+                    if (checkIn) {
+                        pipeline.del(getKey(RedisKeyType.DATA_CHECKOUT, uuid));
+                    }
+                });
+            } catch (Throwable e) {
+                plugin.log(Level.SEVERE, "An exception occurred handing off data of %s users on Redis"
+                        .formatted(batch.size()), e);
+                continue;
+            }
+            batch.forEach(entry -> plugin.debug("[%s] Handed off data on Redis (switch: %s, check in: %s)"
+                    .formatted(entry.getKey().getName(), serverSwitch, checkIn)));
+        }
+    }
+
     @Blocking
     public void clearUserData(@NotNull User user) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.del(
-                    getKey(RedisKeyType.LATEST_SNAPSHOT, user.getUuid(), clusterId));
+        try {
+            redis.del(
+                    getKey(RedisKeyType.LATEST_SNAPSHOT, user.getUuid()));
             plugin.debug(String.format("[%s] Cleared %s on Redis", user.getName(), RedisKeyType.LATEST_SNAPSHOT));
         } catch (Throwable e) {
             plugin.log(Level.SEVERE, "An exception occurred clearing user data on Redis", e);
@@ -320,14 +555,14 @@ public class RedisManager extends JedisPubSub {
 
     @Blocking
     public void setUserCheckedOut(@NotNull User user, boolean checkedOut) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            final String key = getKeyString(RedisKeyType.DATA_CHECKOUT, user.getUuid(), clusterId);
+        try {
+            final String key = getKeyString(RedisKeyType.DATA_CHECKOUT, user.getUuid());
             if (checkedOut) {
-                jedis.set(
+                redis.set(
                         key.getBytes(StandardCharsets.UTF_8),
                         plugin.getServerName().getBytes(StandardCharsets.UTF_8));
             } else {
-                if (jedis.del(key.getBytes(StandardCharsets.UTF_8)) == 0) {
+                if (redis.del(key.getBytes(StandardCharsets.UTF_8)) == 0) {
                     plugin.debug(String.format("[%s] %s key not set on Redis when attempting removal (%s)",
                             user.getName(), RedisKeyType.DATA_CHECKOUT, key));
                     return;
@@ -340,11 +575,53 @@ public class RedisManager extends JedisPubSub {
         }
     }
 
+    /**
+     * Set or clear the server a user is online on, which is used to route messages addressed to them. This is only
+     * tracked if {@code binary_messages} is enabled, as messages are otherwise published to every server
+     *
+     * @param user   the user
+     * @param online {@code true} if the user is now online on this server; {@code false} if they've left it
+     */
+    @Blocking
+    public void setUserServer(@NotNull User user, boolean online) {
+        if (!binaryMessages) {
+            return;
+        }
+        try {
+            final String key = getKeyString(RedisKeyType.USER_SERVER, user.getUuid());
+            if (online) {
+                redis.setex(key, RedisKeyType.TTL_1_DAY, plugin.getServerName());
+                return;
+            }
+
+            // Only clear the key if the user hasn't since joined another server
+            redis.eval(CLEAR_USER_SERVER_SCRIPT, List.of(key), List.of(plugin.getServerName()));
+        } catch (Throwable e) {
+            plugin.log(Level.SEVERE, "An exception occurred setting a user's server on Redis", e);
+        }
+    }
+
+    /**
+     * Get the server a user is online on
+     *
+     * @param uuid the UUID of the user
+     * @return the name of the server the user is online on, if known
+     */
+    @Blocking
+    public Optional<String> getUserServer(@NotNull UUID uuid) {
+        try {
+            return Optional.ofNullable(redis.get(getKeyString(RedisKeyType.USER_SERVER, uuid)));
+        } catch (Throwable e) {
+            plugin.log(Level.WARNING, "An exception occurred getting a user's server from Redis", e);
+            return Optional.empty();
+        }
+    }
+
     @Blocking
     public Optional<String> getUserCheckedOut(@NotNull User user) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            final byte[] key = getKey(RedisKeyType.DATA_CHECKOUT, user.getUuid(), clusterId);
-            final byte[] readData = jedis.get(key);
+        try {
+            final byte[] key = getKey(RedisKeyType.DATA_CHECKOUT, user.getUuid());
+            final byte[] readData = redis.get(key);
             if (readData != null) {
                 final String checkoutServer = new String(readData, StandardCharsets.UTF_8);
                 plugin.debug(String.format("[%s] Waiting for %s %s key to be unset on Redis",
@@ -362,17 +639,20 @@ public class RedisManager extends JedisPubSub {
     @Blocking
     public void clearUsersCheckedOutOnServer() {
         final String keyFormat = String.format("%s*", RedisKeyType.DATA_CHECKOUT.getKeyPrefix(clusterId));
-        try (Jedis jedis = jedisPool.getResource()) {
-            final Set<String> keys = jedis.keys(keyFormat);
-            if (keys == null) {
-                plugin.log(Level.WARNING, "Checkout key returned null from Redis during clearing");
-                return;
-            }
-            for (String key : keys) {
-                if (jedis.get(key).equals(plugin.getServerName())) {
-                    jedis.del(key);
+        try {
+            scan(keyFormat, keys -> {
+                final List<Response<String>> servers = new ArrayList<>(keys.size());
+                try (AbstractPipeline pipeline = redis.pipelined()) {
+                    keys.forEach(key -> servers.add(pipeline.get(key)));
                 }
-            }
+                try (AbstractPipeline pipeline = redis.pipelined()) {
+                    for (int i = 0; i < keys.size(); i++) {
+                        if (plugin.getServerName().equals(servers.get(i).get())) {
+                            pipeline.del(keys.get(i));
+                        }
+                    }
+                }
+            });
         } catch (Throwable e) {
             plugin.log(Level.SEVERE, "An exception occurred clearing this server's checkout keys on Redis", e);
         }
@@ -385,9 +665,9 @@ public class RedisManager extends JedisPubSub {
      */
     @Blocking
     public void setUserServerSwitch(@NotNull User user) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.setex(
-                    getKey(RedisKeyType.SERVER_SWITCH, user.getUuid(), clusterId),
+        try {
+            redis.setex(
+                    getKey(RedisKeyType.SERVER_SWITCH, user.getUuid()),
                     RedisKeyType.TTL_10_SECONDS,
                     new byte[0]);
             plugin.debug(String.format("[%s] Set %s key to Redis",
@@ -406,9 +686,9 @@ public class RedisManager extends JedisPubSub {
      */
     @Blocking
     public Optional<DataSnapshot.Packed> getUserData(@NotNull User user) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            final byte[] key = getKey(RedisKeyType.LATEST_SNAPSHOT, user.getUuid(), clusterId);
-            final byte[] dataByteArray = jedis.get(key);
+        try {
+            final byte[] key = getKey(RedisKeyType.LATEST_SNAPSHOT, user.getUuid());
+            final byte[] dataByteArray = redis.get(key);
             if (dataByteArray == null) {
                 plugin.debug(String.format("[%s] Waiting for %s key from Redis",
                         user.getName(), RedisKeyType.LATEST_SNAPSHOT));
@@ -418,7 +698,7 @@ public class RedisManager extends JedisPubSub {
                     user.getName(), RedisKeyType.LATEST_SNAPSHOT));
 
             // Consume the key (delete from redis)
-            jedis.del(key);
+            redis.del(key);
 
             // Use Snappy to decompress the json
             return Optional.of(DataSnapshot.deserialize(plugin, dataByteArray));
@@ -428,11 +708,31 @@ public class RedisManager extends JedisPubSub {
         }
     }
 
+    /**
+     * Read a user's latest data snapshot from Redis without consuming it
+     *
+     * @param user the user to read data for
+     * @return the user's data, if present
+     */
+    @Blocking
+    public Optional<DataSnapshot.Packed> peekUserData(@NotNull User user) {
+        try {
+            final byte[] dataByteArray = redis.get(getKey(RedisKeyType.LATEST_SNAPSHOT, user.getUuid()));
+            if (dataByteArray == null) {
+                return Optional.empty();
+            }
+            return Optional.of(DataSnapshot.deserialize(plugin, dataByteArray));
+        } catch (Throwable e) {
+            plugin.log(Level.SEVERE, "An exception occurred peeking a user's data from Redis", e);
+            return Optional.empty();
+        }
+    }
+
     @Blocking
     public boolean getUserServerSwitch(@NotNull User user) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            final byte[] key = getKey(RedisKeyType.SERVER_SWITCH, user.getUuid(), clusterId);
-            final byte[] readData = jedis.get(key);
+        try {
+            final byte[] key = getKey(RedisKeyType.SERVER_SWITCH, user.getUuid());
+            final byte[] readData = redis.get(key);
             if (readData == null) {
                 plugin.debug(String.format("[%s] Waiting for %s key from Redis",
                         user.getName(), RedisKeyType.SERVER_SWITCH));
@@ -442,7 +742,7 @@ public class RedisManager extends JedisPubSub {
                     user.getName(), RedisKeyType.SERVER_SWITCH));
 
             // Consume the key (delete from redis)
-            jedis.del(key);
+            redis.del(key);
             return true;
         } catch (Throwable e) {
             plugin.log(Level.SEVERE, "An exception occurred getting a user's server switch from Redis", e);
@@ -452,18 +752,14 @@ public class RedisManager extends JedisPubSub {
 
     @Blocking
     public String getStatusDump() {
-        try (Jedis jedis = jedisPool.getResource()) {
-            return jedis.info();
-        }
+        return redis.info();
     }
 
     @Blocking
     public long getLatency() {
         final long startTime = System.currentTimeMillis();
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.ping();
-            return System.currentTimeMillis() - startTime;
-        }
+        redis.ping();
+        return System.currentTimeMillis() - startTime;
     }
 
     @Blocking
@@ -479,13 +775,13 @@ public class RedisManager extends JedisPubSub {
 
     @Blocking
     public void bindMapIds(@NotNull String fromServer, int fromId, @NotNull String toServer, int toId) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.setex(
-                    getMapIdKey(fromServer, fromId, toServer, clusterId),
+        try {
+            redis.setex(
+                    getMapIdKey(fromServer, fromId, toServer),
                     RedisKeyType.TTL_1_YEAR,
                     String.valueOf(toId).getBytes(StandardCharsets.UTF_8));
-            jedis.setex(
-                    getReversedMapIdKey(toServer, toId, clusterId),
+            redis.setex(
+                    getReversedMapIdKey(toServer, toId),
                     RedisKeyType.TTL_1_YEAR,
                     String.format("%s:%s", fromServer, fromId).getBytes(StandardCharsets.UTF_8));
             plugin.debug(String.format("Bound map %s:%s -> %s:%s on Redis", fromServer, fromId, toServer, toId));
@@ -496,8 +792,8 @@ public class RedisManager extends JedisPubSub {
 
     @Blocking
     public Optional<Integer> getBoundMapId(@NotNull String fromServer, int fromId, @NotNull String toServer) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            final byte[] readData = jedis.get(getMapIdKey(fromServer, fromId, toServer, clusterId));
+        try {
+            final byte[] readData = redis.get(getMapIdKey(fromServer, fromId, toServer));
             if (readData == null) {
                 plugin.debug(String.format("[%s:%s] No bound map id for server %s Redis",
                         fromServer, fromId, toServer));
@@ -515,8 +811,8 @@ public class RedisManager extends JedisPubSub {
 
     @Blocking
     public @Nullable Map.Entry<String, Integer> getReversedMapBound(@NotNull String toServer, int toId) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            final byte[] readData = jedis.get(getReversedMapIdKey(toServer, toId, clusterId));
+        try {
+            final byte[] readData = redis.get(getReversedMapIdKey(toServer, toId));
             if (readData == null) {
                 plugin.debug(String.format("[%s:%s] No reversed map bound on Redis",
                         toServer, toId));
@@ -535,10 +831,10 @@ public class RedisManager extends JedisPubSub {
 
     @Blocking
     public void setMapData(@NotNull String serverName, int mapId, byte[] data) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.setex(
-                    getMapDataKey(serverName, mapId, clusterId),
-                    RedisKeyType.TTL_1_YEAR,
+        try {
+            redis.setex(
+                    getMapDataKey(serverName, mapId),
+                    getCacheSettings().getMapTtlSeconds(),
                     data);
             plugin.debug(String.format("Set map data %s:%s on Redis", serverName, mapId));
         } catch (Throwable e) {
@@ -548,8 +844,15 @@ public class RedisManager extends JedisPubSub {
 
     @Blocking
     public byte @Nullable [] getMapData(@NotNull String serverName, int mapId) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            final byte[] readData = jedis.get(getMapDataKey(serverName, mapId, clusterId));
+        try {
+            // Reset the TTL of the map as it's read, so maps in use stay cached
+            final byte[] key = getMapDataKey(serverName, mapId);
+            final Response<byte[]> response;
+            try (AbstractPipeline pipeline = redis.pipelined()) {
+                response = pipeline.get(key);
+                pipeline.expire(key, getCacheSettings().getMapTtlSeconds());
+            }
+            final byte[] readData = response.get();
             if (readData == null) {
                 plugin.debug(String.format("[%s:%s] No map data on Redis",
                         serverName, mapId));
@@ -565,38 +868,205 @@ public class RedisManager extends JedisPubSub {
         }
     }
 
+    /**
+     * Count the keys of each type on this cluster, and estimate the memory they use by sampling the memory usage of
+     * some keys of each type
+     *
+     * @return the key usage of each type of key
+     * @since 4.0
+     */
+    @Blocking
+    @NotNull
+    public Map<RedisKeyType, KeyUsage> getKeyUsage() {
+        final Map<RedisKeyType, long[]> tallies = new EnumMap<>(RedisKeyType.class);
+        final String pattern = "%s:%s:*".formatted(KEY_NAMESPACE.toLowerCase(Locale.ENGLISH),
+                clusterId.toLowerCase(Locale.ENGLISH));
+        scan(pattern, keys -> {
+            final Map<RedisKeyType, List<Response<Long>>> samples = new EnumMap<>(RedisKeyType.class);
+            try (AbstractPipeline pipeline = redis.pipelined()) {
+                for (String key : keys) {
+                    RedisKeyType.fromKey(key, clusterId).ifPresent(type -> {
+                        // Tally of {keys, sampled keys, sampled bytes}
+                        final long[] tally = tallies.computeIfAbsent(type, t -> new long[3]);
+                        tally[0]++;
+                        final List<Response<Long>> sampled = samples.computeIfAbsent(type, t -> new ArrayList<>());
+                        if (tally[1] + sampled.size() < MAX_USAGE_SAMPLES) {
+                            sampled.add(pipeline.memoryUsage(key));
+                        }
+                    });
+                }
+            }
+            samples.forEach((type, sampled) -> sampled.stream().map(Response::get).filter(Objects::nonNull)
+                    .forEach(bytes -> {
+                        tallies.get(type)[1]++;
+                        tallies.get(type)[2] += bytes;
+                    }));
+        });
+        final Map<RedisKeyType, KeyUsage> usage = new EnumMap<>(RedisKeyType.class);
+        tallies.forEach((type, tally) -> usage.put(type,
+                new KeyUsage(tally[0], tally[1] == 0 ? 0 : tally[2] * tally[0] / tally[1])));
+        return usage;
+    }
+
+    /**
+     * Evict the cached user and map data that has gone unused the longest, until the data on Redis fits within the
+     * configured memory budget. How long an entry has gone unused is worked out from how much of its TTL has
+     * elapsed, as the TTL is reset whenever the entry is written (and, for maps, read).
+     */
+    @Blocking
+    public void enforceMemoryBudget() {
+        final Settings.RedisSettings.RedisCacheSettings cache = getCacheSettings();
+        final long budget = cache.getMemoryBudgetMegabytes() * 1024L * 1024L;
+        if (budget <= 0 || !enabled) {
+            return;
+        }
+        try {
+            final List<CachedEntry> entries = new ArrayList<>();
+            scanCached(RedisKeyType.LATEST_SNAPSHOT, cache.getSnapshotTtlSeconds(), entries);
+            scanCached(RedisKeyType.MAP_DATA, cache.getMapTtlSeconds(), entries);
+            long used = entries.stream().mapToLong(CachedEntry::bytes).sum();
+            if (used <= budget) {
+                plugin.debug("Redis data uses %sKiB of its %sMiB memory budget"
+                        .formatted(used / 1024, cache.getMemoryBudgetMegabytes()));
+                return;
+            }
+
+            // Evict the coldest entries first
+            entries.sort(Comparator.comparingLong(CachedEntry::idleSeconds).reversed());
+            int evicted = 0;
+            long freed = 0;
+            try (AbstractPipeline pipeline = redis.pipelined()) {
+                for (CachedEntry entry : entries) {
+                    if (used - freed <= budget) {
+                        break;
+                    }
+                    pipeline.del(entry.key());
+                    freed += entry.bytes();
+                    evicted++;
+                }
+            }
+            plugin.log(Level.INFO, "Evicted %s cold entries (%sKiB) from Redis to stay within the %sMiB memory budget"
+                    .formatted(evicted, freed / 1024, cache.getMemoryBudgetMegabytes()));
+        } catch (Throwable e) {
+            plugin.log(Level.WARNING, "An exception occurred enforcing the Redis memory budget", e);
+        }
+    }
+
+    // Scan the keys of a type, reading the memory usage and time since last use of each
+    private void scanCached(@NotNull RedisKeyType type, long ttl, @NotNull List<CachedEntry> entries) {
+        scan(type.getKeyPrefix(clusterId) + ":*", keys -> {
+            final List<Response<Long>> usages = new ArrayList<>(keys.size());
+            final List<Response<Long>> ttls = new ArrayList<>(keys.size());
+            try (AbstractPipeline pipeline = redis.pipelined()) {
+                for (String key : keys) {
+                    usages.add(pipeline.memoryUsage(key));
+                    ttls.add(pipeline.ttl(key));
+                }
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                final Long bytes = usages.get(i).get();
+                final long remaining = ttls.get(i).get();
+                if (bytes == null || remaining == -2) {
+                    continue; // Expired or deleted since it was scanned
+                }
+
+                // Keys without an expiry are coldest; keys set by older versions had a year-long TTL
+                final long idle = remaining == -1 ? Long.MAX_VALUE
+                        : remaining > ttl ? RedisKeyType.TTL_1_YEAR - remaining : ttl - remaining;
+                entries.add(new CachedEntry(keys.get(i), bytes, idle));
+            }
+        });
+    }
+
+    // Iterate over the keys matching a pattern a page at a time, without blocking Redis as KEYS would. On a
+    // cluster, the keys on every master node are scanned in turn
+    private void scan(@NotNull String pattern, @NotNull Consumer<List<String>> page) {
+        final ScanIteration iteration = redis.scanIteration(SCAN_COUNT, pattern);
+        while (!iteration.isIterationCompleted()) {
+            final List<String> keys = List.copyOf(iteration.nextBatchList());
+            if (!keys.isEmpty()) {
+                page.accept(keys);
+            }
+        }
+    }
+
+    @NotNull
+    private Settings.RedisSettings.RedisCacheSettings getCacheSettings() {
+        return plugin.getSettings().getRedis().getCache();
+    }
+
     @Blocking
     public void terminate() {
         enabled = false;
-        if (jedisPool != null) {
-            if (!jedisPool.isClosed()) {
-                jedisPool.close();
-            }
+        if (memoryBudgetTask != null) {
+            memoryBudgetTask.cancel();
+        }
+        if (sharded) {
+            shardListeners.forEach(listener -> {
+                if (listener.isSubscribed()) {
+                    listener.sunsubscribe();
+                }
+            });
+        } else if (isSubscribed()) {
+            this.unsubscribe();
+        }
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    /**
+     * The number of keys of a type on Redis, and an estimate of the memory they use
+     *
+     * @param keys  the number of keys
+     * @param bytes the estimated number of bytes used by the keys
+     * @since 4.0
+     */
+    public record KeyUsage(long keys, long bytes) {
+    }
+
+    private record CachedEntry(@NotNull String key, long bytes, long idleSeconds) {
+    }
+
+    // Relays messages received with sharded pub/sub to this manager
+    private final class ShardListener extends BinaryJedisShardedPubSub {
+        @Override
+        public void onSMessage(byte @NotNull [] channel, byte @NotNull [] message) {
+            onMessage(channel, message);
+        }
+
+        @Override
+        public void onSSubscribe(byte[] channel, int subscribedChannels) {
+            onSubscribe(channel, subscribedChannels);
+        }
+
+        @Override
+        public void onSUnsubscribe(byte[] channel, int subscribedChannels) {
+            onUnsubscribe(channel, subscribedChannels);
         }
-        this.unsubscribe();
     }
 
-    private static byte[] getKey(@NotNull RedisKeyType keyType, @NotNull UUID uuid, @NotNull String clusterId) {
-        return getKeyString(keyType, uuid, clusterId).getBytes(StandardCharsets.UTF_8);
+    private byte[] getKey(@NotNull RedisKeyType keyType, @NotNull UUID uuid) {
+        return getKeyString(keyType, uuid).getBytes(StandardCharsets.UTF_8);
     }
 
+    // On a cluster, the UUID is hash-tagged so all of a user's keys are stored on the same slot
     @NotNull
-    private static String getKeyString(@NotNull RedisKeyType keyType, @NotNull UUID uuid, @NotNull String clusterId) {
-        return String.format("%s:%s", keyType.getKeyPrefix(clusterId), uuid);
+    private String getKeyString(@NotNull RedisKeyType keyType, @NotNull UUID uuid) {
+        return String.format(cluster ? "%s:{%s}" : "%s:%s", keyType.getKeyPrefix(clusterId), uuid);
     }
 
-    private static byte[] getMapIdKey(@NotNull String fromServer, int fromId, @NotNull String toServer,
-            @NotNull String clusterId) {
+    private byte[] getMapIdKey(@NotNull String fromServer, int fromId, @NotNull String toServer) {
         return String.format("%s:%s:%s:%s", RedisKeyType.MAP_ID.getKeyPrefix(clusterId), fromServer, fromId, toServer)
                 .getBytes(StandardCharsets.UTF_8);
     }
 
-    private static byte[] getReversedMapIdKey(@NotNull String toServer, int toId, @NotNull String clusterId) {
+    private byte[] getReversedMapIdKey(@NotNull String toServer, int toId) {
         return String.format("%s:%s:%s", RedisKeyType.MAP_ID_REVERSED.getKeyPrefix(clusterId), toServer, toId)
                 .getBytes(StandardCharsets.UTF_8);
     }
 
-    private static byte[] getMapDataKey(@NotNull String serverName, int mapId, @NotNull String clusterId) {
+    private byte[] getMapDataKey(@NotNull String serverName, int mapId) {
         return String.format("%s:%s:%s", RedisKeyType.MAP_DATA.getKeyPrefix(clusterId), serverName, mapId)
                 .getBytes(StandardCharsets.UTF_8);
     }
@@ -29,17 +29,53 @@ import net.william278.husksync.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * A message sent between servers over Redis pub/sub.
+ * <p>
+ * Messages are sent as a compact binary frame, rather than as JSON, as payloads are usually packed data snapshots:
+ * <pre>
+ * [format version: byte][type: byte][flags: byte]
+ * [target server: short length + UTF-8 bytes] (if flag 0x1 set)
+ * [target UUID: 2 longs]                      (if flag 0x2 set)
+ * [request ID: 2 longs]                       (if flag 0x4 set)
+ * [source server: short length + UTF-8 bytes] (if flag 0x8 set)
+ * [payload length: int][payload bytes]
+ * </pre>
+ * Binary frames can't be read by servers running HuskSync before v4.0, so they are only sent if
+ * {@code binary_messages} is enabled; otherwise messages are sent as {@link #toJson(HuskSync, Type) JSON}.
+ * Messages in JSON (e.g. published by proxy plugins or older servers) are always accepted.
+ * <p>
+ * When sending binary frames, messages addressed to a server, or to a user whose server is known, are published on
+ * that server's {@link #getServerChannel(String, String) channel}; other messages are published on the channel of
+ * their type.
+ */
 @Setter
 public class RedisMessage implements Adaptable {
 
+    /**
+     * The version of the binary message format. Servers reject messages of other versions.
+     */
+    public static final byte FORMAT_VERSION = 1;
+    private static final byte FLAG_TARGET_SERVER = 0x1;
+    private static final byte FLAG_TARGET_UUID = 0x2;
+    private static final byte FLAG_REQUEST_ID = 0x4;
+    private static final byte FLAG_SOURCE_SERVER = 0x8;
+
     private @Nullable String targetServer;
     @SerializedName("target_uuid")
     private @Nullable UUID targetUuid;
+    @SerializedName("request_id")
+    private @Nullable UUID requestId;
+    @SerializedName("source_server")
+    private @Nullable String sourceServer;
     @Getter
     @Setter
     @SerializedName("payload")
@@ -78,17 +114,193 @@ public class RedisMessage implements Adaptable {
         return plugin.getGson().fromJson(json, RedisMessage.class);
     }
 
+    /**
+     * Read a message from JSON, accepting the way servers running HuskSync before v4.0 carry request IDs
+     * (in the payload of user data requests, and as the target UUID of user data returns)
+     *
+     * @param plugin the plugin instance
+     * @param type   the type of message, as determined by the channel it was received on
+     * @param json   the JSON message
+     * @return the message
+     * @throws JsonSyntaxException if the JSON is malformed
+     */
+    @NotNull
+    public static RedisMessage fromJson(@NotNull HuskSync plugin, @NotNull Type type,
+                                        @NotNull String json) throws JsonSyntaxException {
+        final RedisMessage message = fromJson(plugin, json);
+        if (message.requestId == null && type == Type.REQUEST_USER_DATA && message.payload != null) {
+            message.setRequestId(UUID.fromString(new String(message.payload, StandardCharsets.UTF_8)));
+        } else if (message.requestId == null && type == Type.RETURN_USER_DATA) {
+            message.setRequestId(message.targetUuid);
+        }
+        return message;
+    }
+
+    /**
+     * Read a message from a binary frame
+     *
+     * @param type    the type of message expected, as determined by the channel it was received on
+     * @param message the binary message frame
+     * @return the message
+     * @throws IncompatibleFormatException if the frame is from a different version of the message format
+     * @throws IllegalArgumentException    if the frame is malformed or is not of the expected type
+     */
+    @NotNull
+    public static RedisMessage fromBytes(@NotNull Type type, byte[] message) throws IllegalArgumentException {
+        if (getFrameType(message) != type) {
+            throw new IllegalArgumentException("Message type does not match the channel it was received on");
+        }
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(message, 2, message.length - 2);
+            final byte flags = buffer.get();
+            final RedisMessage redisMessage = new RedisMessage();
+            if ((flags & FLAG_TARGET_SERVER) != 0) {
+                redisMessage.setTargetServer(readString(buffer));
+            }
+            if ((flags & FLAG_TARGET_UUID) != 0) {
+                redisMessage.setTargetUuid(new UUID(buffer.getLong(), buffer.getLong()));
+            }
+            if ((flags & FLAG_REQUEST_ID) != 0) {
+                redisMessage.setRequestId(new UUID(buffer.getLong(), buffer.getLong()));
+            }
+            if ((flags & FLAG_SOURCE_SERVER) != 0) {
+                redisMessage.setSourceServer(readString(buffer));
+            }
+            final byte[] payload = new byte[buffer.getInt()];
+            buffer.get(payload);
+            redisMessage.setPayload(payload);
+            return redisMessage;
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Malformed message frame", e);
+        }
+    }
+
+    /**
+     * Read the type of message from a binary frame
+     *
+     * @param message the binary message frame
+     * @return the message type
+     * @throws IncompatibleFormatException if the frame is from a different version of the message format
+     * @throws IllegalArgumentException    if the frame is malformed
+     */
+    @NotNull
+    public static Type getFrameType(byte[] message) throws IllegalArgumentException {
+        if (message.length < 3) {
+            throw new IllegalArgumentException("Malformed message frame");
+        }
+        if (message[0] != FORMAT_VERSION) {
+            throw new IncompatibleFormatException(message[0]);
+        }
+        final Type[] types = Type.values();
+        if (message[1] < 0 || message[1] >= types.length) {
+            throw new IllegalArgumentException("Unknown message type " + message[1]);
+        }
+        return types[message[1]];
+    }
+
+    @NotNull
+    private static String readString(@NotNull ByteBuffer buffer) {
+        final byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(@NotNull ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Returns whether a received message is in the older JSON format, rather than a binary frame
+     *
+     * @param message the received message
+     * @return {@code true} if the message is JSON
+     */
+    public static boolean isJson(byte[] message) {
+        return message.length > 0 && message[0] == '{';
+    }
+
+    /**
+     * Write this message to a binary frame
+     *
+     * @param type the type of message
+     * @return the binary message frame
+     */
+    public byte[] toBytes(@NotNull Type type) {
+        final byte[] server = targetServer != null ? targetServer.getBytes(StandardCharsets.UTF_8) : null;
+        final byte[] source = sourceServer != null ? sourceServer.getBytes(StandardCharsets.UTF_8) : null;
+        final byte[] data = payload != null ? payload : new byte[0];
+        final ByteBuffer buffer = ByteBuffer.allocate(3
+                + (server != null ? Short.BYTES + server.length : 0)
+                + (targetUuid != null ? Long.BYTES * 2 : 0)
+                + (requestId != null ? Long.BYTES * 2 : 0)
+                + (source != null ? Short.BYTES + source.length : 0)
+                + Integer.BYTES + data.length);
+        buffer.put(FORMAT_VERSION);
+        buffer.put((byte) type.ordinal());
+        buffer.put((byte) ((server != null ? FLAG_TARGET_SERVER : 0)
+                | (targetUuid != null ? FLAG_TARGET_UUID : 0)
+                | (requestId != null ? FLAG_REQUEST_ID : 0)
+                | (source != null ? FLAG_SOURCE_SERVER : 0)));
+        if (server != null) {
+            writeString(buffer, server);
+        }
+        if (targetUuid != null) {
+            buffer.putLong(targetUuid.getMostSignificantBits()).putLong(targetUuid.getLeastSignificantBits());
+        }
+        if (requestId != null) {
+            buffer.putLong(requestId.getMostSignificantBits()).putLong(requestId.getLeastSignificantBits());
+        }
+        if (source != null) {
+            writeString(buffer, source);
+        }
+        buffer.putInt(data.length);
+        buffer.put(data);
+        return buffer.array();
+    }
+
+    /**
+     * Write this message to JSON that servers running HuskSync before v4.0 can also read
+     *
+     * @param plugin the plugin instance
+     * @param type   the type of message
+     * @return the JSON message
+     */
+    @NotNull
+    public String toJson(@NotNull HuskSync plugin, @NotNull Type type) {
+        final RedisMessage message = new RedisMessage(payload);
+        message.setTargetServer(targetServer);
+        message.setTargetUuid(targetUuid);
+        message.setRequestId(requestId);
+        message.setSourceServer(sourceServer);
+        if (requestId != null && type == Type.REQUEST_USER_DATA) {
+            message.setPayload(requestId.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (requestId != null && type == Type.RETURN_USER_DATA) {
+            message.setTargetUuid(requestId);
+        }
+        return plugin.getGson().toJson(message);
+    }
+
     public void dispatch(@NotNull HuskSync plugin, @NotNull Type type) {
-        plugin.runAsync(() -> plugin.getRedisManager().sendMessage(
-                type.getMessageChannel(plugin.getSettings().getClusterId()),
-                plugin.getGson().toJson(this)
-        ));
+        plugin.runAsync(() -> plugin.getRedisManager().sendMessage(type, this));
+    }
+
+    public Optional<String> getTargetServer() {
+        return Optional.ofNullable(targetServer);
+    }
+
+    public Optional<String> getSourceServer() {
+        return Optional.ofNullable(sourceServer);
     }
 
     public Optional<UUID> getTargetUuid() {
         return Optional.ofNullable(targetUuid);
     }
 
+    public Optional<UUID> getRequestId() {
+        return Optional.ofNullable(requestId);
+    }
+
     public Optional<OnlineUser> getTargetUser(@NotNull HuskSync plugin) {
         return getTargetUuid().flatMap(plugin::getOnlineUser);
     }
@@ -97,11 +309,29 @@ public class RedisMessage implements Adaptable {
         return targetServer != null && targetServer.equals(plugin.getServerName());
     }
 
+    /**
+     * Get the channel that messages addressed to a server are published on
+     *
+     * @param clusterId  the cluster ID
+     * @param serverName the name of the server
+     * @return the server's message channel
+     */
+    @NotNull
+    public static String getServerChannel(@NotNull String clusterId, @NotNull String serverName) {
+        return String.format(
+                "%s:%s:server:%s",
+                RedisManager.KEY_NAMESPACE.toLowerCase(Locale.ENGLISH),
+                clusterId.toLowerCase(Locale.ENGLISH),
+                serverName.toLowerCase(Locale.ENGLISH)
+        );
+    }
+
     public enum Type {
         UPDATE_USER_DATA,
         REQUEST_USER_DATA,
         RETURN_USER_DATA,
-        CHECK_IN_PETITION;
+        CHECK_IN_PETITION,
+        PREFETCH_USER_DATA;
 
         @NotNull
         public String getMessageChannel(@NotNull String clusterId) {
@@ -120,4 +350,18 @@ public class RedisMessage implements Adaptable {
         }
 
     }
+
+    /**
+     * Thrown when a message frame was written with a different {@link #FORMAT_VERSION format version},
+     * indicating that servers on the cluster are running different versions of HuskSync
+     */
+    @Getter
+    public static final class IncompatibleFormatException extends IllegalArgumentException {
+        private final byte version;
+
+        private IncompatibleFormatException(byte version) {
+            super("Unsupported message format version %s (expected %s)".formatted(version, FORMAT_VERSION));
+            this.version = version;
+        }
+    }
 }
\ No newline at end of file
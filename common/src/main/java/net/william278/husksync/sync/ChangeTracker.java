@@ -0,0 +1,139 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.sync;
+
+import com.google.common.hash.Hashing;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.user.User;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Tracks whether online users' data has changed since it was last applied to them or saved to the database, by
+ * fingerprinting the serialized form of each data type in their snapshots. This lets saves of unchanged data skip
+ * writing a new snapshot to the database.
+ * <p>
+ * Only users whose data has been applied on this server are tracked.
+ *
+ * @since 4.0
+ */
+public class ChangeTracker {
+
+    private final Predicate<String> ignored;
+    private final Map<UUID, Map<String, Long>> fingerprints = new ConcurrentHashMap<>();
+
+    ChangeTracker(@NotNull HuskSync plugin) {
+        this(key -> isIgnored(plugin, key));
+    }
+
+    ChangeTracker(@NotNull Predicate<String> ignored) {
+        this.ignored = ignored;
+    }
+
+    /**
+     * Record a snapshot that has been applied to a user, starting tracking changes to their data
+     *
+     * @param user     the user
+     * @param snapshot the snapshot applied to the user
+     */
+    public void recordApplied(@NotNull User user, @NotNull DataSnapshot.Packed snapshot) {
+        fingerprints.put(user.getUuid(), getFingerprints(snapshot));
+    }
+
+    /**
+     * Record a snapshot that has been saved to the database for a user, if changes to their data are being tracked.
+     * This must only be called once the write has succeeded, or a failed save could be skipped as unchanged.
+     *
+     * @param user     the user
+     * @param snapshot the snapshot saved for the user
+     */
+    public void recordSaved(@NotNull User user, @NotNull DataSnapshot.Packed snapshot) {
+        fingerprints.computeIfPresent(user.getUuid(), (uuid, previous) -> getFingerprints(snapshot));
+    }
+
+    /**
+     * Check whether the data in a snapshot captured for a user is unchanged from the data last applied to them or
+     * saved for them. Data types configured to be ignored are not compared, unless the snapshot was captured as
+     * the user's session on this server ended.
+     *
+     * @param user     the user
+     * @param snapshot the snapshot captured for the user
+     * @return {@code true} if every data type in the snapshot is unchanged
+     */
+    public boolean isUnchanged(@NotNull User user, @NotNull DataSnapshot.Packed snapshot) {
+        final Map<String, Long> recorded = fingerprints.get(user.getUuid());
+        if (recorded == null) {
+            return false;
+        }
+        final boolean compareIgnored = endsSession(snapshot.getSaveCause());
+        for (Map.Entry<String, String> entry : snapshot.getData().entrySet()) {
+            if (!compareIgnored && ignored.test(entry.getKey())) {
+                continue;
+            }
+            final Long fingerprint = recorded.get(entry.getKey());
+            if (fingerprint == null || fingerprint != getFingerprint(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop tracking changes to a user's data
+     *
+     * @param user the user
+     */
+    public void forget(@NotNull User user) {
+        fingerprints.remove(user.getUuid());
+    }
+
+    // Changes to ignored data types must still be written when a session ends, as nothing else will save them
+    private static boolean endsSession(@NotNull DataSnapshot.SaveCause cause) {
+        return cause == DataSnapshot.SaveCause.DISCONNECT || cause == DataSnapshot.SaveCause.SERVER_SHUTDOWN;
+    }
+
+    private static boolean isIgnored(@NotNull HuskSync plugin, @NotNull String key) {
+        final Settings.SynchronizationSettings.SkipUnchangedSettings settings = plugin.getSettings()
+                .getSynchronization().getSkipUnchanged();
+        return settings.isIgnoredDataType(key) || plugin.getIdentifier(key)
+                .map(id -> settings.isIgnoredDataType(id.asMinimalString()))
+                .orElse(false);
+    }
+
+    @NotNull
+    private static Map<String, Long> getFingerprints(@NotNull DataSnapshot.Packed snapshot) {
+        final Map<String, Long> fingerprints = new HashMap<>(snapshot.getData().size() * 2);
+        snapshot.getData().forEach((key, value) -> fingerprints.put(key, getFingerprint(value)));
+        return fingerprints;
+    }
+
+    private static long getFingerprint(@NotNull String serialized) {
+        return Hashing.murmur3_128().hashString(serialized, StandardCharsets.UTF_8).asLong();
+    }
+
+}
@@ -19,6 +19,7 @@
 
 package net.william278.husksync.sync;
 
+import lombok.Getter;
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.api.HuskSyncAPI;
 import net.william278.husksync.data.DataSnapshot;
@@ -32,12 +33,16 @@ import org.jetbrains.annotations.Blocking;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 
 /**
@@ -51,11 +56,26 @@ public abstract class DataSyncer {
 
     protected final HuskSync plugin;
     private final long maxListenAttempts;
+    @Getter
+    private final SyncQueue loadQueue;
+    @Getter
+    private final SnapshotPrefetcher prefetcher;
+    @Getter
+    private final WorldSaveScheduler worldSaveScheduler;
+    @Getter
+    private final ChangeTracker changeTracker;
+    @Getter
+    private final ShutdownSaver shutdownSaver;
 
     @ApiStatus.Internal
     protected DataSyncer(@NotNull HuskSync plugin) {
         this.plugin = plugin;
         this.maxListenAttempts = getMaxListenAttempts();
+        this.loadQueue = new SyncQueue(plugin, this::syncApplyUserData);
+        this.prefetcher = new SnapshotPrefetcher(plugin);
+        this.worldSaveScheduler = new WorldSaveScheduler(plugin);
+        this.changeTracker = new ChangeTracker(plugin);
+        this.shutdownSaver = new ShutdownSaver(plugin);
     }
 
     /**
@@ -87,6 +107,17 @@ public abstract class DataSyncer {
      */
     public abstract void syncApplyUserData(@NotNull OnlineUser user);
 
+    /**
+     * Queue a user's data to be fetched and applied, waiting for a free slot in the {@link SyncQueue load queue}
+     * before calling {@link #syncApplyUserData(OnlineUser)}
+     *
+     * @param user the user to fetch data for
+     * @since 4.0
+     */
+    public final void queueApplyUserData(@NotNull OnlineUser user) {
+        loadQueue.enqueue(user);
+    }
+
     /**
      * Called when a user's data should be serialized and saved as part of a synchronization process
      *
@@ -104,6 +135,40 @@ public abstract class DataSyncer {
         this.saveData(onlineUser, onlineUser.createSnapshot(cause), getRedis()::setUserData);
     }
 
+    /**
+     * Save the data snapshots of many users, e.g. when the server is shutting down. The snapshots are saved to the
+     * database in a batch, then handed off on Redis in batched pipelines rather than a round-trip per user.
+     *
+     * @param snapshots map of users to the snapshot to save for them
+     * @return the users whose snapshot failed to be saved to the database
+     * @apiNote The {@link net.william278.husksync.event.DataSaveEvent} is not fired, so this should only be used with
+     * save causes that don't {@link DataSnapshot.SaveCause#fireDataSaveEvent() fire it}.
+     * @since 4.0
+     */
+    @NotNull
+    @Blocking
+    public Set<User> saveData(@NotNull Map<User, DataSnapshot.Packed> snapshots) {
+        final Map<User, DataSnapshot.Packed> changed = new LinkedHashMap<>();
+        snapshots.forEach((user, data) -> {
+            if (!isUnchanged(user, data)) {
+                changed.put(user, data);
+            }
+        });
+        final Set<User> failed = getDatabase().addSnapshots(changed);
+        changed.forEach((user, data) -> {
+            if (!failed.contains(user)) {
+                changeTracker.recordSaved(user, data);
+            }
+        });
+        snapshots.keySet().forEach(user -> {
+            if (user instanceof OnlineUser online && online.hasDisconnected()) {
+                changeTracker.forget(user);
+            }
+        });
+        getRedis().handOffUserData(snapshots, false, false);
+        return failed;
+    }
+
     /**
      * Save a {@link DataSnapshot.Packed user's data snapshot} to the database,
      * first firing the {@link net.william278.husksync.event.DataSaveEvent}. This will not update data on Redis.
@@ -115,11 +180,26 @@ public abstract class DataSyncer {
      * Note that this method can also edit the data before saving it.
      * @implNote Note that the {@link net.william278.husksync.event.DataSaveEvent} will <b>not</b> be fired if
      * {@link DataSnapshot.SaveCause#fireDataSaveEvent()} is {@code false} (e.g., with the SERVER_SHUTDOWN cause).
+     * If the save cause is configured to skip unchanged data and the {@link ChangeTracker} finds the user's data
+     * unchanged, neither the event is fired nor the snapshot written, but the {@code after} consumer is still run.
      * @since 3.3.2
      */
     @Blocking
     public void saveData(@NotNull User user, @NotNull DataSnapshot.Packed data,
                          @Nullable BiConsumer<User, DataSnapshot.Packed> after) {
+        final boolean unchanged = isUnchanged(user, data);
+        if (user instanceof OnlineUser online && online.hasDisconnected()) {
+            changeTracker.forget(user);
+        }
+        if (unchanged) {
+            plugin.debug("[%s] Skipped saving unchanged data (cause: %s)".formatted(
+                    user.getName(), data.getSaveCause().getDisplayName()
+            ));
+            if (after != null) {
+                after.accept(user, data);
+            }
+            return;
+        }
         if (!data.getSaveCause().fireDataSaveEvent()) {
             addSnapshotToDatabase(user, data, after);
             return;
@@ -146,16 +226,68 @@ public abstract class DataSyncer {
         saveData(user, data, null);
     }
 
-    // Adds a snapshot to the database and runs the after consumer
+    /**
+     * Save a {@link DataSnapshot.Packed user's data snapshot} based on their saved data to the database,
+     * first firing the {@link net.william278.husksync.event.DataSaveEvent}, only if the user's data has not been
+     * written to since {@code revision} was read. This will not update data on Redis.
+     * <p>
+     * If the user's data was written to concurrently, their latest snapshot is re-read and passed to the
+     * {@code merger} to re-apply the changes to, and the save is retried without firing the event again.
+     *
+     * @param user     the user to save the data for
+     * @param data     the data to save
+     * @param revision the user's revision, read with {@link Database#getRevision(User)} before the data the
+     *                 snapshot is based on was read
+     * @param merger   function re-applying the changes made in the snapshot to the user's latest snapshot
+     * @param after    a consumer to run with the saved snapshot after data has been saved. Will be run async.
+     * @since 4.0
+     */
+    @Blocking
+    public void saveData(@NotNull User user, @NotNull DataSnapshot.Packed data, long revision,
+                         @NotNull UnaryOperator<DataSnapshot.Packed> merger,
+                         @Nullable BiConsumer<User, DataSnapshot.Packed> after) {
+        if (!data.getSaveCause().fireDataSaveEvent()) {
+            addSnapshotToDatabase(user, data, revision, merger, after);
+            return;
+        }
+        plugin.fireEvent(
+                plugin.getDataSaveEvent(user, data),
+                (event) -> addSnapshotToDatabase(user, data, revision, merger, after)
+        );
+    }
+
+    // Adds a snapshot to the database and runs the after consumer. The snapshot is only recorded as saved once the
+    // write is confirmed, so a failed save isn't skipped as unchanged when it is retried
     @Blocking
     private void addSnapshotToDatabase(@NotNull User user, @NotNull DataSnapshot.Packed data,
                                        @Nullable BiConsumer<User, DataSnapshot.Packed> after) {
-        getDatabase().addSnapshot(user, data);
+        if (getDatabase().addSnapshot(user, data, Database.ANY_REVISION)) {
+            changeTracker.recordSaved(user, data);
+        }
         if (after != null) {
             after.accept(user, data);
         }
     }
 
+    // Adds a snapshot to the database if the user's revision is unchanged, merging and retrying on conflicts
+    @Blocking
+    private void addSnapshotToDatabase(@NotNull User user, @NotNull DataSnapshot.Packed data, long revision,
+                                       @NotNull UnaryOperator<DataSnapshot.Packed> merger,
+                                       @Nullable BiConsumer<User, DataSnapshot.Packed> after) {
+        getDatabase().addSnapshot(user, data, revision, merger).ifPresent(saved -> {
+            changeTracker.recordSaved(user, saved);
+            if (after != null) {
+                after.accept(user, saved);
+            }
+        });
+    }
+
+    // Whether the user's data is unchanged since it was last applied or saved, and saving it can be skipped
+    private boolean isUnchanged(@NotNull User user, @NotNull DataSnapshot.Packed data) {
+        return plugin.getSettings().getSynchronization().getSkipUnchanged().doSkip(data.getSaveCause())
+                && changeTracker.isUnchanged(user, data);
+    }
+
     // Calculates the max attempts the system should listen for user data for based on the latency value
     private long getMaxListenAttempts() {
         return BASE_LISTEN_ATTEMPTS + (
@@ -168,8 +300,11 @@ public abstract class DataSyncer {
     @ApiStatus.Internal
     protected void setUserFromDatabase(@NotNull OnlineUser user) {
         try {
-            getDatabase().getLatestSnapshot(user).ifPresentOrElse(
-                    snapshot -> user.applySnapshot(snapshot, DataSnapshot.UpdateCause.SYNCHRONIZED),
+            prefetcher.takeFromDatabase(user).or(() -> getDatabase().getLatestSnapshot(user)).ifPresentOrElse(
+                    snapshot -> {
+                        getDatabase().getUpgrader().upgradeLazily(user, snapshot);
+                        user.applySnapshot(snapshot, DataSnapshot.UpdateCause.SYNCHRONIZED);
+                    },
                     () -> user.completeSync(true, DataSnapshot.UpdateCause.NEW_USER, plugin)
             );
         } catch (Throwable e) {
@@ -187,6 +322,7 @@ public abstract class DataSyncer {
         final Runnable runnable = () -> {
             if (user.cannotApplySnapshot()) {
                 task.get().cancel();
+                loadQueue.release(user);
                 return;
             }
             // Ensure only one task is running at a time
@@ -47,7 +47,10 @@ public class DelayDataSyncer extends DataSyncer {
                     this.listenForRedisData(
                             user,
                             () -> getRedis().getUserData(user).map(data -> {
-                                user.applySnapshot(data, DataSnapshot.UpdateCause.SYNCHRONIZED);
+                                user.applySnapshot(
+                                        getPrefetcher().takeFromRedis(user, data),
+                                        DataSnapshot.UpdateCause.SYNCHRONIZED
+                                );
                                 return true;
                             }).orElse(false)
                     );
@@ -65,7 +65,9 @@ public class LockstepDataSyncer extends DataSyncer {
             final Optional<DataSnapshot.Packed> redisData = getRedis().getUserData(user);
             if (redisData.isPresent()) {
                 plugin.debug(String.format("[%s] Applying data from Redis cache", user.getName()));
-                user.applySnapshot(redisData.get(), DataSnapshot.UpdateCause.SYNCHRONIZED);
+                user.applySnapshot(
+                        getPrefetcher().takeFromRedis(user, redisData.get()), DataSnapshot.UpdateCause.SYNCHRONIZED
+                );
             } else {
                 plugin.debug(String.format("[%s] no Redis data; loading from database", user.getName()));
                 this.setUserFromDatabase(user);
@@ -79,8 +81,7 @@ public class LockstepDataSyncer extends DataSyncer {
         plugin.runAsync(() -> saveData(
                 onlineUser, onlineUser.createSnapshot(DataSnapshot.SaveCause.DISCONNECT),
                 (user, data) -> {
-                    getRedis().setUserData(user, data);
-                    getRedis().setUserCheckedOut(user, false);
+                    getRedis().handOffUserData(user, data, false, true);
                     plugin.unlockPlayer(user.getUuid());
                 }
         ));
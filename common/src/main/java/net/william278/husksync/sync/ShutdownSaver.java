@@ -0,0 +1,154 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.sync;
+
+import com.google.common.collect.Lists;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.user.OnlineUser;
+import net.william278.husksync.user.User;
+import org.jetbrains.annotations.Blocking;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Saves the data of every online player when the server shuts down.
+ * <p>
+ * Each player's data is captured in turn on the thread shutting the server down, which owns the players at that
+ * point. The captured data is then serialized and saved on a bounded pool of threads, a batch of players at a time,
+ * so saving doesn't take as long as saving every player one after another. Players whose data isn't saved before
+ * the configured deadline, or fails to save, are logged by name, so their data can be restored from a backup.
+ *
+ * @since 4.0
+ */
+public class ShutdownSaver {
+
+    // How long to wait for interrupted saves to stop once the deadline has passed, before the database is closed
+    private static final long STOP_TIMEOUT_SECONDS = 5;
+
+    private final HuskSync plugin;
+
+    ShutdownSaver(@NotNull HuskSync plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Save the data of users, waiting until it's saved or the deadline passes
+     *
+     * @param users the users to save the data of
+     */
+    @Blocking
+    public void saveAll(@NotNull Collection<? extends OnlineUser> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        final Settings.SynchronizationSettings.ShutdownSaveSettings settings = getSettings();
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(Math.max(1, settings.getDeadlineSeconds()));
+
+        // Capture everyone's data on this thread. Users are pending until their data has been saved
+        final Set<OnlineUser> pending = ConcurrentHashMap.newKeySet();
+        pending.addAll(users);
+        final Map<OnlineUser, DataSnapshot.Unpacked> captured = new LinkedHashMap<>();
+        for (OnlineUser user : users) {
+            try {
+                captured.put(user, DataSnapshot.builder(plugin)
+                        .data(user.getData())
+                        .saveCause(DataSnapshot.SaveCause.SERVER_SHUTDOWN)
+                        .build());
+            } catch (Throwable e) {
+                plugin.log(Level.SEVERE, "Failed to capture %s's data on shutdown".formatted(user.getName()), e);
+            }
+        }
+
+        // Serialize and save the data in batches on the pool
+        final ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, settings.getThreads()));
+        for (List<Map.Entry<OnlineUser, DataSnapshot.Unpacked>> batch :
+                Lists.partition(List.copyOf(captured.entrySet()), Math.max(1, settings.getBatchSize()))) {
+            workers.execute(() -> save(batch, pending));
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                stop(workers);
+            }
+        } catch (InterruptedException e) {
+            stop(workers);
+            Thread.currentThread().interrupt();
+        }
+
+        if (!pending.isEmpty()) {
+            plugin.log(Level.SEVERE, ("Failed to save data on shutdown! The data of %s players failed to save "
+                                      + "or was not saved within %ss: %s").formatted(pending.size(),
+                    settings.getDeadlineSeconds(), pending.stream().map(User::getName).sorted().toList()));
+            return;
+        }
+        plugin.debug("Saved the data of %s players on shutdown in %sms".formatted(
+                captured.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    // Interrupt the saves still running and wait briefly for them to stop, so the database isn't closed under them
+    private void stop(@NotNull ExecutorService workers) {
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.log(Level.WARNING, "Some shutdown saves did not stop within %ss of being interrupted"
+                        .formatted(STOP_TIMEOUT_SECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Serialize and save a batch of captured data, marking the users whose data was saved
+    @Blocking
+    private void save(@NotNull List<Map.Entry<OnlineUser, DataSnapshot.Unpacked>> batch,
+                      @NotNull Set<OnlineUser> pending) {
+        final Map<User, DataSnapshot.Packed> packed = new LinkedHashMap<>();
+        for (Map.Entry<OnlineUser, DataSnapshot.Unpacked> entry : batch) {
+            try {
+                packed.put(entry.getKey(), entry.getValue().pack(plugin));
+            } catch (Throwable e) {
+                plugin.log(Level.SEVERE, "Failed to serialize %s's data on shutdown"
+                        .formatted(entry.getKey().getName()), e);
+            }
+        }
+        try {
+            final Set<User> failed = plugin.getDataSyncer().saveData(packed);
+            packed.keySet().stream().filter(user -> !failed.contains(user)).forEach(pending::remove);
+        } catch (Throwable e) {
+            plugin.log(Level.SEVERE, "Failed to save the data of %s on shutdown".formatted(
+                    packed.keySet().stream().map(User::getName).toList()), e);
+        }
+    }
+
+    @NotNull
+    private Settings.SynchronizationSettings.ShutdownSaveSettings getSettings() {
+        return plugin.getSettings().getSynchronization().getShutdownSave();
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.sync;
+
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.user.User;
+import net.william278.husksync.util.Task;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Warms a user's latest data snapshot ahead of them joining this server, when signalled to by a
+ * {@link net.william278.husksync.redis.RedisMessage.Type#PREFETCH_USER_DATA prefetch intent} (e.g. from the proxy).
+ * Snapshots are fetched and unpacked off-thread, then consumed by the {@link DataSyncer} when the user joins.
+ * Snapshots of users who don't join in time are evicted once they expire.
+ *
+ * @since 4.0
+ */
+public class SnapshotPrefetcher {
+
+    private final HuskSync plugin;
+    private final Map<UUID, Prefetched> prefetched = new ConcurrentHashMap<>();
+    @Nullable
+    private Task.Repeating evictor;
+
+    SnapshotPrefetcher(@NotNull HuskSync plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Fetch and unpack a user's latest data snapshot, caching it until they join
+     *
+     * @param uuid the UUID of the user who is about to join
+     */
+    public void prefetch(@NotNull UUID uuid) {
+        if (!getSettings().isEnabled() || plugin.isDisabling() || plugin.getOnlineUser(uuid).isPresent()) {
+            return;
+        }
+        prefetched.values().removeIf(p -> p.isExpired(getMaxAge()));
+        plugin.runAsync(() -> {
+            try {
+                final Optional<User> user = plugin.getDatabase().getUser(uuid);
+                if (user.isEmpty()) {
+                    return;
+                }
+                fetch(user.get()).ifPresent(p -> {
+                    p.snapshot().preUnpack(plugin);
+                    prefetched.put(uuid, p);
+                    updateEvictor();
+                    plugin.debug("[%s] Prefetched data snapshot %s from %s".formatted(
+                            user.get().getName(), p.snapshot().getShortId(), p.fromRedis() ? "Redis" : "database"
+                    ));
+                });
+            } catch (Throwable e) {
+                plugin.log(Level.WARNING, "Failed to prefetch data for %s".formatted(uuid), e);
+            }
+        });
+    }
+
+    // Read the data the user would be given on joining, if it is safe to do so yet
+    @NotNull
+    private Optional<Prefetched> fetch(@NotNull User user) {
+        final Optional<DataSnapshot.Packed> redisData = plugin.getRedisManager().peekUserData(user);
+        if (redisData.isPresent()) {
+            return redisData.map(snapshot -> new Prefetched(snapshot, true, System.currentTimeMillis()));
+        }
+
+        // If the user is still checked out on another server, their data in the database is about to be replaced
+        final Optional<String> server = plugin.getRedisManager().getUserCheckedOut(user);
+        if (server.isPresent() && !server.get().equals(plugin.getServerName())) {
+            return Optional.empty();
+        }
+        return plugin.getDatabase().getLatestSnapshot(user)
+                .map(snapshot -> new Prefetched(snapshot, false, System.currentTimeMillis()));
+    }
+
+    /**
+     * Take the prefetched copy of a snapshot read from Redis, if the same snapshot was prefetched.
+     *
+     * @param user    the user
+     * @param fetched the snapshot read from Redis on join
+     * @return the prefetched (already unpacked) snapshot if it has the same ID, otherwise the fetched snapshot
+     */
+    @NotNull
+    public DataSnapshot.Packed takeFromRedis(@NotNull User user, @NotNull DataSnapshot.Packed fetched) {
+        final Prefetched entry = prefetched.remove(user.getUuid());
+        if (entry == null || !entry.snapshot().getId().equals(fetched.getId())) {
+            return fetched;
+        }
+        plugin.debug("[%s] Using prefetched data snapshot %s".formatted(user.getName(), fetched.getShortId()));
+        return entry.snapshot();
+    }
+
+    /**
+     * Take a snapshot prefetched from the database, if one was fetched recently enough to still be current.
+     * This should only be called once the user has no pending data on Redis, which every sync save writes to.
+     *
+     * @param user the user
+     * @return the prefetched (already unpacked) snapshot, if present
+     */
+    @NotNull
+    public Optional<DataSnapshot.Packed> takeFromDatabase(@NotNull User user) {
+        final Prefetched entry = prefetched.remove(user.getUuid());
+        if (entry == null || entry.fromRedis() || entry.isExpired(getMaxAge())) {
+            return Optional.empty();
+        }
+        plugin.debug("[%s] Using prefetched data snapshot %s".formatted(user.getName(), entry.snapshot().getShortId()));
+        return Optional.of(entry.snapshot());
+    }
+
+    /**
+     * Discard any prefetched data for a user
+     *
+     * @param user the user
+     */
+    public void invalidate(@NotNull User user) {
+        prefetched.remove(user.getUuid());
+    }
+
+    // Start the task evicting expired snapshots while any are prefetched; stop it once none are
+    private synchronized void updateEvictor() {
+        if (!prefetched.isEmpty() && evictor == null) {
+            evictor = plugin.getRepeatingTask(this::evictExpired, Math.max(1, getSettings().getMaxAgeSeconds()) * 20L);
+            evictor.run();
+        } else if (prefetched.isEmpty() && evictor != null) {
+            evictor.cancel();
+            evictor = null;
+        }
+    }
+
+    private void evictExpired() {
+        prefetched.values().removeIf(p -> p.isExpired(getMaxAge()));
+        updateEvictor();
+    }
+
+    private long getMaxAge() {
+        return getSettings().getMaxAgeSeconds() * 1000L;
+    }
+
+    @NotNull
+    private Settings.SynchronizationSettings.PrefetchSettings getSettings() {
+        return plugin.getSettings().getSynchronization().getPrefetch();
+    }
+
+    private record Prefetched(@NotNull DataSnapshot.Packed snapshot, boolean fromRedis, long timestamp) {
+        private boolean isExpired(long maxAge) {
+            return System.currentTimeMillis() - timestamp > maxAge;
+        }
+    }
+
+}
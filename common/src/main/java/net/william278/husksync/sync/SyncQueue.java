@@ -0,0 +1,229 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.sync;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Locales;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.user.OnlineUser;
+import net.william278.husksync.user.User;
+import net.william278.husksync.util.Task;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Admission queue for user data loads. Caps the number of users whose data is being fetched and applied on this
+ * server at once, so that mass joins (e.g. after a proxy restart) don't exhaust the Redis and database pools.
+ * Users waiting for a slot are admitted in order of how long they have been waiting.
+ *
+ * @since 4.0
+ */
+public class SyncQueue {
+
+    private static final long NOTIFY_PERIOD = 20;
+
+    private final HuskSync plugin;
+    private final Consumer<OnlineUser> loader;
+    private final PriorityQueue<Entry> waiting = new PriorityQueue<>(Comparator.comparingLong(Entry::getEnqueued));
+    private final Map<UUID, Entry> inFlight = new HashMap<>();
+    @Nullable
+    private Task.Repeating notifier;
+
+    SyncQueue(@NotNull HuskSync plugin, @NotNull Consumer<OnlineUser> loader) {
+        this.plugin = plugin;
+        this.loader = loader;
+    }
+
+    /**
+     * Queue a user's data to be loaded, loading it immediately if there is a free slot
+     *
+     * @param user the user to load data for
+     */
+    public void enqueue(@NotNull OnlineUser user) {
+        if (!getSettings().isEnabled()) {
+            loader.accept(user);
+            return;
+        }
+        synchronized (this) {
+            if (inFlight.containsKey(user.getUuid()) || waiting.stream().anyMatch(e -> e.isFor(user))) {
+                return;
+            }
+            waiting.add(new Entry(user, System.nanoTime()));
+        }
+        drain();
+    }
+
+    /**
+     * Release a user's load slot (or remove them from the queue), letting the next waiting user be admitted
+     *
+     * @param user the user whose load has completed
+     */
+    public void release(@NotNull User user) {
+        synchronized (this) {
+            if (inFlight.remove(user.getUuid()) == null && !waiting.removeIf(e -> e.isFor(user))) {
+                return;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Get a user's 1-indexed position in the queue
+     *
+     * @param user the user
+     * @return the position, or empty if the user isn't waiting for a slot
+     */
+    public synchronized Optional<Integer> getPosition(@NotNull User user) {
+        int position = 1;
+        for (Entry entry : sortedWaiting()) {
+            if (entry.isFor(user)) {
+                return Optional.of(position);
+            }
+            position++;
+        }
+        return Optional.empty();
+    }
+
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Get the maximum number of loads that may be in flight on this server at once. If not set, this is the size of
+     * the smaller of the database and Redis connection pools, which is where load throughput saturates.
+     *
+     * @return the in-flight load cap
+     */
+    public int getMaxInFlight() {
+        final int configured = getSettings().getMaxConcurrentLoads();
+        if (configured > 0) {
+            return configured;
+        }
+        return Math.max(1, Math.min(
+                plugin.getSettings().getDatabase().getConnectionPool().getMaximumPoolSize(),
+                plugin.getSettings().getRedis().getCredentials().getMaxTotalConnections()
+        ));
+    }
+
+    // Admit waiting users while slots are free, reclaiming slots held by users who left or whose load stalled
+    private void drain() {
+        final List<Entry> admitted = new ArrayList<>();
+        synchronized (this) {
+            final long timeout = getSettings().getLoadTimeoutSeconds() * 1_000_000_000L;
+            final long now = System.nanoTime();
+            inFlight.values().removeIf(e -> e.getUser().hasDisconnected() || (timeout > 0 && now - e.getAdmitted() > timeout));
+            waiting.removeIf(e -> e.getUser().hasDisconnected());
+
+            final int max = getMaxInFlight();
+            while (inFlight.size() < max && !waiting.isEmpty()) {
+                final Entry entry = waiting.poll();
+                entry.setAdmitted(now);
+                inFlight.put(entry.getUser().getUuid(), entry);
+                admitted.add(entry);
+            }
+            updateNotifier();
+        }
+
+        // Start the loads outside the lock, as the loader may complete (and release) synchronously
+        admitted.forEach(entry -> {
+            final OnlineUser user = entry.getUser();
+            plugin.debug("[%s] Admitted to load queue after waiting %sms".formatted(
+                    user.getName(), (entry.getAdmitted() - entry.getEnqueued()) / 1_000_000L
+            ));
+            try {
+                loader.accept(user);
+            } catch (Throwable e) {
+                plugin.log(Level.WARNING, "Failed to start loading data for %s".formatted(user.getName()), e);
+                release(user);
+            }
+        });
+    }
+
+    // Start the task notifying waiting users of their position while users are queued; stop it when empty
+    private void updateNotifier() {
+        if (!waiting.isEmpty() && notifier == null) {
+            notifier = plugin.getRepeatingTask(this::notifyWaiting, NOTIFY_PERIOD);
+            notifier.run();
+        } else if (waiting.isEmpty() && notifier != null) {
+            notifier.cancel();
+            notifier = null;
+        }
+    }
+
+    private void notifyWaiting() {
+        if (plugin.isDisabling()) {
+            return;
+        }
+        if (plugin.getSettings().getSynchronization().getNotificationDisplaySlot() == Locales.NotificationSlot.NONE) {
+            drain();
+            return;
+        }
+        final List<Entry> entries;
+        synchronized (this) {
+            entries = sortedWaiting();
+        }
+        final String total = Integer.toString(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            final OnlineUser user = entries.get(i).getUser();
+            plugin.getLocales().getLocale("synchronization_queued", Integer.toString(i + 1), total)
+                    .ifPresent(user::sendActionBar);
+        }
+        drain();
+    }
+
+    @NotNull
+    private List<Entry> sortedWaiting() {
+        final List<Entry> entries = new ArrayList<>(waiting);
+        entries.sort(waiting.comparator());
+        return entries;
+    }
+
+    @NotNull
+    private Settings.SynchronizationSettings.LoadQueueSettings getSettings() {
+        return plugin.getSettings().getSynchronization().getLoadQueue();
+    }
+
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    private static final class Entry {
+        @NotNull
+        private final OnlineUser user;
+        private final long enqueued;
+        @Setter
+        private long admitted;
+
+        private boolean isFor(@NotNull User other) {
+            return user.getUuid().equals(other.getUuid());
+        }
+    }
+
+}
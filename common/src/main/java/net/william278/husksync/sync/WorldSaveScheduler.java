@@ -0,0 +1,151 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.sync;
+
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.user.OnlineUser;
+import net.william278.husksync.user.User;
+import net.william278.husksync.util.Task;
+import org.jetbrains.annotations.Blocking;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+
+/**
+ * Spreads the snapshots taken when a world saves over a configurable window, rather than capturing and writing
+ * data for every player in the world at once. Each player is saved at a random point in the window, and no more
+ * than a set number of players are saved per tick. Because the point each player is saved at is random, world
+ * saves that line up across the servers on a network don't all write to the database at the same moment.
+ *
+ * @since 4.0
+ */
+public class WorldSaveScheduler {
+
+    private static final long TICK_NANOS = 50_000_000L;
+
+    private final HuskSync plugin;
+    private final PriorityQueue<Entry> pending = new PriorityQueue<>(Comparator.comparingLong(Entry::due));
+    private final Set<UUID> pendingUsers = new HashSet<>();
+    @Nullable
+    private Task.Repeating ticker;
+
+    WorldSaveScheduler(@NotNull HuskSync plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Schedule snapshots to be taken for users in a world that is being saved. Users who are already waiting to be
+     * saved are not scheduled again.
+     *
+     * @param users the users in the world
+     */
+    public void schedule(@NotNull Collection<OnlineUser> users) {
+        final long window = getSettings().getWindowSeconds() * 1_000_000_000L;
+        final long now = System.nanoTime();
+        synchronized (this) {
+            for (OnlineUser user : users) {
+                if (pendingUsers.add(user.getUuid())) {
+                    final long jitter = window > 0 ? ThreadLocalRandom.current().nextLong(window) : 0;
+                    pending.add(new Entry(user, now + jitter));
+                }
+            }
+            updateTicker();
+        }
+    }
+
+    /**
+     * Cancel a user's pending world save snapshot
+     *
+     * @param user the user
+     */
+    public synchronized void cancel(@NotNull User user) {
+        if (pendingUsers.remove(user.getUuid())) {
+            pending.removeIf(e -> e.isFor(user));
+            updateTicker();
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    // Start saving users that are due, up to the per-tick limit
+    private void tick() {
+        final List<OnlineUser> due = new ArrayList<>();
+        synchronized (this) {
+            if (plugin.isDisabling()) {
+                pending.clear();
+                pendingUsers.clear();
+                updateTicker();
+                return;
+            }
+            final int max = getSettings().getMaxSavesPerTick();
+            final long now = System.nanoTime();
+            while (!pending.isEmpty() && pending.peek().due() - now < TICK_NANOS && (max <= 0 || due.size() < max)) {
+                final Entry entry = pending.poll();
+                pendingUsers.remove(entry.user().getUuid());
+                due.add(entry.user());
+            }
+            updateTicker();
+        }
+        due.forEach(user -> plugin.runAsync(() -> save(user)));
+    }
+
+    // Capture and save a user's data
+    @Blocking
+    private void save(@NotNull OnlineUser user) {
+        if (user.isNpc() || user.hasDisconnected() || plugin.isLocked(user.getUuid())) {
+            return;
+        }
+        try {
+            plugin.getDataSyncer().saveCurrentUserData(user, DataSnapshot.SaveCause.WORLD_SAVE);
+        } catch (Throwable e) {
+            plugin.log(Level.WARNING, "Failed to save world save snapshot for %s".formatted(user.getName()), e);
+        }
+    }
+
+    // Run the ticker every tick while users are waiting to be saved; stop it when none are
+    private void updateTicker() {
+        if (!pending.isEmpty() && ticker == null) {
+            ticker = plugin.getRepeatingTask(this::tick, 1);
+            ticker.run();
+        } else if (pending.isEmpty() && ticker != null) {
+            ticker.cancel();
+            ticker = null;
+        }
+    }
+
+    @NotNull
+    private Settings.SynchronizationSettings.WorldSaveSettings getSettings() {
+        return plugin.getSettings().getSynchronization().getWorldSave();
+    }
+
+    private record Entry(@NotNull OnlineUser user, long due) {
+        private boolean isFor(@NotNull User other) {
+            return user.getUuid().equals(other.getUuid());
+        }
+    }
+
+}
@@ -135,9 +135,12 @@ public abstract class OnlineUser extends User implements CommandUser, UserDataHo
             getPlugin().debug(String.format("Attempting to apply snapshot (%s) to %s (cause: %s)",
                     snapshot.getShortId(), getName(), cause.getDisplayName()
             ));
-            UserDataHolder.super.applySnapshot(
-                    event.getData(), (succeeded) -> completeSync(succeeded, cause, getPlugin())
-            );
+            UserDataHolder.super.applySnapshot(event.getData(), (succeeded) -> {
+                if (succeeded) {
+                    getPlugin().getDataSyncer().getChangeTracker().recordApplied(this, event.getData());
+                }
+                completeSync(succeeded, cause, getPlugin());
+            });
         });
     }
 
@@ -148,6 +151,8 @@ public abstract class OnlineUser extends User implements CommandUser, UserDataHo
      * @param plugin    The plugin instance
      */
     public void completeSync(boolean succeeded, @NotNull DataSnapshot.UpdateCause cause, @NotNull HuskSync plugin) {
+        plugin.getDataSyncer().getLoadQueue().release(this);
+        plugin.getDataSyncer().getPrefetcher().invalidate(this);
         if (succeeded) {
             try {
                 switch (plugin.getSettings().getSynchronization().getNotificationDisplaySlot()) {
@@ -0,0 +1,374 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.util;
+
+import com.google.common.collect.Lists;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.database.Database;
+import net.william278.husksync.user.User;
+import org.jetbrains.annotations.Blocking;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.xerial.snappy.Snappy;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+/**
+ * Utility for exporting all users and their data snapshots from the {@link Database} to an archive file, and for
+ * importing them back. Archives are made of Snappy-compressed chunks of users, each written and checkpointed in
+ * turn, so an interrupted export or import can be resumed from the last complete chunk.
+ * <p>
+ * Archive format: a header ({@code int} magic, {@code int} format version, platform type, Minecraft version and
+ * {@code long} creation time), followed by chunks ({@code int} compressed length, then the compressed chunk), ending
+ * with a chunk length of {@code 0}. A chunk holds an {@code int} user count and, for each user, their UUID, name,
+ * snapshot count and each snapshot's length and bytes.
+ */
+public class DataArchiver {
+
+    private static final int MAGIC = 0x48534152;
+    private static final int FORMAT_VERSION = 1;
+    private static final String EXTENSION = ".hsar";
+
+    private final HuskSync plugin;
+    private final Path archive;
+    private final ProgressFile progressFile;
+
+    private DataArchiver(@NotNull HuskSync plugin, @NotNull Path archive) {
+        this.plugin = plugin;
+        this.archive = archive;
+        this.progressFile = new ProgressFile(
+                archive.resolveSibling(archive.getFileName() + ".progress"), "HuskSync archive progress"
+        );
+    }
+
+    /**
+     * Create a {@link DataArchiver} for the archive with the given name in the plugin's {@code archives} folder
+     *
+     * @param plugin The implementing {@link HuskSync} plugin
+     * @param name   The name of the archive
+     * @return the archiver
+     * @throws IOException if the archives folder could not be created
+     */
+    @NotNull
+    public static DataArchiver create(@NotNull HuskSync plugin, @NotNull String name) throws IOException {
+        final Path folder = plugin.getConfigDirectory().resolve("archives");
+        if (!Files.exists(folder)) {
+            Files.createDirectory(folder);
+        }
+        final String fileName = name.endsWith(EXTENSION) ? name : name + EXTENSION;
+        return new DataArchiver(plugin, folder.resolve(fileName));
+    }
+
+    /**
+     * Export all users and their snapshots to the archive, resuming a previous export if one was interrupted
+     *
+     * @throws IOException if the archive could not be written to
+     */
+    @Blocking
+    public void exportAll() throws IOException {
+        final Progress progress = Progress.load(progressFile, "export");
+        if (progress == null && Files.exists(archive)) {
+            throw new IOException("An archive named %s already exists".formatted(archive.getFileName()));
+        }
+        final Progress state = progress != null ? progress : new Progress("export");
+        if (progress != null) {
+            plugin.log(Level.INFO, "Resuming export to %s after %s users".formatted(archive.getFileName(), state.users));
+        }
+
+        final Database database = plugin.getDatabase();
+        final int chunkSize = getSettings().getUsersPerChunk();
+        final ExecutorService workers = Executors.newFixedThreadPool(getWorkerCount());
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (progress == null) {
+                channel.truncate(0);
+                writeFully(channel, encodeHeader());
+                state.offset = channel.position();
+                state.save(progressFile);
+            } else {
+                channel.truncate(state.offset);
+                channel.position(state.offset);
+            }
+
+            List<User> page;
+            do {
+                page = database.getUserPage(state.lastUser, chunkSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                // Fetch each user's snapshots in parallel, then write the chunk
+                final List<CompletableFuture<List<DataSnapshot.Packed>>> snapshots = page.stream()
+                        .map(user -> CompletableFuture.supplyAsync(() -> database.getAllSnapshots(user), workers))
+                        .toList();
+                final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+                final DataOutputStream out = new DataOutputStream(chunk);
+                out.writeInt(page.size());
+                for (int i = 0; i < page.size(); i++) {
+                    final User user = page.get(i);
+                    final List<DataSnapshot.Packed> userSnapshots = snapshots.get(i).join();
+                    out.writeLong(user.getUuid().getMostSignificantBits());
+                    out.writeLong(user.getUuid().getLeastSignificantBits());
+                    out.writeUTF(user.getName());
+                    out.writeInt(userSnapshots.size());
+                    for (DataSnapshot.Packed snapshot : userSnapshots) {
+                        final byte[] bytes = snapshot.asBytes(plugin);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                    state.snapshots += userSnapshots.size();
+                }
+                writeChunk(channel, chunk.toByteArray());
+
+                // Checkpoint
+                state.offset = channel.position();
+                state.lastUser = page.get(page.size() - 1).getUuid();
+                state.users += page.size();
+                state.save(progressFile);
+                plugin.log(Level.INFO, "Exported %s users (%s snapshots)...".formatted(state.users, state.snapshots));
+            } while (page.size() >= chunkSize);
+
+            writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt(0).flip());
+            channel.force(true);
+        } finally {
+            workers.shutdown();
+        }
+        progressFile.delete();
+        plugin.log(Level.INFO, "Exported %s users (%s snapshots) to %s".formatted(
+                state.users, state.snapshots, archive.getFileName()));
+    }
+
+    /**
+     * Import all users and their snapshots from the archive, resuming a previous import if one was interrupted.
+     * Snapshots are inserted as-is, keeping their IDs, timestamps and pinned state.
+     *
+     * @throws IOException if the archive could not be read or is not a valid archive
+     */
+    @Blocking
+    public void importAll() throws IOException {
+        if (!Files.exists(archive)) {
+            throw new FileNotFoundException("No archive named %s was found".formatted(archive.getFileName()));
+        }
+        final Progress progress = Progress.load(progressFile, "import");
+        final Progress state = progress != null ? progress : new Progress("import");
+        if (progress != null) {
+            plugin.log(Level.INFO, "Resuming import from %s after %s users".formatted(archive.getFileName(), state.users));
+        }
+
+        final Database database = plugin.getDatabase();
+        final ExecutorService workers = Executors.newFixedThreadPool(getWorkerCount());
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            readHeader(new DataInputStream(Channels.newInputStream(channel)));
+            if (progress == null) {
+                state.offset = channel.position();
+            }
+            channel.position(state.offset);
+
+            // The first chunk after resuming may have been partly imported, so replace its snapshots if present
+            boolean replaceExisting = progress != null;
+            byte[] chunk;
+            while ((chunk = readChunk(channel)) != null) {
+                final DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk));
+                final int userCount = in.readInt();
+                final Map<User, List<DataSnapshot.Packed>> users = new LinkedHashMap<>(userCount);
+                for (int i = 0; i < userCount; i++) {
+                    final User user = new User(new UUID(in.readLong(), in.readLong()), in.readUTF());
+                    final List<DataSnapshot.Packed> snapshots = new ArrayList<>();
+                    final int snapshotCount = in.readInt();
+                    for (int j = 0; j < snapshotCount; j++) {
+                        final byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        snapshots.add(plugin.getDataAdapter().fromBytes(bytes, DataSnapshot.Packed.class));
+                    }
+                    users.put(user, snapshots);
+                    state.snapshots += snapshotCount;
+                }
+
+                // Split the chunk between the workers, each inserting its share of the snapshots as one batch
+                final boolean replace = replaceExisting;
+                final List<CompletableFuture<Void>> imports = new ArrayList<>();
+                for (List<User> share : Lists.partition(new ArrayList<>(users.keySet()), getShareSize(userCount))) {
+                    imports.add(CompletableFuture.runAsync(() -> {
+                        final Map<User, List<DataSnapshot.Packed>> batch = new LinkedHashMap<>();
+                        for (User user : share) {
+                            database.ensureUser(user);
+                            if (replace) {
+                                users.get(user).forEach(snapshot -> database.deleteSnapshot(user, snapshot.getId()));
+                            }
+                            batch.put(user, users.get(user));
+                        }
+                        database.importSnapshots(batch);
+                    }, workers));
+                }
+                CompletableFuture.allOf(imports.toArray(CompletableFuture[]::new)).join();
+                replaceExisting = false;
+
+                // Checkpoint
+                state.offset = channel.position();
+                state.users += userCount;
+                state.save(progressFile);
+                plugin.log(Level.INFO, "Imported %s users (%s snapshots)...".formatted(state.users, state.snapshots));
+            }
+        } finally {
+            workers.shutdown();
+        }
+        progressFile.delete();
+        plugin.log(Level.INFO, "Imported %s users (%s snapshots) from %s".formatted(
+                state.users, state.snapshots, archive.getFileName()));
+    }
+
+    @NotNull
+    private ByteBuffer encodeHeader() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(plugin.getPlatformType());
+        out.writeUTF(plugin.getMinecraftVersion().toStringWithoutMetadata());
+        out.writeLong(System.currentTimeMillis());
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private void readHeader(@NotNull DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("%s is not a HuskSync data archive".formatted(archive.getFileName()));
+        }
+        final int version = in.readInt();
+        if (version > FORMAT_VERSION) {
+            throw new IOException("%s uses a newer archive format (v%s)".formatted(archive.getFileName(), version));
+        }
+        final String platform = in.readUTF();
+        final String minecraftVersion = in.readUTF();
+        in.readLong();
+        if (!platform.equalsIgnoreCase(plugin.getPlatformType())) {
+            plugin.log(Level.WARNING, "Archive was exported from a %s server (Minecraft %s); snapshots will not be "
+                    .formatted(platform, minecraftVersion) + "usable on this platform until synced back to one");
+        }
+    }
+
+    private static void writeChunk(@NotNull FileChannel channel, byte[] chunk) throws IOException {
+        final byte[] compressed = Snappy.compress(chunk);
+        writeFully(channel, ByteBuffer.allocate(Integer.BYTES + compressed.length)
+                .putInt(compressed.length).put(compressed).flip());
+        channel.force(false);
+    }
+
+    // Read the next chunk, or null at the zero-length marker ending the archive. An archive that ends without the
+    // marker was not completely written, so it is rejected rather than imported as if it were complete
+    private static byte @Nullable [] readChunk(@NotNull FileChannel channel) throws IOException {
+        final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(channel, length, "Archive ended without an end marker; the export that wrote it did not finish");
+        final int size = length.flip().getInt();
+        if (size == 0) {
+            return null;
+        }
+        if (size < 0) {
+            throw new IOException("Archive has an invalid chunk length (%s)".formatted(size));
+        }
+        final ByteBuffer compressed = ByteBuffer.allocate(size);
+        readFully(channel, compressed, "Archive ended part-way through a chunk");
+        return Snappy.uncompress(compressed.array());
+    }
+
+    private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer,
+                                  @NotNull String eofMessage) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException(eofMessage);
+            }
+        }
+    }
+
+    private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private int getWorkerCount() {
+        return Math.max(1, getSettings().getWorkers());
+    }
+
+    // Number of users each worker imports from a chunk, so the chunk is split evenly between the workers
+    private int getShareSize(int userCount) {
+        return Math.max(1, (userCount + getWorkerCount() - 1) / getWorkerCount());
+    }
+
+    @NotNull
+    private Settings.DatabaseSettings.ArchiveSettings getSettings() {
+        return plugin.getSettings().getDatabase().getArchives();
+    }
+
+    // Checkpoint of an export or import, stored next to the archive while it is in progress
+    private static final class Progress {
+        private final String mode;
+        private long offset;
+        @Nullable
+        private UUID lastUser;
+        private long users;
+        private long snapshots;
+
+        private Progress(@NotNull String mode) {
+            this.mode = mode;
+        }
+
+        @Nullable
+        private static Progress load(@NotNull ProgressFile file, @NotNull String mode) throws IOException {
+            final Properties properties = file.load();
+            if (properties == null) {
+                return null;
+            }
+            if (!mode.equals(properties.getProperty("mode"))) {
+                throw new IOException("An %s using this archive is already in progress"
+                        .formatted(properties.getProperty("mode")));
+            }
+            final Progress progress = new Progress(mode);
+            progress.offset = Long.parseLong(properties.getProperty("offset", "0"));
+            final String lastUser = properties.getProperty("last_user", "");
+            progress.lastUser = lastUser.isEmpty() ? null : UUID.fromString(lastUser);
+            progress.users = Long.parseLong(properties.getProperty("users", "0"));
+            progress.snapshots = Long.parseLong(properties.getProperty("snapshots", "0"));
+            return progress;
+        }
+
+        private void save(@NotNull ProgressFile file) throws IOException {
+            final Properties properties = new Properties();
+            properties.setProperty("mode", mode);
+            properties.setProperty("offset", Long.toString(offset));
+            properties.setProperty("last_user", lastUser != null ? lastUser.toString() : "");
+            properties.setProperty("users", Long.toString(users));
+            properties.setProperty("snapshots", Long.toString(snapshots));
+            file.save(properties);
+        }
+    }
+
+}
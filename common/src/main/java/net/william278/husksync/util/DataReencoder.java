@@ -0,0 +1,230 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import net.william278.husksync.HuskSync;
+import net.william278.husksync.adapter.DataAdapter;
+import net.william278.husksync.config.Settings;
+import net.william278.husksync.database.Database;
+import org.jetbrains.annotations.Blocking;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+
+/**
+ * Utility for re-encoding every snapshot and map stored in the {@link Database} to the format written by the current
+ * {@link DataAdapter}, e.g. after turning data compression on or off. Rows are re-encoded as bytes without being
+ * deserialized, and rows already in the current format are left untouched.
+ * <p>
+ * Snapshots are read a page at a time in order of their ID, split between a pool of workers and written back in
+ * batches, optionally limited to a number of rows per second. Progress is saved after each page, so an interrupted
+ * run can be resumed.
+ *
+ * @since 4.0
+ */
+public class DataReencoder {
+
+    private static final String PROGRESS_FILE = "reencode.progress";
+
+    private final HuskSync plugin;
+    private final ProgressFile progressFile;
+
+    public DataReencoder(@NotNull HuskSync plugin) {
+        this.plugin = plugin;
+        this.progressFile = new ProgressFile(
+                plugin.getConfigDirectory().resolve(PROGRESS_FILE), "HuskSync re-encode progress"
+        );
+    }
+
+    /**
+     * Re-encode all snapshots, then all maps, resuming a previous run if one was interrupted
+     *
+     * @throws IOException if the progress file could not be read or written
+     */
+    @Blocking
+    public void reencodeAll() throws IOException {
+        final Progress progress = Progress.load(progressFile);
+        final Progress state = progress != null ? progress : new Progress();
+        if (progress != null) {
+            plugin.log(Level.INFO, "Resuming re-encode after %s snapshots and %s maps"
+                    .formatted(state.snapshots, state.maps));
+        }
+
+        final Database database = plugin.getDatabase();
+        final Settings.DatabaseSettings.ReencodeSettings settings = getSettings();
+        final int batchSize = Math.max(1, settings.getBatchSize());
+        final int workerCount = Math.max(1, settings.getWorkers());
+        final RateLimiter limiter = settings.getRowsPerSecond() > 0
+                ? RateLimiter.create(settings.getRowsPerSecond()) : null;
+        final ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        try {
+            // Re-encode snapshots, a page at a time
+            if (!state.mapsStarted) {
+                List<Database.EncodedSnapshot> page;
+                do {
+                    page = database.getEncodedSnapshotPage(state.lastSnapshot, batchSize);
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    final Batch batch = reencode(page, Database.EncodedSnapshot::data,
+                            database::replaceEncodedSnapshots, workers, workerCount, limiter);
+
+                    // Checkpoint
+                    state.lastSnapshot = page.get(page.size() - 1).versionUuid();
+                    state.snapshots += page.size();
+                    state.reencoded += batch.reencoded();
+                    state.failed += batch.failed();
+                    state.save(progressFile);
+                    plugin.log(Level.INFO, "Checked %s snapshots (%s re-encoded)..."
+                            .formatted(state.snapshots, state.reencoded));
+                } while (page.size() >= batchSize);
+                state.mapsStarted = true;
+                state.save(progressFile);
+            }
+
+            // Re-encode maps, a batch at a time, in a stable order so the offset can be resumed from
+            final List<Map.Entry<String, Integer>> mapIds = new ArrayList<>(database.getAllMapIds());
+            mapIds.sort(Map.Entry.<String, Integer>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+            for (int i = state.mapOffset; i < mapIds.size(); i += batchSize) {
+                final List<CompletableFuture<Database.EncodedMap>> reads = mapIds
+                        .subList(i, Math.min(i + batchSize, mapIds.size())).stream()
+                        .map(id -> CompletableFuture.supplyAsync(() -> {
+                            final byte[] data = database.getMapData(id.getKey(), id.getValue());
+                            return data != null ? new Database.EncodedMap(id.getKey(), id.getValue(), data) : null;
+                        }, workers))
+                        .toList();
+                final List<Database.EncodedMap> maps = reads.stream()
+                        .map(CompletableFuture::join).filter(Objects::nonNull).toList();
+                final Batch batch = maps.isEmpty() ? new Batch(0, 0) : reencode(maps, Database.EncodedMap::data,
+                        database::replaceEncodedMaps, workers, workerCount, limiter);
+
+                // Checkpoint
+                state.mapOffset = Math.min(i + batchSize, mapIds.size());
+                state.maps += reads.size();
+                state.reencoded += batch.reencoded();
+                state.failed += batch.failed();
+                state.save(progressFile);
+                plugin.log(Level.INFO, "Checked %s maps (%s rows re-encoded)..."
+                        .formatted(state.maps, state.reencoded));
+            }
+        } finally {
+            workers.shutdown();
+        }
+        progressFile.delete();
+        plugin.log(Level.INFO, "Re-encode complete! Checked %s snapshots and %s maps; re-encoded %s rows"
+                .formatted(state.snapshots, state.maps, state.reencoded));
+        if (state.failed > 0) {
+            plugin.log(Level.WARNING, "%s rows could not be re-encoded and were left unchanged".formatted(state.failed));
+        }
+    }
+
+    // Split rows between the workers, each re-encoding its share and writing back those that changed as one batch
+    @NotNull
+    private <T> Batch reencode(@NotNull List<T> rows, @NotNull Function<T, byte[]> data,
+                               @NotNull ToIntFunction<Map<T, byte[]>> replace, @NotNull ExecutorService workers,
+                               int workerCount, @Nullable RateLimiter limiter) {
+        if (limiter != null) {
+            limiter.acquire(rows.size());
+        }
+        final DataAdapter adapter = plugin.getDataAdapter();
+        final int shareSize = (rows.size() + workerCount - 1) / workerCount;
+        final List<CompletableFuture<Batch>> shares = Lists.partition(rows, shareSize).stream()
+                .map(share -> CompletableFuture.supplyAsync(() -> {
+                    final Map<T, byte[]> replacements = new HashMap<>();
+                    int failed = 0;
+                    for (T row : share) {
+                        try {
+                            final byte[] bytes = data.apply(row);
+                            final byte[] encoded = adapter.reencode(bytes);
+                            if (encoded != bytes && !Arrays.equals(encoded, bytes)) {
+                                replacements.put(row, encoded);
+                            }
+                        } catch (DataAdapter.AdaptionException e) {
+                            failed++;
+                        }
+                    }
+                    return new Batch(replacements.isEmpty() ? 0 : replace.applyAsInt(replacements), failed);
+                }, workers))
+                .toList();
+        return shares.stream().map(CompletableFuture::join)
+                .reduce(new Batch(0, 0), (a, b) -> new Batch(a.reencoded() + b.reencoded(), a.failed() + b.failed()));
+    }
+
+    @NotNull
+    private Settings.DatabaseSettings.ReencodeSettings getSettings() {
+        return plugin.getSettings().getDatabase().getReencode();
+    }
+
+    private record Batch(int reencoded, int failed) {
+    }
+
+    // Checkpoint of a re-encode, stored in the config folder while it is in progress
+    private static final class Progress {
+        @Nullable
+        private UUID lastSnapshot;
+        private boolean mapsStarted;
+        private int mapOffset;
+        private long snapshots;
+        private long maps;
+        private long reencoded;
+        private long failed;
+
+        @Nullable
+        private static Progress load(@NotNull ProgressFile file) throws IOException {
+            final Properties properties = file.load();
+            if (properties == null) {
+                return null;
+            }
+            final Progress progress = new Progress();
+            final String lastSnapshot = properties.getProperty("last_snapshot", "");
+            progress.lastSnapshot = lastSnapshot.isEmpty() ? null : UUID.fromString(lastSnapshot);
+            progress.mapsStarted = "maps".equals(properties.getProperty("phase"));
+            progress.mapOffset = Integer.parseInt(properties.getProperty("map_offset", "0"));
+            progress.snapshots = Long.parseLong(properties.getProperty("snapshots", "0"));
+            progress.maps = Long.parseLong(properties.getProperty("maps", "0"));
+            progress.reencoded = Long.parseLong(properties.getProperty("reencoded", "0"));
+            progress.failed = Long.parseLong(properties.getProperty("failed", "0"));
+            return progress;
+        }
+
+        private void save(@NotNull ProgressFile file) throws IOException {
+            final Properties properties = new Properties();
+            properties.setProperty("phase", mapsStarted ? "maps" : "snapshots");
+            properties.setProperty("last_snapshot", lastSnapshot != null ? lastSnapshot.toString() : "");
+            properties.setProperty("map_offset", Integer.toString(mapOffset));
+            properties.setProperty("snapshots", Long.toString(snapshots));
+            properties.setProperty("maps", Long.toString(maps));
+            properties.setProperty("reencoded", Long.toString(reencoded));
+            properties.setProperty("failed", Long.toString(failed));
+            file.save(properties);
+        }
+    }
+
+}
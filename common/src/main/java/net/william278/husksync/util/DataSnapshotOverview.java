@@ -101,8 +101,8 @@ public class DataSnapshotOverview {
                         .flatMap(statisticsData -> locales.getLocale("data_manager_advancements_statistics",
                                 Integer.toString(advancementData.getCompletedExcludingRecipes().size()),
                                 generateAdvancementPreview(advancementData.getCompletedExcludingRecipes(), locales),
-                                String.format("%.2f", (((statisticsData.getGenericStatistics().getOrDefault(
-                                        "minecraft:play_one_minute", 0)) / 20d) / 60d) / 60d))))
+                                String.format("%.2f", (((statisticsData.getGenericTable().get(
+                                        "minecraft:play_one_minute", null)) / 20d) / 60d) / 60d))))
                 .ifPresent(user::sendMessage);
 
         if (user.hasPermission("husksync.command.inventory.edit")
@@ -95,6 +95,10 @@ public interface DumpProvider {
                         Map.entry("Language", StatusLine.LANGUAGE.getValue(getPlugin())),
                         Map.entry("Database Type", StatusLine.DATABASE_TYPE.getValue(getPlugin())),
                         Map.entry("Database Local", StatusLine.IS_DATABASE_LOCAL.getValue(getPlugin())),
+                        Map.entry("Database Pool", StatusLine.DATABASE_POOL.getValue(getPlugin())),
+                        Map.entry("Database Connection Wait",
+                                StatusLine.DATABASE_CONNECTION_WAIT.getValue(getPlugin())),
+                        Map.entry("Database Queries", StatusLine.DATABASE_QUERIES.getValue(getPlugin())),
                         Map.entry("Locked User Handler", StatusLine.LOCKED_USER_HANDLER.getValue(getPlugin())),
                         Map.entry("Server Name", StatusLine.SERVER_NAME.getValue(getPlugin())),
                         Map.entry("Redis Version", StatusLine.REDIS_VERSION.getValue(getPlugin())),
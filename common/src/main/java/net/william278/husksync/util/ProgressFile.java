@@ -0,0 +1,100 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.util;
+
+import org.jetbrains.annotations.Blocking;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * A properties file holding the checkpoint of a resumable bulk task while it is in progress.
+ * <p>
+ * Saves are written to a temporary file that is then moved over the checkpoint, so a crash while saving leaves the
+ * previous checkpoint intact.
+ */
+public final class ProgressFile {
+
+    private final Path file;
+    private final String comment;
+
+    /**
+     * Create a progress file
+     *
+     * @param file    the path of the file
+     * @param comment the comment written at the top of the file
+     */
+    public ProgressFile(@NotNull Path file, @NotNull String comment) {
+        this.file = file;
+        this.comment = comment;
+    }
+
+    /**
+     * Load the checkpoint from the file
+     *
+     * @return the checkpoint, or {@code null} if there is no task in progress
+     * @throws IOException if the file could not be read
+     */
+    @Nullable
+    @Blocking
+    public Properties load() throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * Save a checkpoint to the file, replacing the previous one
+     *
+     * @param properties the checkpoint
+     * @throws IOException if the file could not be written
+     */
+    @Blocking
+    public void save(@NotNull Properties properties) throws IOException {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            properties.store(writer, comment);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Delete the file, once the task has finished
+     *
+     * @throws IOException if the file could not be deleted
+     */
+    @Blocking
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+}
@@ -27,9 +27,15 @@ import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import net.william278.husksync.HuskSync;
 import net.william278.husksync.database.Database;
+import net.william278.husksync.database.DatabaseMetrics;
+import net.william278.husksync.redis.RedisKeyType;
+import net.william278.husksync.redis.RedisManager;
 import org.apache.commons.text.WordUtils;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -56,10 +62,31 @@ public enum StatusLine {
                             (plugin.getSettings().getDatabase().getMongoSettings().isUsingAtlas() ? " Atlas" : "") : ""))
     ),
     IS_DATABASE_LOCAL(plugin -> getLocalhostBoolean(plugin.getSettings().getDatabase().getCredentials().getHost())),
+    DATABASE_POOL(plugin -> Component.text(plugin.getDatabase().getMetrics().getPoolSummary().orElse("N/A"))),
+    DATABASE_CONNECTION_WAIT(plugin -> {
+        final DatabaseMetrics metrics = plugin.getDatabase().getMetrics();
+        return Component.text("avg %.1fms, max %.1fms, %s timeouts".formatted(
+                metrics.getConnectionWait().getMeanMillis(), metrics.getConnectionWait().getMaxMillis(),
+                metrics.getConnectionTimeouts()
+        ));
+    }),
+    DATABASE_QUERIES(plugin -> {
+        final List<DatabaseMetrics.Timer> queries = plugin.getDatabase().getMetrics().getQueries();
+        return Component.text("%s run, slowest avg %.1fms".formatted(
+                queries.stream().mapToLong(DatabaseMetrics.Timer::getCount).sum(),
+                queries.stream().mapToDouble(DatabaseMetrics.Timer::getMeanMillis).max().orElse(0)
+        )).hoverEvent(HoverEvent.showText(queries.isEmpty() ? Component.text("(None)") : Component.join(
+                JoinConfiguration.newlines(),
+                queries.stream().map(q -> Component.text(q.toString(), NamedTextColor.GRAY)).toList()
+        )));
+    }),
     REDIS_VERSION(plugin -> Component.text(plugin.getRedisManager().getVersion())),
     USING_REDIS_SENTINEL(plugin -> getBoolean(
             !plugin.getSettings().getRedis().getSentinel().getMaster().isBlank()
     )),
+    USING_REDIS_CLUSTER(plugin -> getBoolean(
+            !plugin.getSettings().getRedis().getCluster().getNodes().isEmpty()
+    )),
     REDIS_DATABASE(plugin -> Component.text(plugin.getSettings().getRedis().getCredentials().getDatabase())),
     USING_REDIS_USER(plugin -> getBoolean(
             !plugin.getSettings().getRedis().getCredentials().getUser().isBlank()
@@ -74,6 +101,19 @@ public enum StatusLine {
     IS_REDIS_LOCAL(plugin -> getLocalhostBoolean(
             plugin.getSettings().getRedis().getCredentials().getHost()
     )),
+    REDIS_KEYS(plugin -> {
+        final Map<RedisKeyType, RedisManager.KeyUsage> usage = plugin.getRedisManager().getKeyUsage();
+        return Component.text("%s keys, ~%s".formatted(
+                usage.values().stream().mapToLong(RedisManager.KeyUsage::keys).sum(),
+                getSize(usage.values().stream().mapToLong(RedisManager.KeyUsage::bytes).sum())
+        )).hoverEvent(HoverEvent.showText(usage.isEmpty() ? Component.text("(None)") : Component.join(
+                JoinConfiguration.newlines(),
+                usage.entrySet().stream().map(e -> Component.text("%s: %s keys, ~%s".formatted(
+                        e.getKey().name().toLowerCase(Locale.ENGLISH), e.getValue().keys(),
+                        getSize(e.getValue().bytes())
+                ), NamedTextColor.GRAY)).toList()
+        )));
+    }),
     LOCKED_USER_HANDLER(plugin -> Component.text(plugin.getLockedHandler().getClass().getSimpleName())),
     DATA_TYPES(plugin -> Component.join(
             JoinConfiguration.commas(true),
@@ -120,6 +160,12 @@ public enum StatusLine {
         return Component.text(value ? "Yes" : "No", value ? NamedTextColor.GREEN : NamedTextColor.RED);
     }
 
+    @NotNull
+    private static String getSize(long bytes) {
+        return bytes >= 1024 * 1024 ? String.format("%.2fMiB", bytes / (1024f * 1024f))
+                : String.format("%.2fKiB", bytes / 1024f);
+    }
+
     @NotNull
     private static Component getLocalhostBoolean(@NotNull String value) {
         return getBoolean(value.equals("127.0.0.1") || value.equals("0.0.0.0")
@@ -9,6 +9,7 @@ CREATE TABLE IF NOT EXISTS `%users_table%`
 (
     `uuid`     char(36)    NOT NULL UNIQUE,
     `username` varchar(16) NOT NULL,
+    `revision` bigint      NOT NULL DEFAULT 0,
 
     PRIMARY KEY (`uuid`)
 ) ENGINE = InnoDB
@@ -3,10 +3,15 @@ CREATE TABLE IF NOT EXISTS "%users_table%"
 (
     uuid     uuid        NOT NULL UNIQUE,
     username varchar(16) NOT NULL,
+    revision bigint      NOT NULL DEFAULT 0,
 
     PRIMARY KEY (uuid)
 );
 
+-- Add the revision column to users tables created before it was introduced
+ALTER TABLE "%users_table%"
+    ADD COLUMN IF NOT EXISTS revision bigint NOT NULL DEFAULT 0;
+
 -- Create the user data table if it does not exist
 CREATE TABLE IF NOT EXISTS "%user_data_table%"
 (
@@ -0,0 +1,99 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.adapter;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@DisplayName("Thread Buffer Tests")
+public class ThreadBufferTests {
+
+    private static final ThreadBuffer.Pool POOL = ThreadBuffer.pool();
+
+    @ParameterizedTest(name = "Text: {0}")
+    @DisplayName("Test UTF-8 Writer Encoding")
+    @ValueSource(strings = {
+            "",
+            "{\"id\":\"minecraft:diamond_sword\",\"count\":1}",
+            "\u00DCn\u00EFc\u00F6d\u00E9 t\u00EBxt \u2014 \u2713",
+            "Emoji \uD83D\uDE00 and \uD83C\uDF89 surrogate pairs",
+            "Unpaired \uD800 high and \uDC00 low surrogates",
+    })
+    public void testUtf8Encoding(@NotNull String text) throws IOException {
+        final ThreadBuffer buffer = ThreadBuffer.get(POOL);
+        final Writer writer = buffer.writer();
+        writer.write(text);
+        writer.flush();
+        Assertions.assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Test Surrogate Pair Split Across Writes")
+    public void testSplitSurrogatePair() throws IOException {
+        final String text = "\uD83D\uDE00";
+        final ThreadBuffer buffer = ThreadBuffer.get(POOL);
+        final Writer writer = buffer.writer();
+        writer.write(text.charAt(0));
+        writer.write(text.charAt(1));
+        writer.flush();
+        Assertions.assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Test Buffer Reuse And Growth")
+    public void testReuseAndGrowth() throws IOException {
+        final char[] large = new char[100_000];
+        Arrays.fill(large, 'a');
+        final ThreadBuffer buffer = ThreadBuffer.get(POOL);
+        buffer.writer().write(large);
+        Assertions.assertEquals(large.length, buffer.size());
+        buffer.release();
+
+        final ThreadBuffer reused = ThreadBuffer.get(POOL);
+        Assertions.assertSame(buffer, reused);
+        Assertions.assertEquals(0, reused.size());
+        reused.release();
+    }
+
+    @Test
+    @DisplayName("Test Oversized Buffers Are Not Retained")
+    public void testOversizedNotRetained() {
+        final ThreadBuffer.Pool pool = ThreadBuffer.pool();
+        final ThreadBuffer buffer = ThreadBuffer.get(pool);
+        buffer.ensureCapacity(2 * 1024 * 1024);
+        buffer.release();
+
+        final ThreadBuffer next = ThreadBuffer.get(pool);
+        Assertions.assertNotSame(buffer, next);
+        next.release();
+    }
+
+}
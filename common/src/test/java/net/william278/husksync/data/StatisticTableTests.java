@@ -0,0 +1,181 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.data;
+
+import com.google.gson.Gson;
+import net.william278.desertwell.util.Version;
+import net.william278.husksync.HuskSync;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Map;
+
+@DisplayName("Statistic Table Tests")
+public class StatisticTableTests {
+
+    @Test
+    @DisplayName("Test Typed Statistics Round Trip")
+    public void testTypedRoundTrip() throws IOException {
+        final Map<String, Map<String, Integer>> stats = Map.of(
+                "mine_block", Map.of("stone", 1200, "dirt", 64),
+                "use_item", Map.of("diamond_pickaxe", Integer.MAX_VALUE, "stone", -5)
+        );
+        final StatisticTable read = roundTrip(StatisticTable.fromTypedMap(stats));
+        Assertions.assertEquals(stats, read.toTypedMap());
+        Assertions.assertEquals(1200, read.get("mine_block", "stone"));
+        Assertions.assertEquals(0, read.get("mine_block", "diamond_pickaxe"));
+    }
+
+    @Test
+    @DisplayName("Test Untyped Statistics Round Trip")
+    public void testUntypedRoundTrip() throws IOException {
+        final Map<String, Integer> stats = Map.of("play_one_minute", 72_000, "jump", 3, "deaths", Integer.MIN_VALUE);
+        final StatisticTable read = roundTrip(StatisticTable.fromUntypedMap(stats));
+        Assertions.assertEquals(stats, read.toUntypedMap());
+        Assertions.assertTrue(read.toTypedMap().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test Table Growth")
+    public void testGrowth() throws IOException {
+        final StatisticTable table = new StatisticTable();
+        for (int i = 0; i < 5_000; i++) {
+            table.set("statistic_" + (i % 50), "subject_" + i, i);
+        }
+        Assertions.assertEquals(5_000, table.size());
+        final StatisticTable read = roundTrip(table);
+        Assertions.assertEquals(table.toTypedMap(), read.toTypedMap());
+        Assertions.assertEquals(4_321, read.get("statistic_21", "subject_4321"));
+    }
+
+    @Test
+    @DisplayName("Test Reading Legacy JSON Statistics")
+    public void testLegacyJson() {
+        final Serializer.Statistics<TableStatistics> serializer = new Serializer.Statistics<>(
+                Gson::new, TableStatistics::new
+        );
+        final TableStatistics read = serializer.deserialize("""
+                {"generic":{"jump":3,"play_one_minute":72000},"blocks":{"mine_block":{"stone":1200}},\
+                "items":{"use_item":{"diamond_pickaxe":7}}}""");
+        Assertions.assertEquals(Map.of("jump", 3, "play_one_minute", 72_000), read.getGenericStatistics());
+        Assertions.assertEquals(Map.of("mine_block", Map.of("stone", 1200)), read.getBlockStatistics());
+        Assertions.assertEquals(Map.of("use_item", Map.of("diamond_pickaxe", 7)), read.getItemStatistics());
+        Assertions.assertTrue(read.getEntityStatistics().isEmpty());
+
+        final TableStatistics converted = serializer.deserialize(serializer.serialize(read));
+        Assertions.assertEquals(read.getBlockStatistics(), converted.getBlockStatistics());
+        Assertions.assertEquals(read.getGenericStatistics(), converted.getGenericStatistics());
+    }
+
+    @Test
+    @DisplayName("Test Statistics Are Read By Snapshot Format Version")
+    public void testFormatVersions() {
+        final Serializer.Statistics<TableStatistics> serializer = new Serializer.Statistics<>(
+                Gson::new, TableStatistics::new
+        );
+        final Version version = Version.fromString("1.21.1");
+        final String json = "{\"generic\":{\"jump\":3}}";
+        Assertions.assertEquals(Map.of("jump", 3), serializer.deserialize(json, version, 5).getGenericStatistics());
+
+        final String binary = serializer.serialize(serializer.deserialize(json));
+        Assertions.assertEquals(Map.of("jump", 3), serializer.deserialize(binary, version, 5).getGenericStatistics());
+        Assertions.assertEquals(Map.of("jump", 3), serializer.deserialize(binary, version, 6).getGenericStatistics());
+        Assertions.assertThrows(Serializer.DeserializationException.class,
+                () -> serializer.deserialize(json, version, 6));
+    }
+
+    @Test
+    @DisplayName("Test Tables With Too Many Names Are Rejected")
+    public void testTooManyNames() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(0x81);
+            output.writeByte(0x80);
+            output.writeByte(0x04);
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assertions.assertThrows(IOException.class, () -> StatisticTable.read(input));
+        }
+    }
+
+    @Test
+    @DisplayName("Test Invalid Name References Are Rejected")
+    public void testInvalidNameReference() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(1);
+            output.writeUTF("mine_block");
+            output.writeByte(1);
+            output.writeByte(0);
+            output.writeByte(5);
+            output.writeByte(2);
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assertions.assertThrows(IOException.class, () -> StatisticTable.read(input));
+        }
+    }
+
+    private static StatisticTable roundTrip(StatisticTable table) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            table.write(output);
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return StatisticTable.read(input);
+        }
+    }
+
+    private record TableStatistics(@NotNull StatisticTable generic, @NotNull StatisticTable blocks,
+                                   @NotNull StatisticTable items, @NotNull StatisticTable entities)
+            implements Data.Statistics {
+
+        @NotNull
+        @Override
+        public StatisticTable getGenericTable() {
+            return generic;
+        }
+
+        @NotNull
+        @Override
+        public StatisticTable getBlockTable() {
+            return blocks;
+        }
+
+        @NotNull
+        @Override
+        public StatisticTable getItemTable() {
+            return items;
+        }
+
+        @NotNull
+        @Override
+        public StatisticTable getEntityTable() {
+            return entities;
+        }
+
+        @Override
+        public void apply(@NotNull UserDataHolder user, @NotNull HuskSync plugin) {
+        }
+    }
+
+}
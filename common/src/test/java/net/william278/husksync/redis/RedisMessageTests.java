@@ -0,0 +1,78 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.redis;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+@DisplayName("Redis Message Tests")
+public class RedisMessageTests {
+
+    @Test
+    @DisplayName("Test Message Frame Round Trip")
+    public void testFrameRoundTrip() {
+        final UUID target = UUID.randomUUID();
+        final UUID requestId = UUID.randomUUID();
+        final byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+        final RedisMessage message = RedisMessage.create(target, payload);
+        message.setRequestId(requestId);
+        message.setSourceServer("lobby");
+
+        final byte[] frame = message.toBytes(RedisMessage.Type.RETURN_USER_DATA);
+        Assertions.assertFalse(RedisMessage.isJson(frame));
+        final RedisMessage read = RedisMessage.fromBytes(RedisMessage.Type.RETURN_USER_DATA, frame);
+        Assertions.assertEquals(target, read.getTargetUuid().orElseThrow());
+        Assertions.assertEquals(requestId, read.getRequestId().orElseThrow());
+        Assertions.assertEquals("lobby", read.getSourceServer().orElseThrow());
+        Assertions.assertTrue(read.getTargetServer().isEmpty());
+        Assertions.assertArrayEquals(payload, read.getPayload());
+    }
+
+    @Test
+    @DisplayName("Test Message Frame Target Server")
+    public void testFrameTargetServer() {
+        final RedisMessage message = RedisMessage.create("survival", new byte[0]);
+        final byte[] frame = message.toBytes(RedisMessage.Type.CHECK_IN_PETITION);
+
+        Assertions.assertEquals(RedisMessage.Type.CHECK_IN_PETITION, RedisMessage.getFrameType(frame));
+        final RedisMessage read = RedisMessage.fromBytes(RedisMessage.Type.CHECK_IN_PETITION, frame);
+        Assertions.assertEquals("survival", read.getTargetServer().orElseThrow());
+        Assertions.assertTrue(read.getTargetUuid().isEmpty());
+        Assertions.assertTrue(read.getRequestId().isEmpty());
+        Assertions.assertEquals(0, read.getPayload().length);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> RedisMessage.fromBytes(RedisMessage.Type.UPDATE_USER_DATA, frame));
+    }
+
+    @Test
+    @DisplayName("Test Incompatible Message Frame Version")
+    public void testIncompatibleFrameVersion() {
+        final byte[] frame = RedisMessage.create(UUID.randomUUID(), new byte[0])
+                .toBytes(RedisMessage.Type.UPDATE_USER_DATA);
+        frame[0] = RedisMessage.FORMAT_VERSION + 1;
+        Assertions.assertThrows(RedisMessage.IncompatibleFormatException.class,
+                () -> RedisMessage.fromBytes(RedisMessage.Type.UPDATE_USER_DATA, frame));
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of HuskSync, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.husksync.sync;
+
+import net.william278.desertwell.util.Version;
+import net.william278.husksync.data.DataSnapshot;
+import net.william278.husksync.user.User;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@DisplayName("Change Tracker Tests")
+public class ChangeTrackerTests {
+
+    private static final User USER = new User(UUID.randomUUID(), "Steve");
+
+    @Test
+    @DisplayName("Test Unchanged Data Is Detected")
+    public void testUnchanged() {
+        final ChangeTracker tracker = new ChangeTracker(key -> key.equals("husksync:statistics"));
+        Assertions.assertFalse(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.WORLD_SAVE, "a", "1")));
+
+        tracker.recordApplied(USER, snapshot(DataSnapshot.SaveCause.WORLD_SAVE, "a", "1"));
+        Assertions.assertTrue(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.WORLD_SAVE, "a", "1")));
+        Assertions.assertFalse(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.WORLD_SAVE, "b", "1")));
+
+        tracker.forget(USER);
+        Assertions.assertFalse(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.WORLD_SAVE, "a", "1")));
+    }
+
+    @Test
+    @DisplayName("Test Ignored Data Types Only Count When A Session Ends")
+    public void testIgnoredDataTypes() {
+        final ChangeTracker tracker = new ChangeTracker(key -> key.equals("husksync:statistics"));
+        tracker.recordApplied(USER, snapshot(DataSnapshot.SaveCause.WORLD_SAVE, "a", "1"));
+
+        Assertions.assertTrue(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.WORLD_SAVE, "a", "2")));
+        Assertions.assertFalse(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.DISCONNECT, "a", "2")));
+        Assertions.assertFalse(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.SERVER_SHUTDOWN, "a", "2")));
+        Assertions.assertTrue(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.DISCONNECT, "a", "1")));
+
+        tracker.recordSaved(USER, snapshot(DataSnapshot.SaveCause.DISCONNECT, "a", "2"));
+        Assertions.assertTrue(tracker.isUnchanged(USER, snapshot(DataSnapshot.SaveCause.DISCONNECT, "a", "2")));
+    }
+
+    @NotNull
+    private static DataSnapshot.Packed snapshot(@NotNull DataSnapshot.SaveCause cause,
+                                                @NotNull String inventory, @NotNull String statistics) {
+        return new DataSnapshot.Packed(
+                UUID.randomUUID(), false, OffsetDateTime.now(), cause.name(), "server",
+                Map.of("husksync:inventory", inventory, "husksync:statistics", statistics),
+                Version.fromString("1.21.1"), "bukkit", 4
+        ) {
+        };
+    }
+
+}
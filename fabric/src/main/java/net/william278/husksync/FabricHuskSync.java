@@ -48,14 +48,13 @@ import net.william278.husksync.config.Server;
 import net.william278.husksync.config.Settings;
 import net.william278.husksync.data.*;
 import net.william278.husksync.database.Database;
-import net.william278.husksync.database.MongoDbDatabase;
-import net.william278.husksync.database.MySqlDatabase;
-import net.william278.husksync.database.PostgresDatabase;
+import net.william278.husksync.database.MirroredDatabase;
 import net.william278.husksync.event.FabricEventDispatcher;
 import net.william278.husksync.event.ModLoadedCallback;
 import net.william278.husksync.hook.PlanHook;
 import net.william278.husksync.listener.FabricEventListener;
 import net.william278.husksync.listener.LockedHandler;
+import net.william278.husksync.migrator.DatabaseMigrator;
 import net.william278.husksync.migrator.Migrator;
 import net.william278.husksync.redis.RedisManager;
 import net.william278.husksync.sync.DataSyncer;
@@ -182,7 +181,7 @@ public class FabricHuskSync implements DedicatedServerModInitializer, HuskSync,
             registerSerializer(Identifier.INVENTORY, new FabricSerializer.Inventory(this));
             registerSerializer(Identifier.ENDER_CHEST, new FabricSerializer.EnderChest(this));
             registerSerializer(Identifier.ADVANCEMENTS, new FabricSerializer.Advancements(this));
-            registerSerializer(Identifier.STATISTICS, new Serializer.Json<>(this, FabricData.Statistics.class));
+            registerSerializer(Identifier.STATISTICS, new Serializer.Statistics<>(this, FabricData.Statistics::from));
             registerSerializer(Identifier.POTION_EFFECTS, new FabricSerializer.PotionEffects(this));
             registerSerializer(Identifier.GAME_MODE, new Serializer.Json<>(this, FabricData.GameMode.class));
             registerSerializer(Identifier.FLIGHT_STATUS, new Serializer.Json<>(this, FabricData.FlightStatus.class));
@@ -194,13 +193,16 @@ public class FabricHuskSync implements DedicatedServerModInitializer, HuskSync,
             validateDependencies();
         });
 
+        // Setup available migrators
+        initialize("data migrators/converters", (plugin) -> availableMigrators.add(new DatabaseMigrator(this)));
+
         // Initialize the database
         initialize(getSettings().getDatabase().getType().getDisplayName() + " database connection", (plugin) -> {
-            this.database = switch (settings.getDatabase().getType()) {
-                case MYSQL, MARIADB -> new MySqlDatabase(this);
-                case POSTGRES -> new PostgresDatabase(this);
-                case MONGO -> new MongoDbDatabase(this);
-            };
+            this.database = Database.create(this, settings.getDatabase());
+            if (settings.getDatabase().getMirror().isEnabled()) {
+                this.database = new MirroredDatabase(this, database,
+                        Database.create(this, settings.getDatabase().getMirrorTarget()));
+            }
             this.database.initialize();
         });
 
@@ -477,68 +477,74 @@ public abstract class FabricData implements Data {
 
     @Getter
     @AllArgsConstructor(access = AccessLevel.PRIVATE)
-    @NoArgsConstructor(access = AccessLevel.PRIVATE)
-    public static class Statistics extends FabricData implements Data.Statistics, Adaptable {
+    public static class Statistics extends FabricData implements Data.Statistics {
 
         private static final String BLOCK_STAT_TYPE = "block";
         private static final String ITEM_STAT_TYPE = "item";
         private static final String ENTITY_STAT_TYPE = "entity_type";
 
-        @SerializedName("generic")
-        private Map<String, Integer> genericStatistics;
-        @SerializedName("blocks")
-        private Map<String, Map<String, Integer>> blockStatistics;
-        @SerializedName("items")
-        private Map<String, Map<String, Integer>> itemStatistics;
-        @SerializedName("entities")
-        private Map<String, Map<String, Integer>> entityStatistics;
+        // Statistic types and the values they are counted for, with their interned names, resolved once
+        private static List<TypedStatistic> TYPED_STATISTICS;
+        private static List<Indexed<Identifier>> CUSTOM_STATISTICS;
+
+        // Registry values of interned statistic and subject names, resolved once when first applied
+        private static final StatisticTable.Lookup<StatType<?>> STAT_TYPE_LOOKUP = new StatisticTable.Lookup<>(
+                key -> getRegistryValue(Registries.STAT_TYPE, key)
+        );
+        private static final StatisticTable.Lookup<Identifier> CUSTOM_LOOKUP = new StatisticTable.Lookup<>(
+                key -> getRegistryValue(Registries.CUSTOM_STAT, key)
+        );
+        private static final StatisticTable.Lookup<Object> BLOCK_LOOKUP = new StatisticTable.Lookup<>(
+                key -> getRegistryValue(Registries.BLOCK, key)
+        );
+        private static final StatisticTable.Lookup<Object> ITEM_LOOKUP = new StatisticTable.Lookup<>(
+                key -> getRegistryValue(Registries.ITEM, key)
+        );
+        private static final StatisticTable.Lookup<Object> ENTITY_LOOKUP = new StatisticTable.Lookup<>(
+                key -> getRegistryValue(Registries.ENTITY_TYPE, key)
+        );
+
+        private final StatisticTable genericTable;
+        private final StatisticTable blockTable;
+        private final StatisticTable itemTable;
+        private final StatisticTable entityTable;
 
         @NotNull
         public static FabricData.Statistics adapt(@NotNull ServerPlayerEntity player) throws IllegalStateException {
             // Adapt typed stats
-            final Map<String, Map<String, Integer>> blocks = Maps.newHashMap(),
-                    items = Maps.newHashMap(), entities = Maps.newHashMap();
-            Registries.STAT_TYPE.getEntrySet().forEach(stat -> {
-                // This is necessary to prevent weird re-mappings with Registry#getKey()
-                //#if MC>0
-                //$$ final Registry<?> registry = stat.getValue().getRegistry();
-                //$$ final String registryId = registry.getKey().getValue().value();
-                //$$ if (registryId.equals("custom_stat")) {
-                //$$    return;
-                //$$ }
-                //#else
-                final Registry<?> registry = stat.getValue().getRegistry();
-                final String registryId = registry.getKey().getValue().value();
-                if (registryId.equals("custom_stat")) {
-                    return;
-                }
-                //#endif
-
-                final Map<String, Integer> map = (switch (registryId) {
+            final StatisticTable blocks = new StatisticTable(256), items = new StatisticTable(1024),
+                    entities = new StatisticTable(128);
+            for (TypedStatistic stat : getTypedStatistics()) {
+                final StatisticTable table = switch (stat.registryId()) {
                     case BLOCK_STAT_TYPE -> blocks;
                     case ITEM_STAT_TYPE -> items;
                     case ENTITY_STAT_TYPE -> entities;
-                    default -> throw new IllegalStateException("Unexpected value: %s".formatted(registryId));
-                }).compute(stat.getKey().getValue().toString(), (k, v) -> v == null ? Maps.newHashMap() : v);
-
-                registry.getEntrySet().forEach(entry -> {
+                    default -> throw new IllegalStateException("Unexpected value: %s".formatted(stat.registryId()));
+                };
+                for (Indexed<Object> entry : stat.values()) {
                     @SuppressWarnings({"unchecked", "rawtypes"}) final int value = player.getStatHandler()
-                            .getStat((StatType) stat.getValue(), entry.getValue());
+                            .getStat((StatType) stat.type(), entry.value());
                     if (value != 0) {
-                        map.put(entry.getKey().getValue().toString(), value);
+                        table.set(stat.index(), entry.index(), value);
                     }
-                });
-            });
+                }
+            }
 
             // Add generic stats
-            final Map<String, Integer> generic = Maps.newHashMap();
-            Registries.CUSTOM_STAT.getEntrySet().forEach(stat -> {
-                final int value = player.getStatHandler().getStat(Stats.CUSTOM.getOrCreateStat(stat.getValue()));
+            final StatisticTable generic = new StatisticTable(128);
+            for (Indexed<Identifier> stat : getCustomStatistics()) {
+                final int value = player.getStatHandler().getStat(Stats.CUSTOM.getOrCreateStat(stat.value()));
                 if (value != 0) {
-                    generic.put(stat.getKey().getValue().toString(), value);
+                    generic.set(stat.index(), StatisticTable.UNTYPED, value);
                 }
-            });
+            }
+
+            return new FabricData.Statistics(generic, blocks, items, entities);
+        }
 
+        @NotNull
+        public static FabricData.Statistics from(@NotNull StatisticTable generic, @NotNull StatisticTable blocks,
+                                                 @NotNull StatisticTable items, @NotNull StatisticTable entities) {
             return new FabricData.Statistics(generic, blocks, items, entities);
         }
 
@@ -547,48 +553,98 @@ public abstract class FabricData implements Data {
                                                  @NotNull Map<String, Map<String, Integer>> blocks,
                                                  @NotNull Map<String, Map<String, Integer>> items,
                                                  @NotNull Map<String, Map<String, Integer>> entities) {
-            return new FabricData.Statistics(generic, blocks, items, entities);
+            return new FabricData.Statistics(
+                    StatisticTable.fromUntypedMap(generic), StatisticTable.fromTypedMap(blocks),
+                    StatisticTable.fromTypedMap(items), StatisticTable.fromTypedMap(entities)
+            );
         }
 
         @Override
         public void apply(@NotNull FabricUser user, @NotNull FabricHuskSync plugin) {
             final ServerPlayerEntity player = user.getPlayer();
-            genericStatistics.forEach((id, v) -> applyStat(player, id, null, v));
-            blockStatistics.forEach((id, m) -> m.forEach((b, v) -> applyStat(player, id, BLOCK_STAT_TYPE, v, b)));
-            itemStatistics.forEach((id, m) -> m.forEach((i, v) -> applyStat(player, id, ITEM_STAT_TYPE, v, i)));
-            entityStatistics.forEach((id, m) -> m.forEach((e, v) -> applyStat(player, id, ENTITY_STAT_TYPE, v, e)));
+            genericTable.forEach((id, subject, value) -> applyStat(player, id, value));
+            blockTable.forEach((id, subject, value) -> applyStat(player, id, BLOCK_LOOKUP.get(subject), value));
+            itemTable.forEach((id, subject, value) -> applyStat(player, id, ITEM_LOOKUP.get(subject), value));
+            entityTable.forEach((id, subject, value) -> applyStat(player, id, ENTITY_LOOKUP.get(subject), value));
             player.getStatHandler().updateStatSet();
             player.getStatHandler().sendStats(player);
         }
 
-        @SuppressWarnings("unchecked")
-        private <T> void applyStat(@NotNull ServerPlayerEntity player, @NotNull String id,
-                                   @Nullable String type, int value, @NotNull String... key) {
-            final Identifier statId = Identifier.tryParse(id);
-            if (statId == null) {
-                return;
+        private void applyStat(@NotNull ServerPlayerEntity player, int id, int value) {
+            final Identifier stat = CUSTOM_LOOKUP.get(id);
+            if (stat != null) {
+                player.getStatHandler().setStat(player, Stats.CUSTOM.getOrCreateStat(stat), value);
             }
-            if (type == null) {
-                player.getStatHandler().setStat(
-                        player,
-                        Stats.CUSTOM.getOrCreateStat(Registries.CUSTOM_STAT.get(statId)),
-                        value
-                );
+        }
+
+        @SuppressWarnings("unchecked")
+        private void applyStat(@NotNull ServerPlayerEntity player, int id, @Nullable Object subject, int value) {
+            final StatType<Object> statType = (StatType<Object>) STAT_TYPE_LOOKUP.get(id);
+            if (statType == null || subject == null) {
                 return;
             }
-            final Identifier typeId = Identifier.tryParse(type);
-            final StatType<T> statType = (StatType<T>) Registries.STAT_TYPE.get(typeId);
-            if (statType == null) {
-                return;
+            player.getStatHandler().setStat(player, statType.getOrCreateStat(subject), value);
+        }
+
+        @NotNull
+        private static List<TypedStatistic> getTypedStatistics() {
+            if (TYPED_STATISTICS == null) {
+                final List<TypedStatistic> statistics = Lists.newArrayList();
+                Registries.STAT_TYPE.getEntrySet().forEach(stat -> {
+                    // This is necessary to prevent weird re-mappings with Registry#getKey()
+                    //#if MC>0
+                    //$$ final Registry<?> registry = stat.getValue().getRegistry();
+                    //$$ final String registryId = registry.getKey().getValue().value();
+                    //$$ if (registryId.equals("custom_stat")) {
+                    //$$    return;
+                    //$$ }
+                    //#else
+                    final Registry<?> registry = stat.getValue().getRegistry();
+                    final String registryId = registry.getKey().getValue().value();
+                    if (registryId.equals("custom_stat")) {
+                        return;
+                    }
+                    //#endif
+
+                    final List<Indexed<Object>> values = Lists.newArrayList();
+                    registry.getEntrySet().forEach(entry -> values.add(new Indexed<>(
+                            entry.getValue(), StatisticTable.intern(entry.getKey().getValue().toString())
+                    )));
+                    statistics.add(new TypedStatistic(
+                            stat.getValue(), registryId,
+                            StatisticTable.intern(stat.getKey().getValue().toString()), List.copyOf(values)
+                    ));
+                });
+                TYPED_STATISTICS = List.copyOf(statistics);
             }
+            return TYPED_STATISTICS;
+        }
 
-            final Registry<T> typeReg = statType.getRegistry();
-            final T typeInstance = typeReg.get(Identifier.tryParse(key[0]));
-            if (typeInstance == null) {
-                return;
+        @NotNull
+        private static List<Indexed<Identifier>> getCustomStatistics() {
+            if (CUSTOM_STATISTICS == null) {
+                final List<Indexed<Identifier>> statistics = Lists.newArrayList();
+                Registries.CUSTOM_STAT.getEntrySet().forEach(stat -> statistics.add(new Indexed<>(
+                        stat.getValue(), StatisticTable.intern(stat.getKey().getValue().toString())
+                )));
+                CUSTOM_STATISTICS = List.copyOf(statistics);
             }
+            return CUSTOM_STATISTICS;
+        }
+
+        @Nullable
+        private static <T> T getRegistryValue(@NotNull Registry<T> registry, @NotNull String key) {
+            final Identifier id = Identifier.tryParse(key);
+            return id != null && registry.containsId(id) ? registry.get(id) : null;
+        }
+
+        // A statistic type, the name of the registry of values it is counted for, and those values
+        private record TypedStatistic(@NotNull StatType<?> type, @NotNull String registryId, int index,
+                                      @NotNull List<Indexed<Object>> values) {
+        }
 
-            player.getStatHandler().setStat(player, statType.getOrCreateStat(typeInstance), value);
+        // A registry value and its interned name
+        private record Indexed<T>(@NotNull T value, int index) {
         }
 
     }